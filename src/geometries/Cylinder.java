@@ -13,6 +13,8 @@ import static primitives.Util.isZero;
  */
 
 public class Cylinder extends Tube{
+    /** Serialization version */
+    private static final long serialVersionUID = 1L;
 
     /**
      * height of the tube
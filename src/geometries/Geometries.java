@@ -1,11 +1,19 @@
 package geometries;
 
+import primitives.Color;
+import primitives.Material;
 import primitives.Point;
 import primitives.Ray;
 
+import java.io.IOException;
+import java.io.ObjectOutputStream;
+import java.nio.ByteBuffer;
 import java.util.Collections;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.ObjIntConsumer;
+import java.util.function.ToIntFunction;
 
 /**
  * The Geometries class implements operations for several geometric bodies
@@ -13,8 +21,22 @@ import java.util.List;
  * @author Devorah Wajs and Guila Czerniewicz
  */
 public class Geometries extends Intersectable{
+    /** Serialization version */
+    private static final long serialVersionUID = 1L;
 
-    private final List<Intersectable> geometries = new LinkedList<Intersectable>();
+    private final LinkedList<Intersectable> geometries = new LinkedList<Intersectable>();
+
+    /**
+     * Batch of the geometries when all of them are triangles (null otherwise),
+     * computed when first needed
+     */
+    private transient volatile TriangleBatch triangles = null;
+    /** Whether the batch of the triangles has been computed */
+    private transient volatile boolean batched = false;
+    /** Whether the batch of the triangles is stored in single precision */
+    private boolean single = false;
+    /** Whether the batch of the triangles is stored off the heap */
+    private boolean offHeap = false;
 
     public Geometries() {
     }
@@ -34,12 +56,176 @@ public class Geometries extends Intersectable{
      * @param geometries objects to add
      */
     public void add(Intersectable...geometries) {
+        materialize();
         Collections.addAll(this.geometries, geometries);
+        batched = false;
+    }
+
+    /**
+     * Sets whether the geometries, when all of them are triangles, are stored in
+     * single precision for their intersection - half of the memory of the
+     * vertices, with the vertices rounded to float. The rays are still computed
+     * in double precision.
+     *
+     * @param single true for float storage, false (default) for double storage
+     * @return the geometries collection itself
+     */
+    public Geometries setFloatStorage(boolean single) {
+        materialize();
+        this.single = single;
+        batched = false;
+        return this;
+    }
+
+    /**
+     * Sets whether the geometries, when all of them are triangles, are stored off
+     * the Java heap for their intersection, so that the garbage collector doesn't
+     * scan or move the data of large meshes. The triangles themselves are still
+     * kept for the shading of their intersections.<br/>
+     * The reads from the direct buffer are bounds-checked, so intersecting the
+     * triangles costs roughly a third more time than on the heap (from 10% to
+     * 40% on the test meshes). It pays only when the heap is the limit.
+     *
+     * @param offHeap true for off-heap storage, false (default) for heap storage
+     * @return the geometries collection itself
+     */
+    public Geometries setOffHeapStorage(boolean offHeap) {
+        materialize();
+        this.offHeap = offHeap;
+        batched = false;
+        return this;
+    }
+
+    /**
+     * The batch of the geometries, computed at the first call after the last
+     * addition or change of storage
+     *
+     * @return the batch of the triangles, or null if the geometries are not all
+     *         triangles
+     */
+    private TriangleBatch triangles() {
+        if (!batched) {
+            synchronized (this) {
+                if (!batched) {
+                    triangles = TriangleBatch.of(geometries, single, offHeap);
+                    batched = true;
+                }
+            }
+        }
+        return triangles;
+    }
+
+    /**
+     * Compiles the geometries, when all of them are triangles, into a mesh block
+     * which may be stored in a file and used in place by {@link #loadMesh}
+     *
+     * @param appearance the index of the appearance (emission and material) of a
+     *                   triangle
+     * @return the compiled mesh block, or null if the geometries are not all
+     *         triangles
+     */
+    public ByteBuffer compileMesh(ToIntFunction<Geometry> appearance) {
+        TriangleBatch batch = triangles();
+        return batch == null ? null : batch.compile(appearance::applyAsInt);
+    }
+
+    /**
+     * Creates the geometries of a compiled mesh block, e.g. a region of a
+     * memory-mapped file, which is intersected in place without being copied or
+     * parsed. The triangles are created when first hit.
+     *
+     * @param block     the compiled mesh block
+     * @param emissions the emissions of the appearances of the triangles
+     * @param materials the materials of the appearances of the triangles
+     * @return the geometries of the mesh
+     */
+    public static Geometries loadMesh(ByteBuffer block, Color[] emissions, Material[] materials) {
+        Geometries mesh = new Geometries();
+        mesh.triangles = new TriangleBatch(block, emissions, materials, mesh);
+        mesh.batched = true;
+        return mesh;
+    }
+
+    /**
+     * Moves the triangles of a compiled mesh into the list of the geometries, so
+     * that the collection may be changed or serialized like any other collection
+     */
+    private synchronized void materialize() {
+        TriangleBatch batch = triangles;
+        if (batch != null && geometries.isEmpty()) batch.forEachTriangle(geometries::add);
+    }
+
+    /**
+     * Serializes the geometries with the triangles of a compiled mesh
+     *
+     * @param out the object output stream
+     * @throws IOException if the stream fails
+     */
+    private void writeObject(ObjectOutputStream out) throws IOException {
+        materialize();
+        out.defaultWriteObject();
+    }
+
+
+    /**
+     * Performs an action for every geometry of the collection, including the
+     * geometries of nested collections, in the order of their addition
+     *
+     * @param action the action
+     */
+    public void forEachGeometry(Consumer<Geometry> action) {
+        forEachGeometry(action, (mesh, size) -> mesh.triangles.forEachTriangle(action::accept));
     }
 
+    /**
+     * Performs an action for every geometry of the collection, including the
+     * geometries of nested collections, in the order of their addition - except
+     * the compiled meshes, which are given whole to another action so that their
+     * triangles are not created
+     *
+     * @param action     the action for the geometries
+     * @param meshAction the action for the compiled meshes, receiving the mesh and
+     *                   the amount of its triangles
+     */
+    public void forEachGeometry(Consumer<Geometry> action, ObjIntConsumer<Geometries> meshAction) {
+        TriangleBatch batch = triangles;
+        if (batch != null && geometries.isEmpty()) {
+            meshAction.accept(this, batch.size());
+            return;
+        }
+        for (Intersectable geometry : geometries) {
+            if (geometry instanceof Geometries nested) nested.forEachGeometry(action, meshAction);
+            else if (geometry instanceof Geometry leaf) action.accept(leaf);
+        }
+    }
+
+    /**
+     * The compiled mesh of a triangle created from it
+     *
+     * @param geometry the geometry
+     * @return the mesh, or null if the geometry is not a triangle of a compiled
+     *         mesh
+     */
+    public static Geometries meshOf(Geometry geometry) {
+        return geometry instanceof TriangleBatch.MeshTriangle triangle ? triangle.mesh : null;
+    }
+
+    /**
+     * The index in its compiled mesh of a triangle created from it
+     *
+     * @param geometry the geometry
+     * @return the index, or -1 if the geometry is not a triangle of a compiled
+     *         mesh
+     */
+    public static int meshIndex(Geometry geometry) {
+        return geometry instanceof TriangleBatch.MeshTriangle triangle && triangle.mesh != null
+                ? triangle.index : -1;
+    }
 
     @Override
     protected List<Intersection> calculateIntersectionsHelper(Ray ray, double maxDistance) {
+        TriangleBatch batch = triangles();
+        if (batch != null) return batch.intersections(ray, maxDistance);
         List<Intersection> intersections = null;
         for (Intersectable geometry : geometries) {
             List<Intersection> geometryIntersections = geometry.calculateIntersectionsHelper(ray, maxDistance);
@@ -51,4 +237,60 @@ public class Geometries extends Intersectable{
         }
         return intersections;
     }
+
+    /**
+     * Finds the closest intersection by the batch kernel when all the geometries
+     * are triangles, and otherwise keeps the closest of the geometries' closest
+     * intersections, without collecting all the intersections
+     */
+    @Override
+    protected Intersection calculateClosestIntersectionHelper(Ray ray) {
+        TriangleBatch batch = triangles();
+        if (batch != null) return batch.closestIntersection(ray, Double.POSITIVE_INFINITY);
+        Point head = ray.getPoint(0);
+        Intersection closest = null;
+        double minDistance = Double.POSITIVE_INFINITY;
+        for (Intersectable geometry : geometries) {
+            Intersection intersection = geometry.calculateClosestIntersectionHelper(ray);
+            if (intersection == null) continue;
+            double distanceSquared = head.distanceSquared(intersection.point);
+            if (distanceSquared < minDistance) {
+                minDistance = distanceSquared;
+                closest = intersection;
+            }
+        }
+        return closest;
+    }
+
+    /**
+     * Intersects the rays of a packet with the batch of the triangles if all the
+     * geometries are triangles, otherwise with the geometries one by one - every
+     * geometry is visited once for the whole packet
+     */
+    @Override
+    protected void calculatePacketIntersectionsHelper(RayPacket packet) {
+        TriangleBatch batch = triangles();
+        if (batch != null) {
+            batch.intersect(packet);
+            return;
+        }
+        for (Intersectable geometry : geometries)
+            geometry.calculatePacketIntersectionsHelper(packet);
+    }
+
+    /**
+     * Passes the rays of a packet through the batch of the triangles if all the
+     * geometries are triangles, otherwise through the geometries one by one in
+     * the order of their intersections of a single ray
+     */
+    @Override
+    protected void calculatePacketTransparenciesHelper(RayPacket packet) {
+        TriangleBatch batch = triangles();
+        if (batch != null) {
+            batch.pass(packet);
+            return;
+        }
+        for (Intersectable geometry : geometries)
+            geometry.calculatePacketTransparenciesHelper(packet);
+    }
 }
@@ -9,6 +9,8 @@ import primitives.*;
  */
 
 public abstract class Geometry extends Intersectable {
+    /** Serialization version */
+    private static final long serialVersionUID = 1L;
 
     /**
      * The color of the geometry
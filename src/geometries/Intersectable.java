@@ -1,6 +1,7 @@
 package geometries;
 import lighting.LightSource;
 import primitives.*;
+import java.io.Serializable;
 import java.util.List;
 import java.util.Objects;
 
@@ -11,7 +12,9 @@ import java.util.Objects;
  *
  * @author Devorah wajs and guila czerniewicz
  */
-public abstract class Intersectable {
+public abstract class Intersectable implements Serializable {
+    /** Serialization version */
+    private static final long serialVersionUID = 1L;
 
     /**
      * Finds intersection points between the intersectable object and a given ray.
@@ -46,6 +49,95 @@ public abstract class Intersectable {
         return calculateIntersectionsHelper(ray, maxDistance);
     }
 
+    /**
+     * Finds the closest intersection between the object and a given ray.
+     * Calls calculateClosestIntersectionHelper
+     *
+     * @param ray the ray
+     * @return the closest intersection (the first of equally close intersections),
+     *         or null if the ray doesn't hit the object
+     */
+    public final Intersection calculateClosestIntersection(Ray ray) {
+        return calculateClosestIntersectionHelper(ray);
+    }
+
+    /**
+     * Finds the closest intersection between the object and a given ray. By
+     * default all the intersections are calculated and the closest of them is
+     * chosen.
+     *
+     * @param ray the ray
+     * @return the closest intersection, or null if the ray doesn't hit the object
+     */
+    protected Intersection calculateClosestIntersectionHelper(Ray ray) {
+        List<Intersection> intersections = calculateIntersectionsHelper(ray, Double.POSITIVE_INFINITY);
+        return intersections == null ? null : ray.findClosestIntersection(intersections);
+    }
+
+    /**
+     * Finds the closest intersections of the rays of a packet with the object.
+     * Every lane of the packet keeps the closer of its previous closest hit and
+     * the object's hits, so that a packet may be intersected with several objects
+     * one after another.
+     *
+     * @param packet the ray packet
+     */
+    public final void findClosestIntersections(RayPacket packet) {
+        calculatePacketIntersectionsHelper(packet);
+    }
+
+    /**
+     * Intersects the rays of a packet with the object, recording the hits in the
+     * packet's lanes. By default the rays of the lanes are intersected one by
+     * one - the scalar fallback of the geometries without a packet kernel.
+     *
+     * @param packet the ray packet
+     */
+    protected void calculatePacketIntersectionsHelper(RayPacket packet) {
+        for (int lane = 0; lane < packet.size; ++lane) {
+            Ray ray = packet.ray(lane);
+            List<Intersection> intersections = calculateIntersectionsHelper(ray, Double.POSITIVE_INFINITY);
+            if (intersections == null) continue;
+            Point head = ray.getPoint(0);
+            for (Intersection intersection : intersections)
+                packet.hit(lane, head.distance(intersection.point), intersection.geometry);
+        }
+    }
+
+    /**
+     * Finds the transparencies of the ways of the rays of a packet (e.g. shadow
+     * rays toward a light) up to their maximum distances through the object, as
+     * the product of the transparencies of all the intersections of every ray,
+     * so that a packet may be traversed through several objects one after
+     * another.
+     *
+     * @param packet the ray packet with the maximum distances of its rays
+     * @param opaque the transparency below which (in all the colors) a geometry
+     *               blocks a ray, whose transparency becomes zero
+     */
+    public final void findTransparencies(RayPacket packet, double opaque) {
+        packet.opaque = opaque;
+        calculatePacketTransparenciesHelper(packet);
+    }
+
+    /**
+     * Passes the rays of a packet through the object, recording the geometries
+     * on their ways in the packet's lanes in the order of the intersections of a
+     * single ray. By default the intersections of the lanes' rays are calculated
+     * one by one - the scalar fallback of the geometries without a packet kernel.
+     *
+     * @param packet the ray packet
+     */
+    protected void calculatePacketTransparenciesHelper(RayPacket packet) {
+        for (int lane = 0; lane < packet.size; ++lane) {
+            if (packet.blocked(lane)) continue;
+            List<Intersection> intersections = calculateIntersectionsHelper(packet.ray(lane), packet.t[lane]);
+            if (intersections == null) continue;
+            for (Intersection intersection : intersections)
+                packet.pass(lane, intersection.geometry);
+        }
+    }
+
 
 
     /**
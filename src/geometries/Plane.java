@@ -16,6 +16,8 @@ import static primitives.Util.alignZero;
  * @author Devorah Wajs and Guila Czerniewicz
  */
 public class Plane extends Geometry{
+    /** Serialization version */
+    private static final long serialVersionUID = 1L;
 
     /**
      * point in plane
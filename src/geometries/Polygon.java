@@ -14,7 +14,11 @@ import primitives.*;
  * @author Dan
  */
 public class Polygon extends Geometry {
+    /** Serialization version */
+    private static final long serialVersionUID = 1L;
+
     /** List of polygon's vertices */
+    @SuppressWarnings("serial") // always the serializable immutable list of List.of
     protected final List<Point> vertices;
     /** Associated plane in which the polygon lays */
     protected final Plane       plane;
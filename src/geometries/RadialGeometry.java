@@ -10,6 +10,8 @@ import primitives.Vector;
  * @author Devorah Wajs and Guila Czerniewicz
  */
 public abstract class RadialGeometry extends Geometry{
+    /** Serialization version */
+    private static final long serialVersionUID = 1L;
 
     /**
      * the geometry radius
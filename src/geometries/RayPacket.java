@@ -0,0 +1,165 @@
+package geometries;
+
+import geometries.Intersectable.Intersection;
+import primitives.Double3;
+import primitives.Point;
+import primitives.Ray;
+import primitives.Vector;
+
+/**
+ * Packet of up to 8 coherent rays (e.g. the primary rays of neighbouring pixels,
+ * or their shadow rays toward a light) for a structure of arrays traversal of the
+ * geometries: every geometry is visited once for all the packet's rays instead of
+ * once per ray.<br/>
+ * The heads and the directions of the rays are kept in lanes of primitive arrays
+ * (structure of arrays), and the lanes following the packet's size are unused.
+ * The kernels intersect the lanes one after another by the same scalar
+ * computation as a single ray, without creating vectors, points or lists of
+ * intersections for the misses.<br/>
+ * A packet is traversed either for the closest hits of its rays - kept as the
+ * distance and the geometry of every lane, with the intersection created only
+ * after all the geometries have been intersected - or for the transparency of
+ * the way of every ray up to its maximum distance, e.g. toward a light.
+ * @author Devorah Wajs and Guila Czerniewicz
+ */
+public final class RayPacket {
+    /** Amount of lanes of a packet */
+    public static final int WIDTH    = 8;
+
+    /** The rays of the lanes */
+    private final Ray[]     rays     = new Ray[WIDTH];
+    /** Coordinates of the rays' heads */
+    final double[]          ox       = new double[WIDTH], oy = new double[WIDTH], oz = new double[WIDTH];
+    /** Coordinates of the rays' directions */
+    final double[]          dx       = new double[WIDTH], dy = new double[WIDTH], dz = new double[WIDTH];
+    /**
+     * Distance of the closest hit of every lane, infinity where nothing is hit -
+     * or the maximum distance of every lane of a transparency traversal
+     */
+    final double[]          t        = new double[WIDTH];
+    /** Transparency of the way of every lane of a transparency traversal */
+    final Double3[]         kT       = new Double3[WIDTH];
+    /**
+     * Transparency below which (in all the colors) a geometry blocks a lane of a
+     * transparency traversal
+     */
+    double                  opaque   = 0;
+    /** Geometry of the closest hit of every lane */
+    final Geometry[]        geometry = new Geometry[WIDTH];
+    /** Amount of active lanes */
+    int                     size     = 0;
+
+    /** Empties the packet */
+    public void clear() {
+        size = 0;
+    }
+
+    /**
+     * Adds a ray in the next lane of the packet
+     * @param  ray the ray
+     * @return     the packet itself
+     */
+    public RayPacket add(Ray ray) {
+        return add(ray, Double.POSITIVE_INFINITY);
+    }
+
+    /**
+     * Adds a ray with a maximum distance in the next lane of the packet, e.g. a
+     * shadow ray up to its light
+     * @param  ray         the ray
+     * @param  maxDistance the maximum distance of the geometries along the ray
+     * @return             the packet itself
+     */
+    public RayPacket add(Ray ray, double maxDistance) {
+        if (size == WIDTH) throw new IllegalStateException("ERROR: The ray packet is full");
+        Point head = ray.getPoint(0);
+        Vector direction = ray.getDirection();
+        rays[size] = ray;
+        ox[size] = head.getX();
+        oy[size] = head.getY();
+        oz[size] = head.getZ();
+        dx[size] = direction.getX();
+        dy[size] = direction.getY();
+        dz[size] = direction.getZ();
+        t[size] = maxDistance;
+        kT[size] = Double3.ONE;
+        geometry[size] = null;
+        ++size;
+        return this;
+    }
+
+    /**
+     * Amount of rays in the packet
+     * @return the amount of active lanes
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * The ray of a lane
+     * @param  lane the lane index
+     * @return      the ray
+     */
+    public Ray ray(int lane) {
+        return rays[lane];
+    }
+
+    /**
+     * Records a hit of a lane if it is closer than the lane's closest hit
+     * @param lane     the lane index
+     * @param distance the distance of the hit along the ray
+     * @param hit      the hit geometry
+     */
+    void hit(int lane, double distance, Geometry hit) {
+        if (distance < t[lane]) {
+            t[lane] = distance;
+            geometry[lane] = hit;
+        }
+    }
+
+    /**
+     * Records a geometry found on the way of a lane in a transparency traversal,
+     * in the order of the intersections of a single ray: the lane's transparency
+     * is multiplied by the geometry's transparency, or it becomes zero if the
+     * geometry is opaque
+     * @param lane the lane index
+     * @param hit  the geometry on the way
+     */
+    void pass(int lane, Geometry hit) {
+        if (blocked(lane)) return;
+        Double3 transparency = hit.getMaterial().kT;
+        kT[lane] = transparency.lowerThan(opaque) ? Double3.ZERO : kT[lane].product(transparency);
+    }
+
+    /**
+     * Whether an opaque geometry has been found on the way of a lane in a
+     * transparency traversal, so that its other geometries don't matter
+     * @param  lane the lane index
+     * @return      true if the lane is blocked
+     */
+    boolean blocked(int lane) {
+        return kT[lane] == Double3.ZERO;
+    }
+
+    /**
+     * The transparency of the way of a lane's ray up to its maximum distance,
+     * after the packet has been traversed for the transparencies
+     * @param  lane the lane index
+     * @return      the product of the transparencies of the geometries on the
+     *              way, or zero if one of them is opaque
+     */
+    public Double3 transparency(int lane) {
+        return kT[lane];
+    }
+
+    /**
+     * The closest intersection of a lane's ray, after the packet has been
+     * intersected with the geometries
+     * @param  lane the lane index
+     * @return      the closest intersection, or null if the ray hits nothing
+     */
+    public Intersection intersection(int lane) {
+        return geometry[lane] == null ? null : new Intersection(geometry[lane], rays[lane].getPoint(t[lane]));
+    }
+}
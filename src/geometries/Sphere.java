@@ -17,6 +17,8 @@ import static primitives.Util.alignZero;
  * @author Devorah Wajs and Guila Czerniewicz
  */
 public class Sphere extends RadialGeometry{
+    /** Serialization version */
+    private static final long serialVersionUID = 1L;
 
     /**
      * center point of the sphere
@@ -63,4 +65,63 @@ public class Sphere extends RadialGeometry{
 
         return null;
     }
+
+    /**
+     * Intersects the rays of a packet with the sphere lane by lane in a scalar
+     * loop, by the same computation as a single ray without creating vectors and
+     * points
+     */
+    @Override
+    protected void calculatePacketIntersectionsHelper(RayPacket packet) {
+        double cx = center.getX(), cy = center.getY(), cz = center.getZ();
+        for (int lane = 0; lane < packet.size; ++lane) {
+            double ux = cx - packet.ox[lane], uy = cy - packet.oy[lane], uz = cz - packet.oz[lane];
+            if (Util.isZero(ux) && Util.isZero(uy) && Util.isZero(uz)) {
+                // the ray starts at the center
+                packet.hit(lane, radius, this);
+                continue;
+            }
+            double tm = ux * packet.dx[lane] + uy * packet.dy[lane] + uz * packet.dz[lane];
+            double d = Math.sqrt(ux * ux + uy * uy + uz * uz - tm * tm);
+            if (alignZero(d - radius) >= 0)
+                continue;
+            double th = Math.sqrt(radius * radius - d * d);
+            double t1 = alignZero(tm - th);
+            double t2 = alignZero(tm + th);
+            if (t1 > 0)
+                packet.hit(lane, t1, this);
+            else if (t2 > 0)
+                packet.hit(lane, t2, this);
+        }
+    }
+
+    /**
+     * Passes the rays of a packet through the sphere lane by lane, by the same
+     * computation as the intersections of a single ray up to its maximum distance
+     */
+    @Override
+    protected void calculatePacketTransparenciesHelper(RayPacket packet) {
+        double cx = center.getX(), cy = center.getY(), cz = center.getZ();
+        for (int lane = 0; lane < packet.size; ++lane) {
+            if (packet.blocked(lane)) continue;
+            double maxDistance = packet.t[lane];
+            double ux = cx - packet.ox[lane], uy = cy - packet.oy[lane], uz = cz - packet.oz[lane];
+            if (Util.isZero(ux) && Util.isZero(uy) && Util.isZero(uz)) {
+                // the ray starts at the center
+                if (alignZero(radius - maxDistance) < 0) packet.pass(lane, this);
+                continue;
+            }
+            double tm = ux * packet.dx[lane] + uy * packet.dy[lane] + uz * packet.dz[lane];
+            double d = Math.sqrt(ux * ux + uy * uy + uz * uz - tm * tm);
+            if (alignZero(d - radius) >= 0)
+                continue;
+            double th = Math.sqrt(radius * radius - d * d);
+            double t1 = alignZero(tm - th);
+            double t2 = alignZero(tm + th);
+            if (t1 > 0 && alignZero(t1 - maxDistance) < 0)
+                packet.pass(lane, this);
+            if (t2 > 0 && alignZero(t2 - maxDistance) < 0)
+                packet.pass(lane, this);
+        }
+    }
 }
@@ -11,6 +11,12 @@ import static primitives.Util.*;
  * @author Devorah Wajs and Guila Czerniewicz
  */
 public class Triangle extends Polygon{
+    /** Serialization version */
+    private static final long serialVersionUID = 1L;
+
+    /** Batch of this triangle alone for the packet kernel, created when first needed */
+    private transient TriangleBatch batch;
+
     /**
      * Constructs a Triangle object with three given points.
      *
@@ -50,4 +56,34 @@ public class Triangle extends Polygon{
 
         return null;
     }
+
+    /**
+     * Intersects the rays of a packet with the triangle by the (scalar) kernel
+     * of a batch of this single triangle, which is created once for all the
+     * packets
+     */
+    @Override
+    protected void calculatePacketIntersectionsHelper(RayPacket packet) {
+        batch().intersect(packet);
+    }
+
+    /**
+     * Passes the rays of a packet through the triangle by the kernel of a batch
+     * of this single triangle
+     */
+    @Override
+    protected void calculatePacketTransparenciesHelper(RayPacket packet) {
+        batch().pass(packet);
+    }
+
+    /**
+     * The batch of this triangle alone, created once for all the packets
+     *
+     * @return the batch
+     */
+    private TriangleBatch batch() {
+        TriangleBatch batch = this.batch;
+        if (batch == null) this.batch = batch = new TriangleBatch(List.of(this), false, false);
+        return batch;
+    }
 }
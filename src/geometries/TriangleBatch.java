@@ -0,0 +1,807 @@
+package geometries;
+
+import geometries.Intersectable.Intersection;
+import primitives.Color;
+import primitives.Material;
+import primitives.Point;
+import primitives.Ray;
+import primitives.Vector;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.DoubleBuffer;
+import java.nio.FloatBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Consumer;
+import java.util.function.ToIntFunction;
+
+import static primitives.Util.alignZero;
+import static primitives.Util.isZero;
+
+/**
+ * Batch of triangles intersected together over structure of arrays data, e.g.
+ * the dense facets of a mesh.<br/>
+ * The data of the triangles is precomputed once into 16 columns of primitive
+ * values (structure of arrays): the first vertex, the plane's normal, the two
+ * edges from the first vertex and their dot products. A ray is intersected with
+ * all the triangles by one scalar loop over the columns, without creating
+ * vectors, points or lists for the missed triangles, and only the nearest hit
+ * becomes an intersection. The computation of every triangle is the same as the
+ * computation of a single {@link Triangle}, so the hits are the same.<br/>
+ * The values may be stored in single precision (half the memory), with the
+ * vertices rounded to float and the ray's computation still in double. The
+ * batch is bounded by a box in float, rounded outwards, which rejects the rays
+ * passing beside all the triangles.<br/>
+ * The values may also be stored off the heap, in a direct buffer with every
+ * column aligned to a cache line, so that the garbage collector doesn't scan or
+ * move them however large the mesh is.<br/>
+ * The kind of storage is chosen once for the batch: each kind has a kernel of
+ * its own reading its columns directly, so that the loops over the triangles
+ * don't test the storage for every value.<br/>
+ * A batch may be compiled into a block of bytes and used in place from a
+ * memory-mapped file, with its triangles created only when first hit. The
+ * columns of a block are aligned as off the heap, relative to the block's start.
+ * @author Devorah Wajs and Guila Czerniewicz
+ */
+final class TriangleBatch {
+    /** Amount of values (columns) stored for every triangle */
+    private static final int    FIELDS    = 16;
+    /** Alignment of the columns off the heap in bytes - a cache line */
+    private static final int    ALIGNMENT = 64;
+    /**
+     * Relative margin of the bounding box, covering the rounding of the hit
+     * computation and of the float vertices
+     */
+    private static final double PADDING   = 1e-6;
+    /**
+     * Size of the header of a compiled block - the amount, the precision and the
+     * bounds, padded to the alignment so that the columns which follow it are
+     * aligned as off the heap
+     */
+    private static final int    HEADER    = ALIGNMENT;
+    /** Size of the vertices of a triangle in a compiled block */
+    private static final int    VERTICES  = 9 * Double.BYTES;
+
+    /** Amount of triangles */
+    private final int           size;
+    /** The triangles, created when first hit in a compiled batch */
+    private final AtomicReferenceArray<Triangle> triangles;
+    /** Whether the values of the triangles are in single precision */
+    private final boolean       single;
+    /** The intersection kernel over the stored values of the triangles */
+    private final Kernel        kernel;
+    /** Minimal corner of the bounding box */
+    private final float         minX, minY, minZ;
+    /** Maximal corner of the bounding box */
+    private final float         maxX, maxY, maxZ;
+    /** Vertices of the triangles of a compiled batch, or null */
+    private final ByteBuffer    vertices;
+    /** Appearance indices of the triangles of a compiled batch, or null */
+    private final ByteBuffer    appearances;
+    /** Emissions of the appearances of a compiled batch, or null */
+    private final Color[]       emissions;
+    /** Materials of the appearances of a compiled batch, or null */
+    private final Material[]    materials;
+    /** The mesh of a compiled batch, or null */
+    private final Geometries    mesh;
+
+    /**
+     * Triangle of a compiled batch, created when first hit, which knows its mesh
+     * and its index in the mesh (e.g. for giving it an id without creating all the
+     * mesh's triangles)
+     */
+    static final class MeshTriangle extends Triangle {
+        /** Serialization version */
+        private static final long         serialVersionUID = 1L;
+        /** The mesh of the triangle, null after deserialization */
+        final transient Geometries mesh;
+        /** The index of the triangle in the mesh */
+        final int                  index;
+
+        /**
+         * Constructs a triangle of a compiled batch
+         * @param mesh  the mesh
+         * @param index the index of the triangle in the mesh
+         * @param p1    the first vertex
+         * @param p2    the second vertex
+         * @param p3    the third vertex
+         */
+        MeshTriangle(Geometries mesh, int index, Point p1, Point p2, Point p3) {
+            super(p1, p2, p3);
+            this.mesh = mesh;
+            this.index = index;
+        }
+    }
+
+    /**
+     * Constructs a batch of triangles
+     * @param triangles the triangles
+     * @param single    whether the values of the triangles are stored in single
+     *                  precision
+     * @param offHeap   whether the values of the triangles are stored off the heap
+     */
+    TriangleBatch(List<Triangle> triangles, boolean single, boolean offHeap) {
+        Triangle[] array = triangles.toArray(new Triangle[0]);
+        this.triangles = new AtomicReferenceArray<>(array);
+        this.single = single;
+        size = array.length;
+        vertices = appearances = null;
+        emissions = null;
+        materials = null;
+        mesh = null;
+        double[][] columns = new double[FIELDS][size];
+        double[] box = { Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY, Double.POSITIVE_INFINITY,
+                Double.NEGATIVE_INFINITY, Double.NEGATIVE_INFINITY, Double.NEGATIVE_INFINITY };
+        for (int k = 0; k < size; ++k) {
+            Triangle triangle = array[k];
+            Point p0 = vertex(triangle, 0, single);
+            Vector n = single
+                    ? vertex(triangle, 1, true).subtract(p0).crossProduct(vertex(triangle, 2, true).subtract(p0))
+                            .normalize()
+                    : triangle.plane.getNormal();
+            Vector v1 = vertex(triangle, 2, single).subtract(p0);
+            Vector v2 = vertex(triangle, 1, single).subtract(p0);
+            columns[0][k] = p0.getX();
+            columns[1][k] = p0.getY();
+            columns[2][k] = p0.getZ();
+            columns[3][k] = n.getX();
+            columns[4][k] = n.getY();
+            columns[5][k] = n.getZ();
+            columns[6][k] = v1.getX();
+            columns[7][k] = v1.getY();
+            columns[8][k] = v1.getZ();
+            columns[9][k] = v2.getX();
+            columns[10][k] = v2.getY();
+            columns[11][k] = v2.getZ();
+            columns[12][k] = v1.dotProduct(v1);
+            columns[13][k] = v1.dotProduct(v2);
+            columns[14][k] = v2.dotProduct(v2);
+            columns[15][k] = columns[12][k] * columns[14][k] - columns[13][k] * columns[13][k];
+            for (Point vertex : triangle.vertices) {
+                double[] xyz = { vertex.getX(), vertex.getY(), vertex.getZ() };
+                for (int axis = 0; axis < 3; ++axis) {
+                    box[axis] = Math.min(box[axis], xyz[axis]);
+                    box[axis + 3] = Math.max(box[axis + 3], xyz[axis]);
+                }
+            }
+        }
+        if (offHeap) {
+            ByteBuffer buffer = ByteBuffer.allocateDirect(FIELDS * column(size, single) + ALIGNMENT - 1)
+                    .alignedSlice(ALIGNMENT).order(ByteOrder.nativeOrder());
+            put(buffer, 0, columns, single);
+            kernel = offHeapKernel(buffer, size, single);
+        } else if (single) {
+            float[][] floats = new float[FIELDS][size];
+            for (int field = 0; field < FIELDS; ++field)
+                for (int k = 0; k < size; ++k) floats[field][k] = (float) columns[field][k];
+            kernel = new HeapFloats(floats, size);
+        } else
+            kernel = new HeapDoubles(columns, size);
+
+        double margin = 0;
+        for (double bound : box) margin = Math.max(margin, Math.abs(bound));
+        margin *= PADDING;
+        minX = down(box[0] - margin);
+        minY = down(box[1] - margin);
+        minZ = down(box[2] - margin);
+        maxX = up(box[3] + margin);
+        maxY = up(box[4] + margin);
+        maxZ = up(box[5] + margin);
+    }
+
+    /**
+     * Constructs a batch from a compiled block used in place, e.g. a region of a
+     * memory-mapped file
+     * @param block     the compiled block
+     * @param emissions the emissions of the appearances of the triangles
+     * @param materials the materials of the appearances of the triangles
+     * @param mesh      the mesh of the batch
+     */
+    TriangleBatch(ByteBuffer block, Color[] emissions, Material[] materials, Geometries mesh) {
+        block = block.duplicate().order(ByteOrder.LITTLE_ENDIAN);
+        size = block.getInt(0);
+        single = block.getInt(4) != 0;
+        minX = block.getFloat(8);
+        minY = block.getFloat(12);
+        minZ = block.getFloat(16);
+        maxX = block.getFloat(20);
+        maxY = block.getFloat(24);
+        maxZ = block.getFloat(28);
+        int values = FIELDS * column(size, single);
+        kernel = offHeapKernel(block.slice(HEADER, values).order(ByteOrder.LITTLE_ENDIAN), size, single);
+        vertices = block.slice(HEADER + values, size * VERTICES).order(ByteOrder.LITTLE_ENDIAN);
+        appearances = block.slice(HEADER + values + size * VERTICES, size * Integer.BYTES)
+                .order(ByteOrder.LITTLE_ENDIAN);
+        triangles = new AtomicReferenceArray<>(size);
+        this.emissions = emissions;
+        this.materials = materials;
+        this.mesh = mesh;
+    }
+
+    /**
+     * Size of a column of values off the heap, rounded up to the alignment so
+     * that every column starts at a cache line
+     * @param  size   the amount of triangles
+     * @param  single whether the values are in single precision
+     * @return        the column size in bytes
+     */
+    private static int column(int size, boolean single) {
+        int bytes = Math.multiplyExact(size, single ? Float.BYTES : Double.BYTES);
+        return Math.addExact(bytes, ALIGNMENT - 1) & -ALIGNMENT;
+    }
+
+    /**
+     * Writes columns of values into a buffer, every column aligned as off the heap
+     * @param buffer  the buffer
+     * @param offset  the position of the first column in the buffer
+     * @param columns the values of the columns
+     * @param single  whether the values are written in single precision
+     */
+    private static void put(ByteBuffer buffer, int offset, double[][] columns, boolean single) {
+        int size = columns[0].length, column = column(size, single);
+        for (int field = 0; field < FIELDS; ++field)
+            for (int k = 0, position = offset + field * column; k < size; ++k)
+                if (single) buffer.putFloat(position + k * Float.BYTES, (float) columns[field][k]);
+                else buffer.putDouble(position + k * Double.BYTES, columns[field][k]);
+    }
+
+    /**
+     * Creates the kernel over columns of values off the heap
+     * @param  buffer the buffer of the columns, in the byte order of the values
+     * @param  size   the amount of triangles
+     * @param  single whether the values are in single precision
+     * @return        the kernel
+     */
+    private static Kernel offHeapKernel(ByteBuffer buffer, int size, boolean single) {
+        int column = column(size, single);
+        if (single) {
+            FloatBuffer[] columns = new FloatBuffer[FIELDS];
+            for (int field = 0; field < FIELDS; ++field)
+                columns[field] = buffer.slice(field * column, size * Float.BYTES).order(buffer.order())
+                        .asFloatBuffer();
+            return new OffHeapFloats(columns, size);
+        }
+        DoubleBuffer[] columns = new DoubleBuffer[FIELDS];
+        for (int field = 0; field < FIELDS; ++field)
+            columns[field] = buffer.slice(field * column, size * Double.BYTES).order(buffer.order())
+                    .asDoubleBuffer();
+        return new OffHeapDoubles(columns, size);
+    }
+
+    /**
+     * Compiles the batch into a block of bytes which may be used in place
+     * @param  appearance the index of the appearance (emission and material) of
+     *                    a triangle
+     * @return            the compiled block
+     */
+    ByteBuffer compile(ToIntFunction<Triangle> appearance) {
+        int values = FIELDS * column(size, single);
+        ByteBuffer block = ByteBuffer.allocate(HEADER + values + size * (VERTICES + Integer.BYTES))
+                .order(ByteOrder.LITTLE_ENDIAN);
+        block.putInt(size).putInt(single ? 1 : 0)
+                .putFloat(minX).putFloat(minY).putFloat(minZ).putFloat(maxX).putFloat(maxY).putFloat(maxZ);
+        double[][] columns = new double[FIELDS][size];
+        for (int field = 0; field < FIELDS; ++field)
+            for (int k = 0; k < size; ++k) columns[field][k] = kernel.value(field, k);
+        put(block, HEADER, columns, single);
+        block.position(HEADER + values);
+        for (int k = 0; k < size; ++k)
+            for (Point vertex : triangle(k).vertices)
+                block.putDouble(vertex.getX()).putDouble(vertex.getY()).putDouble(vertex.getZ());
+        for (int k = 0; k < size; ++k)
+            block.putInt(appearance.applyAsInt(triangle(k)));
+        return block.flip();
+    }
+
+    /**
+     * A triangle of the batch, created from the compiled block when first needed
+     * @param  k the triangle index
+     * @return   the triangle
+     */
+    private Triangle triangle(int k) {
+        Triangle triangle = triangles.get(k);
+        if (triangle != null) return triangle;
+        int i = k * VERTICES;
+        int appearance = appearances.getInt(k * Integer.BYTES);
+        triangle = new MeshTriangle(mesh, k,
+                new Point(vertices.getDouble(i), vertices.getDouble(i + 8), vertices.getDouble(i + 16)),
+                new Point(vertices.getDouble(i + 24), vertices.getDouble(i + 32), vertices.getDouble(i + 40)),
+                new Point(vertices.getDouble(i + 48), vertices.getDouble(i + 56), vertices.getDouble(i + 64)));
+        triangle.setEmission(emissions[appearance]).setMaterial(materials[appearance]);
+        // the first created triangle is kept, so that every hit of a triangle has the same geometry
+        return triangles.compareAndSet(k, null, triangle) ? triangle : triangles.get(k);
+    }
+
+    /**
+     * Performs an action for every triangle of the batch, in their order
+     * @param action the action
+     */
+    void forEachTriangle(Consumer<Triangle> action) {
+        for (int k = 0; k < size; ++k) action.accept(triangle(k));
+    }
+
+    /**
+     * Amount of triangles of the batch
+     * @return the amount of triangles
+     */
+    int size() {
+        return size;
+    }
+
+    /**
+     * Creates the batch of a list of geometries if all of them are triangles
+     * @param  geometries the geometries
+     * @param  single     whether the values of the triangles are stored in single
+     *                    precision
+     * @param  offHeap    whether the values of the triangles are stored off the
+     *                    heap
+     * @return            the batch, or null if the list is empty or holds other
+     *                    geometries
+     */
+    static TriangleBatch of(List<Intersectable> geometries, boolean single, boolean offHeap) {
+        if (geometries.isEmpty()) return null;
+        List<Triangle> triangles = new ArrayList<>(geometries.size());
+        for (Intersectable geometry : geometries) {
+            if (!(geometry instanceof Triangle triangle)) return null;
+            triangles.add(triangle);
+        }
+        return new TriangleBatch(triangles, single, offHeap);
+    }
+
+    /**
+     * A vertex of a triangle
+     * @param  triangle the triangle
+     * @param  index    the vertex index
+     * @param  single   whether the vertex is rounded to single precision
+     * @return          the vertex
+     */
+    private static Point vertex(Triangle triangle, int index, boolean single) {
+        Point vertex = triangle.vertices.get(index);
+        return single ? new Point((float) vertex.getX(), (float) vertex.getY(), (float) vertex.getZ()) : vertex;
+    }
+
+    /**
+     * Rounds a lower bound to a float not above it
+     * @param  bound the bound
+     * @return       the rounded bound
+     */
+    private static float down(double bound) {
+        float rounded = (float) bound;
+        return rounded > bound ? Math.nextDown(rounded) : rounded;
+    }
+
+    /**
+     * Rounds an upper bound to a float not below it
+     * @param  bound the bound
+     * @return       the rounded bound
+     */
+    private static float up(double bound) {
+        float rounded = (float) bound;
+        return rounded < bound ? Math.nextUp(rounded) : rounded;
+    }
+
+    /**
+     * Checks whether a ray passes beside the bounding box of the batch (slab test)
+     * @param  ox          X coordinate of the ray's head
+     * @param  oy          Y coordinate of the ray's head
+     * @param  oz          Z coordinate of the ray's head
+     * @param  dx          X coordinate of the ray's direction
+     * @param  dy          Y coordinate of the ray's direction
+     * @param  dz          Z coordinate of the ray's direction
+     * @param  maxDistance the maximum distance along the ray
+     * @return             true if the ray misses the box within the distance
+     */
+    private boolean misses(double ox, double oy, double oz, double dx, double dy, double dz, double maxDistance) {
+        double[] range = { 0, maxDistance };
+        return misses(ox, dx, minX, maxX, range) || misses(oy, dy, minY, maxY, range)
+                || misses(oz, dz, minZ, maxZ, range);
+    }
+
+    /**
+     * Narrows the range of a ray's distances inside a slab of the bounding box
+     * @param  o     the coordinate of the ray's head
+     * @param  d     the coordinate of the ray's direction
+     * @param  min   the minimal coordinate of the slab
+     * @param  max   the maximal coordinate of the slab
+     * @param  range the range of distances, narrowed in place
+     * @return       true if the range becomes empty
+     */
+    private static boolean misses(double o, double d, double min, double max, double[] range) {
+        if (d == 0) return o < min || o > max;
+        double t1 = (min - o) / d, t2 = (max - o) / d;
+        range[0] = Math.max(range[0], Math.min(t1, t2));
+        range[1] = Math.min(range[1], Math.max(t1, t2));
+        return range[0] > range[1];
+    }
+
+    /**
+     * Intersects a ray with the plane of a triangle, by the same computation as
+     * {@link Plane}
+     * @param  ox X coordinate of the ray's head
+     * @param  oy Y coordinate of the ray's head
+     * @param  oz Z coordinate of the ray's head
+     * @param  dx X coordinate of the ray's direction
+     * @param  dy Y coordinate of the ray's direction
+     * @param  dz Z coordinate of the ray's direction
+     * @param  qx X coordinate of the triangle's first vertex
+     * @param  qy Y coordinate of the triangle's first vertex
+     * @param  qz Z coordinate of the triangle's first vertex
+     * @param  nx X coordinate of the triangle's normal
+     * @param  ny Y coordinate of the triangle's normal
+     * @param  nz Z coordinate of the triangle's normal
+     * @return    the distance of the hit along the ray, 0 if the plane is missed
+     */
+    private static double plane(double ox, double oy, double oz, double dx, double dy, double dz,
+                                double qx, double qy, double qz, double nx, double ny, double nz) {
+        double ux = qx - ox, uy = qy - oy, uz = qz - oz;
+        if (isZero(ux) && isZero(uy) && isZero(uz))
+            return 0; // the ray starts at the plane's point
+        double nd = nx * dx + ny * dy + nz * dz;
+        if (isZero(nd))
+            return 0;
+        double t = alignZero((ux * nx + uy * ny + uz * nz) / nd);
+        return t > 0 ? t : 0;
+    }
+
+    /**
+     * Checks whether a point of a triangle's plane is inside the triangle, by the
+     * same computation as {@link Triangle}
+     * @param  vx          X coordinate of the point relative to the first vertex
+     * @param  vy          Y coordinate of the point relative to the first vertex
+     * @param  vz          Z coordinate of the point relative to the first vertex
+     * @param  ax          X coordinate of the first edge
+     * @param  ay          Y coordinate of the first edge
+     * @param  az          Z coordinate of the first edge
+     * @param  bx          X coordinate of the second edge
+     * @param  by          Y coordinate of the second edge
+     * @param  bz          Z coordinate of the second edge
+     * @param  aa          dot product of the first edge with itself
+     * @param  ab          dot product of the edges
+     * @param  bb          dot product of the second edge with itself
+     * @param  denominator the denominator of the barycentric coordinates
+     * @return             true if the point is inside the triangle
+     */
+    private static boolean inside(double vx, double vy, double vz, double ax, double ay, double az,
+                                  double bx, double by, double bz, double aa, double ab, double bb,
+                                  double denominator) {
+        if (isZero(vx) && isZero(vy) && isZero(vz))
+            return false; // the hit is the first vertex
+        double dot02 = ax * vx + ay * vy + az * vz;
+        double dot12 = bx * vx + by * vy + bz * vz;
+        double u = alignZero((bb * dot02 - ab * dot12) / denominator);
+        double v = alignZero((aa * dot12 - ab * dot02) / denominator);
+        return (u > 0) && (v > 0) && (u + v < 1);
+    }
+
+    /**
+     * Intersection kernel over the values of the triangles in one kind of storage.
+     * Every kernel scans the triangles by a loop of its own with the triangle's
+     * test written inside it, so that the loop and the loads from the storage are
+     * compiled together
+     */
+    private abstract static class Kernel {
+        /** Amount of triangles */
+        final int size;
+
+        /**
+         * Constructs a kernel
+         * @param size the amount of triangles
+         */
+        Kernel(int size) { this.size = size; }
+
+        /**
+         * A stored value of a triangle
+         * @param  field the value's column
+         * @param  k     the triangle index
+         * @return       the value
+         */
+        abstract double value(int field, int k);
+
+        /**
+         * Finds the first triangle hit by a ray, starting from a triangle index
+         * @param  k   the index of the first triangle to intersect
+         * @param  ox  X coordinate of the ray's head
+         * @param  oy  Y coordinate of the ray's head
+         * @param  oz  Z coordinate of the ray's head
+         * @param  dx  X coordinate of the ray's direction
+         * @param  dy  Y coordinate of the ray's direction
+         * @param  dz  Z coordinate of the ray's direction
+         * @param  hit receives the distance of the hit along the ray
+         * @return     the index of the hit triangle, or -1 if no triangle is hit
+         */
+        abstract int next(int k, double ox, double oy, double oz, double dx, double dy, double dz, double[] hit);
+    }
+
+    /** Kernel over values in double precision on the heap */
+    private static final class HeapDoubles extends Kernel {
+        /** The columns of the values */
+        private final double[][] columns;
+        /** The first vertices */
+        private final double[]   px, py, pz;
+        /** The normals */
+        private final double[]   nx, ny, nz;
+        /** The first edges */
+        private final double[]   ax, ay, az;
+        /** The second edges */
+        private final double[]   bx, by, bz;
+        /** The dot products of the edges and the denominators */
+        private final double[]   aa, ab, bb, denominator;
+
+        /**
+         * Constructs the kernel over columns of values
+         * @param columns the columns
+         * @param size    the amount of triangles
+         */
+        HeapDoubles(double[][] columns, int size) {
+            super(size);
+            this.columns = columns;
+            px = columns[0]; py = columns[1]; pz = columns[2];
+            nx = columns[3]; ny = columns[4]; nz = columns[5];
+            ax = columns[6]; ay = columns[7]; az = columns[8];
+            bx = columns[9]; by = columns[10]; bz = columns[11];
+            aa = columns[12]; ab = columns[13]; bb = columns[14]; denominator = columns[15];
+        }
+
+        @Override
+        double value(int field, int k) { return columns[field][k]; }
+
+        @Override
+        int next(int k, double ox, double oy, double oz, double dx, double dy, double dz, double[] hit) {
+            for (; k < size; ++k) {
+                double qx = px[k], qy = py[k], qz = pz[k];
+                double t = plane(ox, oy, oz, dx, dy, dz, qx, qy, qz, nx[k], ny[k], nz[k]);
+                if (t > 0 && inside(ox + dx * t - qx, oy + dy * t - qy, oz + dz * t - qz,
+                        ax[k], ay[k], az[k], bx[k], by[k], bz[k],
+                        aa[k], ab[k], bb[k], denominator[k])) {
+                    hit[0] = t;
+                    return k;
+                }
+            }
+            return -1;
+        }
+    }
+
+    /** Kernel over values in single precision on the heap */
+    private static final class HeapFloats extends Kernel {
+        /** The columns of the values */
+        private final float[][] columns;
+        /** The first vertices */
+        private final float[]   px, py, pz;
+        /** The normals */
+        private final float[]   nx, ny, nz;
+        /** The first edges */
+        private final float[]   ax, ay, az;
+        /** The second edges */
+        private final float[]   bx, by, bz;
+        /** The dot products of the edges and the denominators */
+        private final float[]   aa, ab, bb, denominator;
+
+        /**
+         * Constructs the kernel over columns of values
+         * @param columns the columns
+         * @param size    the amount of triangles
+         */
+        HeapFloats(float[][] columns, int size) {
+            super(size);
+            this.columns = columns;
+            px = columns[0]; py = columns[1]; pz = columns[2];
+            nx = columns[3]; ny = columns[4]; nz = columns[5];
+            ax = columns[6]; ay = columns[7]; az = columns[8];
+            bx = columns[9]; by = columns[10]; bz = columns[11];
+            aa = columns[12]; ab = columns[13]; bb = columns[14]; denominator = columns[15];
+        }
+
+        @Override
+        double value(int field, int k) { return columns[field][k]; }
+
+        @Override
+        int next(int k, double ox, double oy, double oz, double dx, double dy, double dz, double[] hit) {
+            for (; k < size; ++k) {
+                double qx = px[k], qy = py[k], qz = pz[k];
+                double t = plane(ox, oy, oz, dx, dy, dz, qx, qy, qz, nx[k], ny[k], nz[k]);
+                if (t > 0 && inside(ox + dx * t - qx, oy + dy * t - qy, oz + dz * t - qz,
+                        ax[k], ay[k], az[k], bx[k], by[k], bz[k],
+                        aa[k], ab[k], bb[k], denominator[k])) {
+                    hit[0] = t;
+                    return k;
+                }
+            }
+            return -1;
+        }
+    }
+
+    /** Kernel over values in double precision off the heap */
+    private static final class OffHeapDoubles extends Kernel {
+        /** The columns of the values */
+        private final DoubleBuffer[] columns;
+        /** The first vertices */
+        private final DoubleBuffer   px, py, pz;
+        /** The normals */
+        private final DoubleBuffer   nx, ny, nz;
+        /** The first edges */
+        private final DoubleBuffer   ax, ay, az;
+        /** The second edges */
+        private final DoubleBuffer   bx, by, bz;
+        /** The dot products of the edges and the denominators */
+        private final DoubleBuffer   aa, ab, bb, denominator;
+
+        /**
+         * Constructs the kernel over columns of values
+         * @param columns the columns
+         * @param size    the amount of triangles
+         */
+        OffHeapDoubles(DoubleBuffer[] columns, int size) {
+            super(size);
+            this.columns = columns;
+            px = columns[0]; py = columns[1]; pz = columns[2];
+            nx = columns[3]; ny = columns[4]; nz = columns[5];
+            ax = columns[6]; ay = columns[7]; az = columns[8];
+            bx = columns[9]; by = columns[10]; bz = columns[11];
+            aa = columns[12]; ab = columns[13]; bb = columns[14]; denominator = columns[15];
+        }
+
+        @Override
+        double value(int field, int k) { return columns[field].get(k); }
+
+        @Override
+        int next(int k, double ox, double oy, double oz, double dx, double dy, double dz, double[] hit) {
+            for (; k < size; ++k) {
+                double qx = px.get(k), qy = py.get(k), qz = pz.get(k);
+                double t = plane(ox, oy, oz, dx, dy, dz, qx, qy, qz, nx.get(k), ny.get(k), nz.get(k));
+                if (t > 0 && inside(ox + dx * t - qx, oy + dy * t - qy, oz + dz * t - qz,
+                        ax.get(k), ay.get(k), az.get(k), bx.get(k), by.get(k), bz.get(k),
+                        aa.get(k), ab.get(k), bb.get(k), denominator.get(k))) {
+                    hit[0] = t;
+                    return k;
+                }
+            }
+            return -1;
+        }
+    }
+
+    /** Kernel over values in single precision off the heap */
+    private static final class OffHeapFloats extends Kernel {
+        /** The columns of the values */
+        private final FloatBuffer[] columns;
+        /** The first vertices */
+        private final FloatBuffer   px, py, pz;
+        /** The normals */
+        private final FloatBuffer   nx, ny, nz;
+        /** The first edges */
+        private final FloatBuffer   ax, ay, az;
+        /** The second edges */
+        private final FloatBuffer   bx, by, bz;
+        /** The dot products of the edges and the denominators */
+        private final FloatBuffer   aa, ab, bb, denominator;
+
+        /**
+         * Constructs the kernel over columns of values
+         * @param columns the columns
+         * @param size    the amount of triangles
+         */
+        OffHeapFloats(FloatBuffer[] columns, int size) {
+            super(size);
+            this.columns = columns;
+            px = columns[0]; py = columns[1]; pz = columns[2];
+            nx = columns[3]; ny = columns[4]; nz = columns[5];
+            ax = columns[6]; ay = columns[7]; az = columns[8];
+            bx = columns[9]; by = columns[10]; bz = columns[11];
+            aa = columns[12]; ab = columns[13]; bb = columns[14]; denominator = columns[15];
+        }
+
+        @Override
+        double value(int field, int k) { return columns[field].get(k); }
+
+        @Override
+        int next(int k, double ox, double oy, double oz, double dx, double dy, double dz, double[] hit) {
+            for (; k < size; ++k) {
+                double qx = px.get(k), qy = py.get(k), qz = pz.get(k);
+                double t = plane(ox, oy, oz, dx, dy, dz, qx, qy, qz, nx.get(k), ny.get(k), nz.get(k));
+                if (t > 0 && inside(ox + dx * t - qx, oy + dy * t - qy, oz + dz * t - qz,
+                        ax.get(k), ay.get(k), az.get(k), bx.get(k), by.get(k), bz.get(k),
+                        aa.get(k), ab.get(k), bb.get(k), denominator.get(k))) {
+                    hit[0] = t;
+                    return k;
+                }
+            }
+            return -1;
+        }
+    }
+
+    /**
+     * Finds the nearest intersection of a ray with the triangles
+     * @param  ray         the ray
+     * @param  maxDistance the maximum distance of the intersection
+     * @return             the nearest intersection (the first of equally near
+     *                     intersections), or null if no triangle is hit
+     */
+    Intersection closestIntersection(Ray ray, double maxDistance) {
+        Point head = ray.getPoint(0);
+        Vector direction = ray.getDirection();
+        double ox = head.getX(), oy = head.getY(), oz = head.getZ();
+        double dx = direction.getX(), dy = direction.getY(), dz = direction.getZ();
+        if (misses(ox, oy, oz, dx, dy, dz, maxDistance)) return null;
+        int nearest = -1;
+        double nearestT = 0, nearestDistance = Double.POSITIVE_INFINITY;
+        double[] hit = new double[1];
+        for (int k = kernel.next(0, ox, oy, oz, dx, dy, dz, hit); k >= 0;
+             k = kernel.next(k + 1, ox, oy, oz, dx, dy, dz, hit)) {
+            double t = hit[0];
+            if (alignZero(t - maxDistance) >= 0) continue;
+            // squared distance of the hit point from the head, as it is compared for single triangles
+            double ex = ox - (ox + dx * t), ey = oy - (oy + dy * t), ez = oz - (oz + dz * t);
+            double distance = ex * ex + ey * ey + ez * ez;
+            if (distance < nearestDistance) {
+                nearestDistance = distance;
+                nearestT = t;
+                nearest = k;
+            }
+        }
+        return nearest < 0 ? null : new Intersection(triangle(nearest), ray.getPoint(nearestT));
+    }
+
+    /**
+     * Finds all the intersections of a ray with the triangles, in the order of
+     * the triangles
+     * @param  ray         the ray
+     * @param  maxDistance the maximum distance of the intersections
+     * @return             the intersections, or null if no triangle is hit
+     */
+    List<Intersection> intersections(Ray ray, double maxDistance) {
+        Point head = ray.getPoint(0);
+        Vector direction = ray.getDirection();
+        double ox = head.getX(), oy = head.getY(), oz = head.getZ();
+        double dx = direction.getX(), dy = direction.getY(), dz = direction.getZ();
+        if (misses(ox, oy, oz, dx, dy, dz, maxDistance)) return null;
+        List<Intersection> intersections = null;
+        double[] hit = new double[1];
+        for (int k = kernel.next(0, ox, oy, oz, dx, dy, dz, hit); k >= 0;
+             k = kernel.next(k + 1, ox, oy, oz, dx, dy, dz, hit)) {
+            if (alignZero(hit[0] - maxDistance) >= 0) continue;
+            if (intersections == null) intersections = new ArrayList<>();
+            intersections.add(new Intersection(triangle(k), ray.getPoint(hit[0])));
+        }
+        return intersections;
+    }
+
+    /**
+     * Intersects the rays of a packet with the triangles, recording the nearest
+     * hits in the packet's lanes. The lanes which pass through the bounding box
+     * are scanned one after another by the scalar kernel's loop
+     * @param packet the ray packet
+     */
+    void intersect(RayPacket packet) {
+        double[] hit = new double[1];
+        for (int lane = 0; lane < packet.size; ++lane) {
+            double ox = packet.ox[lane], oy = packet.oy[lane], oz = packet.oz[lane];
+            double dx = packet.dx[lane], dy = packet.dy[lane], dz = packet.dz[lane];
+            if (misses(ox, oy, oz, dx, dy, dz, packet.t[lane])) continue;
+            for (int k = kernel.next(0, ox, oy, oz, dx, dy, dz, hit); k >= 0;
+                 k = kernel.next(k + 1, ox, oy, oz, dx, dy, dz, hit))
+                packet.hit(lane, hit[0], triangle(k));
+        }
+    }
+
+    /**
+     * Passes the rays of a packet through the triangles up to the lanes' maximum
+     * distances, recording the hit triangles in the packet's lanes in the order
+     * of the triangles. The lanes which pass through the bounding box are scanned
+     * one after another by the scalar kernel's loop, until they are blocked
+     * @param packet the ray packet
+     */
+    void pass(RayPacket packet) {
+        double[] hit = new double[1];
+        for (int lane = 0; lane < packet.size; ++lane) {
+            if (packet.blocked(lane)) continue;
+            double ox = packet.ox[lane], oy = packet.oy[lane], oz = packet.oz[lane];
+            double dx = packet.dx[lane], dy = packet.dy[lane], dz = packet.dz[lane];
+            double maxDistance = packet.t[lane];
+            if (misses(ox, oy, oz, dx, dy, dz, maxDistance)) continue;
+            for (int k = kernel.next(0, ox, oy, oz, dx, dy, dz, hit); k >= 0 && !packet.blocked(lane);
+                 k = kernel.next(k + 1, ox, oy, oz, dx, dy, dz, hit))
+                if (alignZero(hit[0] - maxDistance) < 0) packet.pass(lane, triangle(k));
+        }
+    }
+}
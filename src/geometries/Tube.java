@@ -13,6 +13,8 @@ import java.util.List;
  * @author Devorah Wajs and Guila Czerniewicz
  */
 public class Tube extends RadialGeometry{
+    /** Serialization version */
+    private static final long serialVersionUID = 1L;
 
 
     /**
@@ -7,6 +7,8 @@ import primitives.Color;
  * @author Devorah Wajs and Guila Czerniewicz
  */
 public class AmbientLight extends Light {
+    /** Serialization version */
+    private static final long serialVersionUID = 1L;
 
 
     /**
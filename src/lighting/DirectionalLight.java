@@ -10,6 +10,9 @@ import primitives.Vector;
  * @author Devorah Wajs and Guila Czerniewicz
  */
 public class DirectionalLight extends Light implements LightSource{
+    /** Serialization version */
+    private static final long serialVersionUID = 1L;
+
     /**
      * The direction of the light in 3D space.
      */
@@ -2,13 +2,17 @@ package lighting;
 
 import primitives.Color;
 
+import java.io.Serializable;
+
 /**
  * The Light class  is an abstract class that serves as a base for different types of light sources.
  * The class contains the intensity of the light, which is represented by a Color object.
  *
  * @author Devorah Wajs and Guila Czerniewicz
  */
-abstract class Light {
+abstract class Light implements Serializable {
+    /** Serialization version */
+    private static final long serialVersionUID = 1L;
 
     /**
      * The intensity of the ambient light.
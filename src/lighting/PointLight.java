@@ -8,6 +8,8 @@ import primitives.*;
  * @author Devorah Wajs and Guila Czerniewicz
  */
 public class PointLight extends Light  implements LightSource{
+    /** Serialization version */
+    private static final long serialVersionUID = 1L;
 
     /**
      * The position of the light in 3D space.
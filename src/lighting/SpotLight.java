@@ -11,6 +11,9 @@ import static primitives.Util.alignZero;
  * @author Devorah Wajs and Guila Czerniewicz
  */
 public class SpotLight extends PointLight{
+    /** Serialization version */
+    private static final long serialVersionUID = 1L;
+
     /**
      * The direction of the light.
      */
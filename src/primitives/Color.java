@@ -1,5 +1,7 @@
 package primitives;
 
+import java.io.Serializable;
+
 /**
  * Wrapper class for java.jwt.Color The constructors operate with any
  * non-negative RGB values. The colors are maintained without upper limit of
@@ -7,7 +9,10 @@ package primitives;
  * light's colors
  * @author Dan Zilberstein
  */
-public class Color {
+public class Color implements Serializable {
+    /** Serialization version */
+    private static final long serialVersionUID = 1L;
+
     /**
      * The internal fields maintain RGB components as double numbers from 0 to
      * whatever...
@@ -63,6 +68,13 @@ public class Color {
         return new java.awt.Color(ir > 255 ? 255 : ir, ig > 255 ? 255 : ig, ib > 255 ? 255 : ib);
     }
 
+    /**
+     * Color components getter - returns the RGB components without any clamping
+     * (e.g. for high dynamic range output)
+     * @return triad of Red/Green/Blue components
+     */
+    public Double3 getRgb() { return rgb; }
+
     /**
      * Operation of adding this and one or more other colors (by component)
      * @param  colors one or more other colors to add
@@ -1,5 +1,7 @@
 package primitives;
 
+import java.io.Serializable;
+
 
 /**
  * The Material class represents the material properties of a 3D object.
@@ -8,7 +10,9 @@ package primitives;
  *
  * @author Devorah Wajs and Guila Czerniewicz
  */
-public class Material {
+public class Material implements Serializable {
+    /** Serialization version */
+    private static final long serialVersionUID = 1L;
 
     /**
      * The diffuse coefficient of the material: 1 1 1
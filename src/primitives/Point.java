@@ -1,12 +1,16 @@
 package primitives;
 
+import java.io.Serializable;
+
 /**
  * Class Point is the basic class representing a point of geometry
  * 3-Dimensional coordinate system.
  *
  * @author Devorah Wajs and Guila Czerniewicz
  */
-public class Point {
+public class Point implements Serializable {
+    /** Serialization version */
+    private static final long serialVersionUID = 1L;
 
     /**
      * Represents a constant representing the zero point.
@@ -52,6 +56,24 @@ public class Point {
         return "" + xyz;
     }
 
+    /**
+     * X coordinate getter
+     * @return the X coordinate
+     */
+    public double getX() { return xyz.d1(); }
+
+    /**
+     * Y coordinate getter
+     * @return the Y coordinate
+     */
+    public double getY() { return xyz.d2(); }
+
+    /**
+     * Z coordinate getter
+     * @return the Z coordinate
+     */
+    public double getZ() { return xyz.d3(); }
+
     /**
      * subtracts two points into a new vector from the second
      * point (right handle side) to the first one
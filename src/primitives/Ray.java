@@ -3,8 +3,11 @@ import geometries.Intersectable.Intersection;
 
 import targetAreas.TargetArea;
 
-import java.util.LinkedList;
+import java.io.Serializable;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.random.RandomGenerator;
 
 /**
  * Class Ray is the basic class representing a ray of geometry
@@ -13,7 +16,10 @@ import java.util.List;
  * @author Devorah Wajs and Guila Czerniewicz
  */
 
-public class Ray {
+public class Ray implements Serializable {
+    /** Serialization version */
+    private static final long serialVersionUID = 1L;
+
     /**
      * Starting point - head of the ray
      */
@@ -140,10 +146,20 @@ public class Ray {
      * @return a list of rays representing the beam
      */
     public List<Ray> createBeam(TargetArea targetArea) {
-        List<Ray> beamRays = new LinkedList<>();
-        List<Point> beamPoints = targetArea.generatePoints();
-        for (Point point : beamPoints)
-            beamRays.add(new Ray(head, point.subtract(head)));
+        return createBeam(targetArea, ThreadLocalRandom.current());
+    }
+
+    /**
+     * Generates a list of rays ("beam") according to a given target area, drawing
+     * the random sample positions from a given generator
+     *
+     * @param targetArea the area the beam is directed through
+     * @param random the random number generator
+     * @return a list of rays representing the beam
+     */
+    public List<Ray> createBeam(TargetArea targetArea, RandomGenerator random) {
+        List<Ray> beamRays = new ArrayList<>();
+        targetArea.forEachPoint(random, (x, y, z) -> beamRays.add(new Ray(head, new Point(x, y, z).subtract(head))));
         return beamRays;
     }
 
@@ -155,11 +171,25 @@ public class Ray {
      * @return a list of rays representing the beam
      */
     public List<Ray> createBeamReverse(TargetArea targetArea, double distance) {
-        List<Ray> beamRays = new LinkedList<>();
-        List<Point> beamPoints = targetArea.generatePoints();
+        return createBeamReverse(targetArea, distance, ThreadLocalRandom.current());
+    }
+
+    /**
+     * Generates a list of rays ("beam") according to a given target area, drawing
+     * the random sample positions from a given generator
+     *
+     * @param targetArea the area the beam is directed from
+     * @param distance the distance of the point the beam is directed to
+     * @param random the random number generator
+     * @return a list of rays representing the beam
+     */
+    public List<Ray> createBeamReverse(TargetArea targetArea, double distance, RandomGenerator random) {
+        List<Ray> beamRays = new ArrayList<>();
         Point focalPoint = this.getPoint(distance);
-        for (Point point : beamPoints)
+        targetArea.forEachPoint(random, (x, y, z) -> {
+            Point point = new Point(x, y, z);
             beamRays.add(new Ray(point, focalPoint.subtract(point)));
+        });
         return beamRays;
     }
 }
@@ -1,5 +1,7 @@
 package primitives;
 
+import java.util.concurrent.ThreadLocalRandom;
+
 /** Util class is used for some internal utilities, e.g. controlling accuracy
  * @author Dan */
 public final class Util {
@@ -50,7 +52,7 @@ public final class Util {
      * @param  max value (excluded)
      * @return     the random value */
     public static double random(double min, double max) {
-        return Math.random() * (max - min) + min;
+        return ThreadLocalRandom.current().nextDouble() * (max - min) + min;
     }
 
 }
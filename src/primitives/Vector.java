@@ -6,6 +6,9 @@ package primitives;
  * @author Devorah Wajs and Guila Czerniewicz
  */
 public class Vector extends Point{
+    /** Serialization version */
+    private static final long serialVersionUID = 1L;
+
     // Defines a constant vector representing the X-axis direction (positive X, no Y or Z movement)
     public static Vector AXIS_X = new Vector(1, 0, 0);
 
@@ -1,5 +1,7 @@
 package renderer;
 
+import java.io.Serializable;
+
 /**
  * Configuration class for Adaptive Super Sampling (ASS) in a ray tracing renderer.
  * <p>
@@ -7,7 +9,9 @@ package renderer;
  * pixel areas where color differences exceed a certain threshold, helping reduce aliasing
  * while minimizing redundant computations.
  */
-public class AdaptiveSuperSamplingConfig {
+public class AdaptiveSuperSamplingConfig implements Serializable {
+    /** Serialization version */
+    private static final long serialVersionUID = 1L;
 
     /**
      * Indicates whether Adaptive Super Sampling is enabled.
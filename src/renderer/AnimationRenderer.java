@@ -0,0 +1,147 @@
+package renderer;
+
+import primitives.Point;
+import primitives.Vector;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.IntFunction;
+import java.util.function.ObjIntConsumer;
+
+/**
+ * Renderer of animation frames along a camera path.<br/>
+ * All the frames' cameras share the same ray tracer and scene, which are only
+ * read during the rendering. Several frames are rendered concurrently, each of
+ * them by several threads working on its tiles: the tile-level threads keep a
+ * frame's last tiles from idling the cores, and the frame-level concurrency keeps
+ * all the cores busy between frames. The rendered frames are passed to the output
+ * in the order of the frames.
+ * @author Devorah Wajs and Guila Czerniewicz
+ */
+public class AnimationRenderer {
+    /** Default amount of rendering threads for each frame */
+    private static final int          THREADS_PER_FRAME = 4;
+
+    /** Amount of frames in the animation */
+    private final int                 frames;
+    /** Camera path - builds the camera of each frame by its index */
+    private final IntFunction<Camera> cameraPath;
+    /** Amount of frames rendered concurrently */
+    private int                       framesInParallel;
+    /** Amount of rendering threads for each frame */
+    private int                       threadsPerFrame;
+
+    /**
+     * Constructs an animation renderer. By default, the available processors are
+     * divided between the concurrent frames, with up to 4 threads per frame
+     * @param frames     amount of frames in the animation
+     * @param cameraPath builds the camera of each frame by the frame index, it is
+     *                   called by one thread at a time
+     */
+    public AnimationRenderer(int frames, IntFunction<Camera> cameraPath) {
+        if (frames < 1) throw new IllegalArgumentException("ERROR: Amount of frames must be positive");
+        if (cameraPath == null) throw new IllegalArgumentException("ERROR: Camera path cannot be null");
+        this.frames = frames;
+        this.cameraPath = cameraPath;
+        int cores = Runtime.getRuntime().availableProcessors();
+        threadsPerFrame = Math.min(cores, THREADS_PER_FRAME);
+        framesInParallel = Math.max(1, cores / threadsPerFrame);
+    }
+
+    /**
+     * Camera path orbiting around a point: every frame the camera is placed at the
+     * initial location and direction and then orbits around the centre by the
+     * frame's part of a whole circle. The random samples of every frame are drawn
+     * by the frame index
+     * @param  builder  the camera builder (with all the other camera settings)
+     * @param  location initial camera location
+     * @param  target   initial target point of the camera
+     * @param  centre   the point to orbit around
+     * @param  axis     the rotation axis (also used as the approximate up vector)
+     * @param  frames   amount of frames in the whole circle
+     * @return          the camera path
+     */
+    public static IntFunction<Camera> orbit(Camera.Builder builder, Point location, Point target,
+                                            Point centre, Vector axis, int frames) {
+        return frame -> {
+            synchronized (builder) {
+                return builder.setLocation(location)
+                        .setDirection(target, axis)
+                        .orbitAround(centre, 360.0 / frames * frame, axis)
+                        .setFrame(frame)
+                        .build();
+            }
+        };
+    }
+
+    /**
+     * Sets the balance between frame-level and tile-level parallelism
+     * @param  framesInParallel amount of frames rendered concurrently
+     * @param  threadsPerFrame  amount of rendering threads for each frame
+     * @return                  the animation renderer itself
+     */
+    public AnimationRenderer setParallelism(int framesInParallel, int threadsPerFrame) {
+        if (framesInParallel < 1 || threadsPerFrame < 1)
+            throw new IllegalArgumentException("ERROR: Parallelism parameters must be positive");
+        this.framesInParallel = framesInParallel;
+        this.threadsPerFrame = threadsPerFrame;
+        return this;
+    }
+
+    /**
+     * Renders all the frames of the animation
+     * @param output receives each rendered frame's camera with the frame index (in
+     *               the order of the frames), e.g. for writing the frame's image
+     * @throws IllegalStateException if the rendering or the output of a frame has
+     *                               failed (an error is thrown as is)
+     */
+    public void render(ObjIntConsumer<Camera> output) {
+        // limits the amount of rendered frames waiting for a preceding slower frame
+        Semaphore ahead = new Semaphore(2 * framesInParallel);
+        Map<Integer, Camera> done = new HashMap<>();
+        int[] next = { 0 };
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        ExecutorService pool = Executors.newFixedThreadPool(framesInParallel);
+        try {
+            for (int frame = 0; frame < frames && failure.get() == null; ++frame) {
+                ahead.acquire();
+                int index = frame;
+                pool.execute(() -> {
+                    try {
+                        Camera camera;
+                        synchronized (cameraPath) {
+                            camera = cameraPath.apply(index);
+                        }
+                        camera.setThreadsCount(threadsPerFrame);
+                        camera.renderImage();
+                        synchronized (done) {
+                            done.put(index, camera);
+                            for (Camera ready; (ready = done.remove(next[0])) != null; ++next[0]) {
+                                output.accept(ready, next[0]);
+                                ahead.release();
+                            }
+                        }
+                    } catch (Throwable e) {
+                        // errors as well, otherwise the frames loop would wait forever
+                        failure.compareAndSet(null, e);
+                        ahead.release(frames); // let the frames loop stop
+                    }
+                });
+            }
+            pool.shutdown();
+            while (!pool.awaitTermination(1, TimeUnit.MINUTES)) { /* wait for the frames */ }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            pool.shutdownNow();
+        }
+        if (failure.get() instanceof Error error) throw error;
+        if (failure.get() != null)
+            throw new IllegalStateException("ERROR: Rendering of a frame has failed", failure.get());
+    }
+}
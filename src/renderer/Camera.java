@@ -1,13 +1,21 @@
 package renderer;
 
+import geometries.RayPacket;
 import primitives.*;
 import scene.Scene;
 import targetAreas.QuadrilateralTargetArea;
 import targetAreas.TargetArea;
 
+import java.io.Serializable;
+import java.nio.file.Path;
+import java.util.BitSet;
+import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
 import java.util.MissingResourceException;
+import java.util.function.Consumer;
+import java.util.random.RandomGenerator;
 import java.util.stream.IntStream;
 
 import static primitives.Util.isZero;
@@ -17,7 +25,10 @@ import static primitives.Util.isZero;
  * generate rays through pixels for rendering.
  * @author Devorah Wajs and Guila Czerniewicz
  */
-public class Camera implements Cloneable {
+public class Camera implements Cloneable, Serializable {
+    /** Serialization version */
+    private static final long serialVersionUID = 1L;
+
     // Camera properties
     private Point location = Point.ZERO; // Camera position
     private Vector vTo = new Vector(0,0,-1); // Camera direction
@@ -27,11 +38,18 @@ public class Camera implements Cloneable {
     private double height = 0.0; // Height of the view plane
     private double distance = 0.0; // Distance from the camera to the view plane
 
-    private ImageWriter imageWriter;
+    private transient ImageWriter imageWriter;
     private RayTracerBase rayTracer;
     private int nX = 1;
     private int nY = 1;
 
+    /**
+     * View plane basis of the image resolution, computed by {@link Builder#build()}:
+     * the offset of the center of pixel (0, 0) from the camera location, and the
+     * steps to the next pixel in a row and to the next row (as coordinates)
+     */
+    private double[] viewPlane;
+
     /** Amount of threads to use fore rendering image by the camera */
     private int threadsCount = 0;
     /**
@@ -51,7 +69,69 @@ public class Camera implements Cloneable {
      * <li>debug print of progress percentage in Console window/tab</li>
      * </ul>
      */
-    private PixelManager pixelManager;
+    private transient PixelManager pixelManager;
+
+    /**
+     * Rectangular region of pixels in the image
+     * @param x0 first pixel column of the region
+     * @param y0 first pixel row of the region
+     * @param x1 pixel column following the last column of the region
+     * @param y1 pixel row following the last row of the region
+     */
+    private record Region(int x0, int y0, int x1, int y1) implements Serializable {
+    }
+
+    /**
+     * Crop window rendered by {@link #renderImage()}<br>
+     * if it is null - the whole image is rendered
+     */
+    private Region cropWindow = null;
+
+    /** The region of pixels currently being rendered */
+    private transient Region region;
+
+    /**
+     * Checkpoint file path for saving the rendering progress<br>
+     * if it is null - there is no checkpointing
+     */
+    private String checkpointPath = null;
+    /** Checkpoint saving interval in seconds */
+    private double checkpointInterval = 60;
+    /** Checkpoint of the rendering progress */
+    private transient Checkpoint checkpoint = null;
+    /**
+     * Tiles restored from a checkpoint, which are skipped by the next rendering<br>
+     * if it is null - all the tiles are rendered
+     */
+    private transient BitSet resumedTiles = null;
+
+    /** Whether the unclamped colors are kept for high dynamic range output */
+    private boolean hdrOutput = false;
+
+    /**
+     * Whether the rendered image is denoised, guided by auxiliary buffers of the
+     * first hits captured while rendering
+     */
+    private boolean denoising = false;
+    /** Whether the auxiliary buffers (AOVs) of the image are captured for output */
+    private boolean aovOutput = false;
+    /**
+     * Auxiliary buffers (G-buffer) of the first hits of the pixels' rays<br>
+     * if it is null - the first hits are not captured
+     */
+    private transient GBuffer gBuffer = null;
+
+    /**
+     * Path of a memory mapped frame buffer file holding the image<br>
+     * if it is null - the image is held in the heap
+     */
+    private String frameBufferPath = null;
+
+    /**
+     * Index of the rendered animation frame, hashed into the random numbers of
+     * the samples so that every frame gets its own noise
+     */
+    private int frame = 0;
 
     /**
      * Number of super sampling rays for antialiasing algorithm.
@@ -85,6 +165,23 @@ public class Camera implements Cloneable {
      */
     private AdaptiveSuperSamplingConfig assConfig = AdaptiveSuperSamplingConfig.DISABLED;
 
+    /**
+     * Variance-driven adaptive sampling configuration.
+     */
+    private VarianceSamplingConfig varianceConfig = VarianceSamplingConfig.DISABLED;
+
+    /**
+     * Amount of combined antialiasing and depth of field samples of a pixel<br>
+     * if it is zero - the antialiasing and depth of field beams are nested
+     */
+    private int combinedSamples = 0;
+
+    /**
+     * Whether the primary rays of neighbouring pixels and their shadow rays are
+     * traced together in ray packets, when every pixel is sampled by a single ray
+     */
+    private boolean packetTracing = false;
+
     /**
      * Sets the adaptive super sampling configuration for the camera.
      * This method allows you to specify the depth and threshold for adaptive super sampling.
@@ -101,7 +198,32 @@ public class Camera implements Cloneable {
 
     /**
      * Casts a ray through the pixel at (j, i) with adaptive super sampling.
-     * This method recursively samples sub-pixels and averages their colors if they are similar.
+     * This method samples the pixel's corners and recursively subdivides the pixel
+     * while the colors of the corners are not similar.
+     *
+     * @param j the column index of the pixel
+     * @param i the row index of the pixel
+     * @param sample the first hit data of the pixel's rays, or null
+     * @param random the random generator of the pixel
+     * @param corners colors of the samples on the pixels' borders shared with the
+     *                neighbouring pixels, or null
+     * @return the averaged color of the sampled sub-pixels
+     */
+    private Color castRayAdaptive(int j, int i, GBuffer.Sample sample, RandomGenerator random,
+                                  Map<Long, Color> corners) {
+        return castRayAdaptive(j, i, 0, 0, 1, 1, 0, sample, random, corners,
+                sampleCorner(j, i, 0, 0, sample, random, corners),
+                sampleCorner(j, i, 1, 0, sample, random, corners),
+                sampleCorner(j, i, 0, 1, sample, random, corners),
+                sampleCorner(j, i, 1, 1, sample, random, corners));
+    }
+
+    /**
+     * Samples a sub-pixel with adaptive super sampling given the colors of its
+     * corners, and averages them if they are similar. Otherwise, the sub-pixel is
+     * divided into four quadrants, which reuse the corners' colors - only the 5 new
+     * corners of the quadrants (the middles of the edges and the center) are
+     * traced. At the maximum depth, the centers of the quadrants are sampled.
      *
      * @param j the column index of the pixel
      * @param i the row index of the pixel
@@ -110,38 +232,86 @@ public class Camera implements Cloneable {
      * @param subW the width of the sub-pixel
      * @param subH the height of the sub-pixel
      * @param depth the current depth in the recursive sampling process
+     * @param sample the first hit data of the pixel's rays, or null
+     * @param random the random generator of the pixel
+     * @param corners colors of the samples on the pixels' borders shared with the
+     *                neighbouring pixels, or null
+     * @param cTL the color of the top-left corner
+     * @param cTR the color of the top-right corner
+     * @param cBL the color of the bottom-left corner
+     * @param cBR the color of the bottom-right corner
      * @return the averaged color of the sampled sub-pixels
      */
     private Color castRayAdaptive(int j, int i,
                                   double subX, double subY,
                                   double subW, double subH,
-                                  int depth) {
-
-        /* --- Stop condition --- */
-        if (depth >= assConfig.maxDepth) {
-            return sampleSubPixel(j, i,
-                    subX + subW * 0.5,
-                    subY + subH * 0.5);
-        }
-
-        Color cTL = sampleSubPixel(j, i, subX,           subY          );
-        Color cTR = sampleSubPixel(j, i, subX + subW,    subY          );
-        Color cBL = sampleSubPixel(j, i, subX,           subY + subH   );
-        Color cBR = sampleSubPixel(j, i, subX + subW,    subY + subH   );
+                                  int depth, GBuffer.Sample sample, RandomGenerator random,
+                                  Map<Long, Color> corners,
+                                  Color cTL, Color cTR, Color cBL, Color cBR) {
 
         if (colorsAreSimilar(cTL, cTR, cBL, cBR))
             return cTL.add(cTR).add(cBL).add(cBR).scale(0.25);
 
         double halfW = subW * 0.5, halfH = subH * 0.5;
+        double midX = subX + halfW, midY = subY + halfH;
+
+        /* --- Stop condition: the quadrants are sampled at their centers --- */
+        if (depth + 1 >= assConfig.maxDepth) {
+            Color s1 = sampleSubPixel(j, i, subX + halfW * 0.5, subY + halfH * 0.5, sample, random);
+            Color s2 = sampleSubPixel(j, i, midX + halfW * 0.5, subY + halfH * 0.5, sample, random);
+            Color s3 = sampleSubPixel(j, i, subX + halfW * 0.5, midY + halfH * 0.5, sample, random);
+            Color s4 = sampleSubPixel(j, i, midX + halfW * 0.5, midY + halfH * 0.5, sample, random);
+            return s1.add(s2).add(s3).add(s4).scale(0.25);
+        }
+
+        Color cT = sampleCorner(j, i, midX,         subY,         sample, random, corners);
+        Color cL = sampleCorner(j, i, subX,         midY,         sample, random, corners);
+        Color cC = sampleCorner(j, i, midX,         midY,         sample, random, corners);
+        Color cR = sampleCorner(j, i, subX + subW,  midY,         sample, random, corners);
+        Color cB = sampleCorner(j, i, midX,         subY + subH,  sample, random, corners);
 
-        Color s1 = castRayAdaptive(j, i, subX,           subY,           halfW, halfH, depth + 1);
-        Color s2 = castRayAdaptive(j, i, subX + halfW,   subY,           halfW, halfH, depth + 1);
-        Color s3 = castRayAdaptive(j, i, subX,           subY + halfH,   halfW, halfH, depth + 1);
-        Color s4 = castRayAdaptive(j, i, subX + halfW,   subY + halfH,   halfW, halfH, depth + 1);
+        Color s1 = castRayAdaptive(j, i, subX, subY, halfW, halfH, depth + 1, sample, random, corners, cTL, cT, cL, cC);
+        Color s2 = castRayAdaptive(j, i, midX, subY, halfW, halfH, depth + 1, sample, random, corners, cT, cTR, cC, cR);
+        Color s3 = castRayAdaptive(j, i, subX, midY, halfW, halfH, depth + 1, sample, random, corners, cL, cC, cBL, cB);
+        Color s4 = castRayAdaptive(j, i, midX, midY, halfW, halfH, depth + 1, sample, random, corners, cC, cR, cB, cBR);
 
         return s1.add(s2).add(s3).add(s4).scale(0.25);
     }
 
+    /**
+     * Samples a corner of an adaptive super sampling sub-pixel. A corner on the
+     * border of the pixel is shared with the neighbouring pixel, so its color is
+     * kept by its coordinates in the lattice of the sub-pixels' corners of the whole
+     * image, and it is traced only by the first pixel which samples it (whose
+     * auxiliary buffers get its first hit)
+     *
+     * @param j the column index of the pixel
+     * @param i the row index of the pixel
+     * @param subX the x-coordinate of the corner within the pixel
+     * @param subY the y-coordinate of the corner within the pixel
+     * @param sample the first hit data of the pixel's rays, or null
+     * @param random the random generator of the pixel
+     * @param corners colors of the samples on the pixels' borders, or null
+     * @return the color sampled at the corner
+     */
+    private Color sampleCorner(int j, int i, double subX, double subY,
+                               GBuffer.Sample sample, RandomGenerator random,
+                                  Map<Long, Color> corners) {
+        if (corners == null || subX != 0 && subX != 1 && subY != 0 && subY != 1)
+            return sampleSubPixel(j, i, subX, subY, sample, random);
+        // the corners of the sub-pixels are on a lattice of 2^maxDepth cells per pixel
+        int resolution = 1 << assConfig.maxDepth;
+        long x = (long) j * resolution + Math.round(subX * resolution);
+        long y = (long) i * resolution + Math.round(subY * resolution);
+        Long key = y << 32 | x;
+        Color color = corners.get(key);
+        if (color == null) {
+            color = sampleSubPixel(j, i, subX, subY, sample, random);
+            corners.put(key, color);
+        }
+        return color;
+    }
+
     /**
      * Samples a sub-pixel at the specified coordinates (j, i) with sub-pixel offsets.
      * This method calculates the exact position in 3D space and traces a ray to get the color.
@@ -150,28 +320,175 @@ public class Camera implements Cloneable {
      * @param i the row index of the pixel
      * @param subPixelX the x-coordinate offset within the pixel
      * @param subPixelY the y-coordinate offset within the pixel
+     * @param sample the first hit data of the pixel's rays, or null
+     * @param random the random generator of the pixel
      * @return the color sampled at the specified sub-pixel location
      */
-    private Color sampleSubPixel(int j, int i, double subPixelX, double subPixelY) {
-        double Ry = height / nY;
-        double Rx = width / nX;
+    private Color sampleSubPixel(int j, int i, double subPixelX, double subPixelY,
+                                 GBuffer.Sample sample, RandomGenerator random) {
+        return traceWithDOF(constructSubPixelRay(j, i, subPixelX, subPixelY), sample, random);
+    }
 
-        double Yi = -(i - (nY - 1) / 2d) * Ry;
-        double Xj = (j - (nX - 1) / 2d) * Rx;
+    /**
+     * Constructs a ray from the camera through a point of the pixel at (j, i).
+     *
+     * @param j the column index of the pixel
+     * @param i the row index of the pixel
+     * @param subPixelX the x-coordinate of the point within the pixel (between 0 and 1)
+     * @param subPixelY the y-coordinate of the point within the pixel (between 0 and 1)
+     * @return the ray through the point
+     */
+    private Ray constructSubPixelRay(int j, int i, double subPixelX, double subPixelY) {
+        return new Ray(location, viewPlaneOffset(viewPlane, j + subPixelX - 0.5, i + subPixelY - 0.5));
+    }
 
-        double offsetX = (subPixelX - 0.5) * Rx;
-        double offsetY = (subPixelY - 0.5) * Ry;
+    /**
+     * Computes the view plane basis of a resolution: the offset of the center of
+     * pixel (0, 0) from the camera location, and the steps to the next pixel in a
+     * row and to the next row
+     *
+     * @param nX the number of pixels in the X direction
+     * @param nY the number of pixels in the Y direction
+     * @return the coordinates of the offset and of the steps
+     */
+    private double[] viewPlaneBasis(int nX, int nY) {
+        double rX = width / nX;
+        double rY = height / nY;
+        double x0 = -(nX - 1) / 2d * rX;
+        double y0 = (nY - 1) / 2d * rY;
+        return new double[] {
+                distance * vTo.getX() + x0 * vRight.getX() + y0 * vUp.getX(),
+                distance * vTo.getY() + x0 * vRight.getY() + y0 * vUp.getY(),
+                distance * vTo.getZ() + x0 * vRight.getZ() + y0 * vUp.getZ(),
+                rX * vRight.getX(), rX * vRight.getY(), rX * vRight.getZ(),
+                -rY * vUp.getX(), -rY * vUp.getY(), -rY * vUp.getZ() };
+    }
 
-        Point pIJ = location.add(vTo.scale(distance));
-        if (!isZero(Xj + offsetX)) pIJ = pIJ.add(vRight.scale(Xj + offsetX));
-        if (!isZero(Yi + offsetY)) pIJ = pIJ.add(vUp.scale(Yi + offsetY));
+    /**
+     * Computes the offset of a point of the view plane from the camera location by
+     * a view plane basis - a few fused multiply-adds per coordinate
+     *
+     * @param basis the view plane basis
+     * @param x the column coordinate of the point (the center of pixel j is at j)
+     * @param y the row coordinate of the point (the center of pixel i is at i)
+     * @return the offset vector
+     */
+    private static Vector viewPlaneOffset(double[] basis, double x, double y) {
+        return new Vector(Math.fma(y, basis[6], Math.fma(x, basis[3], basis[0])),
+                Math.fma(y, basis[7], Math.fma(x, basis[4], basis[1])),
+                Math.fma(y, basis[8], Math.fma(x, basis[5], basis[2])));
+    }
 
-        Ray ray = new Ray(location, pIJ.subtract(location).normalize());
-        return traceWithDOF(ray);
+    /**
+     * Gives the view plane basis of a resolution - the precomputed basis for the
+     * image resolution
+     *
+     * @param nX the number of pixels in the X direction
+     * @param nY the number of pixels in the Y direction
+     * @return the view plane basis
+     */
+    private double[] viewPlane(int nX, int nY) {
+        return viewPlane != null && nX == this.nX && nY == this.nY ? viewPlane : viewPlaneBasis(nX, nY);
+    }
 
+    /**
+     * Casts rays through the pixel at (j, i) with variance-driven adaptive sampling.
+     * Batches of rays through random points of the pixel (from random points of the
+     * aperture when depth of field is enabled) are traced while the confidence
+     * interval of the pixel's mean color is wider than the tolerance, up to the
+     * maximum amount of samples.
+     *
+     * @param j the column index of the pixel
+     * @param i the row index of the pixel
+     * @param sample the first hit data of the pixel's rays, or null
+     * @param random the random generator of the pixel
+     * @return the mean color of the samples
+     */
+    private Color castRayVariance(int j, int i, GBuffer.Sample sample, SampleRandom random) {
+        boolean dof = apertureWindow != null && numOfRaysDOF > 1;
+        PixelStatistics statistics = new PixelStatistics();
+        do {
+            int batchEnd = Math.min(statistics.count() + varianceConfig.batchSize, varianceConfig.maxSamples);
+            while (statistics.count() < batchEnd) {
+                random.sample(statistics.count());
+                Ray ray = constructSubPixelRay(j, i, random.nextDouble(), random.nextDouble());
+                if (dof) ray = throughLens(ray, random.nextDouble(), random.nextDouble());
+                statistics.add(rayTracer.traceRay(ray, sample));
+            }
+        } while (statistics.count() < varianceConfig.maxSamples && statistics.error() > varianceConfig.tolerance);
+        return statistics.mean();
     }
 
 
+    /**
+     * Casts rays through the pixel at (j, i) with combined antialiasing and depth
+     * of field samples: every ray passes through its own point of the pixel and
+     * its own point of the aperture, so that N rays cover the four dimensions
+     * instead of the nested product of the two beams. The points of the pixel and
+     * the points of the aperture are each stratified by a jittered grid, and the
+     * cells of the two grids are paired by random permutations, so that the pairs
+     * don't repeat the same correlation in every pixel.
+     *
+     * @param j the column index of the pixel
+     * @param i the row index of the pixel
+     * @param sample the first hit data of the pixel's rays, or null
+     * @param random the random generator of the pixel
+     * @return the mean color of the samples
+     */
+    private Color castRayCombined(int j, int i, GBuffer.Sample sample, SampleRandom random) {
+        boolean dof = apertureWindow != null && numOfRaysDOF > 1;
+        int columns = (int) Math.ceil(Math.sqrt(combinedSamples));
+        int rows = (combinedSamples + columns - 1) / columns;
+        // the cells are chosen in the first sample, the positions in the cells
+        // in the sample of every ray
+        int[] pixelCells = shuffledCells(columns * rows, random);
+        int[] lensCells = dof ? shuffledCells(columns * rows, random) : null;
+        Color color = Color.BLACK;
+        for (int k = 0; k < combinedSamples; ++k) {
+            random.sample(k + 1);
+            Ray ray = constructSubPixelRay(j, i,
+                    (pixelCells[k] % columns + random.nextDouble()) / columns,
+                    (pixelCells[k] / columns + random.nextDouble()) / rows);
+            if (dof)
+                ray = throughLens(ray,
+                        (lensCells[k] % columns + random.nextDouble()) / columns,
+                        (lensCells[k] / columns + random.nextDouble()) / rows);
+            color = color.add(rayTracer.traceRay(ray, sample));
+        }
+        return color.reduce(combinedSamples);
+    }
+
+    /**
+     * Random permutation of the cells of a grid (Fisher-Yates shuffle)
+     *
+     * @param cells the amount of cells
+     * @param random the random generator
+     * @return the cell indices in random order
+     */
+    private static int[] shuffledCells(int cells, RandomGenerator random) {
+        int[] order = new int[cells];
+        for (int k = 0; k < cells; ++k) {
+            int other = random.nextInt(k + 1);
+            order[k] = order[other];
+            order[other] = k;
+        }
+        return order;
+    }
+
+    /**
+     * Constructs the ray from a point of the aperture through the point of the
+     * focal plane on a ray from the camera.
+     *
+     * @param ray the ray from the camera
+     * @param u the first coordinate of the aperture point (between 0 and 1)
+     * @param v the second coordinate of the aperture point (between 0 and 1)
+     * @return the ray from the aperture point
+     */
+    private Ray throughLens(Ray ray, double u, double v) {
+        Point aperturePoint = apertureWindow.samplePoint(u, v);
+        return new Ray(aperturePoint, ray.getPoint(distanceFocalPlane).subtract(aperturePoint));
+    }
+
     /**
      * Checks if the four colors are similar based on the average color and the configured threshold.
      *
@@ -211,55 +528,202 @@ public class Camera implements Cloneable {
      * it creates a beam of rays through the aperture window.
      *
      * @param ray the ray to trace
+     * @param sample the first hit data of the pixel's rays, or null
+     * @param random the random generator of the pixel
      * @return the color resulting from tracing the ray
      */
-    private Color traceWithDOF(Ray ray) {
+    private Color traceWithDOF(Ray ray, GBuffer.Sample sample, RandomGenerator random) {
         if (apertureWindow != null && numOfRaysDOF > 1) {
-            List<Ray> dofRays = ray.createBeamReverse(apertureWindow, distanceFocalPlane);
-            Color c = Color.BLACK;
-            for (Ray r : dofRays)  c = c.add(rayTracer.traceRay(r));
-            return c.reduce(dofRays.size());
+            Color[] c = { Color.BLACK };
+            int[] count = { 0 };
+            forEachLensRay(ray, random, r -> {
+                c[0] = c[0].add(rayTracer.traceRay(r, sample));
+                ++count[0];
+            });
+            return c[0].reduce(count[0]);
         }
-        return rayTracer.traceRay(ray);
+        return rayTracer.traceRay(ray, sample);
+    }
+
+    /**
+     * Thin lens ray generator: emits the rays from the aperture points (generated
+     * by the aperture window's sampling pattern and its precomputed sample tables)
+     * through the point of the focal plane on a ray from the camera, one by one as
+     * the points are generated, without a list of points or of rays.
+     *
+     * @param ray the ray from the camera
+     * @param random the random generator of the pixel
+     * @param action receives the rays
+     */
+    private void forEachLensRay(Ray ray, RandomGenerator random, Consumer<Ray> action) {
+        Point focalPoint = ray.getPoint(distanceFocalPlane);
+        double fx = focalPoint.getX(), fy = focalPoint.getY(), fz = focalPoint.getZ();
+        apertureWindow.forEachPoint(random,
+                (x, y, z) -> action.accept(new Ray(new Point(x, y, z), new Vector(fx - x, fy - y, fz - z))));
     }
 
 
     /**
      * Casts a ray through the pixel at (j, i) and writes the pixel color to the image.
+     *
+     * @param j the column index of the pixel
+     * @param i the row index of the pixel
+     * @param corners colors of the adaptive super sampling samples on the pixels'
+     *                borders shared by the neighbouring pixels, or null
+     */
+    private void castRay(int j, int i, Map<Long, Color> corners) {
+        GBuffer.Sample sample = gBuffer == null ? null : new GBuffer.Sample();
+        imageWriter.writePixel(j, i, calcPixelColor(j, i, sample, pixelRandom(j, i), corners));
+        if (sample != null) gBuffer.write(j, i, sample);
+        pixelManager.pixelDone();
+    }
+
+    /**
+     * Calculates the color of the pixel at (j, i) by casting rays through it.
      * This method handles depth of field and antialiasing if configured.
      *
      * @param j the column index of the pixel
      * @param i the row index of the pixel
+     * @param sample the first hit data of the pixel's rays, or null
+     * @param random the random generator of the pixel
+     * @param corners colors of the adaptive super sampling samples on the pixels'
+     *                borders shared by the neighbouring pixels, or null
+     * @return the color of the pixel
      */
-    private void castRay(int j, int i) {
+    private Color calcPixelColor(int j, int i, GBuffer.Sample sample, SampleRandom random,
+                                 Map<Long, Color> corners) {
 
-        Color pixelColor;
+        /* ---------- 0.  Variance-driven sampling ---------- */
+        if (varianceConfig.enabled)
+            return castRayVariance(j, i, sample, random);
 
         /* ---------- 1.  Adaptive Super Sampling ---------- */
         if (assConfig.enabled) {
-            pixelColor = castRayAdaptive(
-                    j, i,
-                    0, 0,
-                    1, 1,
-                    0
-            );
+            return castRayAdaptive(j, i, sample, random, corners);
         }
 
-        else if (numOfRaysAA > 1) {
-            List<Ray> aaBeam = constructBeam(nX, nY, j, i);
-            pixelColor = Color.BLACK;
+        /* ---------- 2.  Combined antialiasing and depth of field samples ---------- */
+        if (combinedSamples > 0)
+            return castRayCombined(j, i, sample, random);
+
+        if (numOfRaysAA > 1) {
+            // the positions of the rays are drawn in the first sample, the aperture
+            // points of every ray in a sample of its own
+            List<Ray> aaBeam = constructBeam(nX, nY, j, i, random);
+            Color pixelColor = Color.BLACK;
+            int index = 0;
             for (Ray ray : aaBeam)
-                pixelColor = pixelColor.add(traceWithDOF(ray));
-            pixelColor = pixelColor.reduce(aaBeam.size());
+                pixelColor = pixelColor.add(traceWithDOF(ray, sample, random.sample(++index)));
+            return pixelColor.reduce(aaBeam.size());
         }
 
-        else {
-            Ray ray = constructRay(nX, nY, j, i);
-            pixelColor = traceWithDOF(ray);
+        Ray ray = constructRay(nX, nY, j, i);
+        return traceWithDOF(ray, sample, random);
+    }
+
+    /**
+     * Creates the random generator of the pixel at (j, i), hashing the frame, the
+     * pixel, the sample and the dimension of every random number, so that every
+     * pixel draws the same random samples in every rendering of the frame
+     * regardless of the threads and the order of the pixels. Every rendering
+     * thread gets its own generators, without contention on a shared seed
+     *
+     * @param j the column index of the pixel
+     * @param i the row index of the pixel
+     * @return the random generator
+     */
+    private SampleRandom pixelRandom(int j, int i) {
+        return new SampleRandom(frame, (long) i * nX + j);
+    }
+
+    /**
+     * Calculates the colors of all the pixels of a tile without writing them into
+     * the image (used by remote rendering workers)
+     * @param tile the tile to render
+     * @return packed RGB values of the tile's pixels (row by row)
+     */
+    int[] renderTilePixels(PixelManager.Tile tile) {
+        int width = tile.x1() - tile.x0();
+        int[] rgb = new int[width * (tile.y1() - tile.y0())];
+        if (tracesPackets()) {
+            RayPacket packet = new RayPacket();
+            Color[] colors = new Color[RayPacket.WIDTH];
+            for (int i = tile.y0(); i < tile.y1(); ++i)
+                for (int j0 = tile.x0(); j0 < tile.x1(); j0 += RayPacket.WIDTH) {
+                    int count = tracePacket(j0, tile.x1(), i, packet, null, colors);
+                    for (int k = 0; k < count; ++k)
+                        rgb[(i - tile.y0()) * width + j0 + k - tile.x0()] = colors[k].getColor().getRGB();
+                }
+            return rgb;
         }
+        Map<Long, Color> corners = cornersCache();
+        for (int i = tile.y0(); i < tile.y1(); ++i)
+            for (int j = tile.x0(); j < tile.x1(); ++j)
+                rgb[(i - tile.y0()) * width + j - tile.x0()] = calcPixelColor(j, i, null, pixelRandom(j, i), corners)
+                        .getColor().getRGB();
+        return rgb;
+    }
 
-        imageWriter.writePixel(j, i, pixelColor);
-        pixelManager.pixelDone();
+    /**
+     * Whether the primary rays are traced in packets: packet tracing is enabled,
+     * and every pixel is sampled by a single ray through its center
+     * @return true if the primary rays are traced in packets
+     */
+    private boolean tracesPackets() {
+        return packetTracing && numOfRaysAA == 1 && (apertureWindow == null || numOfRaysDOF == 1)
+                && !assConfig.enabled && !varianceConfig.enabled && combinedSamples == 0;
+    }
+
+    /**
+     * Traces the primary rays of up to a packet's width of neighbouring pixels in
+     * a row together
+     * @param j0 the column of the first pixel
+     * @param x1 the column following the last pixel of the row's part
+     * @param i the row of the pixels
+     * @param packet the ray packet to fill
+     * @param samples receives the first hit data of the pixels, or null
+     * @param colors receives the colors of the pixels
+     * @return the amount of traced pixels
+     */
+    private int tracePacket(int j0, int x1, int i, RayPacket packet, GBuffer.Sample[] samples, Color[] colors) {
+        packet.clear();
+        for (int j = j0; j < Math.min(x1, j0 + RayPacket.WIDTH); ++j) {
+            packet.add(constructRay(nX, nY, j, i));
+            if (samples != null) samples[j - j0] = new GBuffer.Sample();
+        }
+        rayTracer.tracePacket(packet, samples, colors);
+        return packet.size();
+    }
+
+    /**
+     * Prepares a rendering of the image (or of its crop window) where the tiles
+     * are rendered elsewhere and written back by {@link #writeTile}. Only the
+     * packed RGB values of the pixels are written back, so that high dynamic range
+     * output and the auxiliary buffers (for denoising or AOV output) are not
+     * supported
+     * @return the pixel manager holding the tiles to be rendered
+     * @throws IllegalArgumentException if the camera has high dynamic range
+     *                                  output, denoising or AOV output
+     */
+    PixelManager startExternalRendering() {
+        if (hdrOutput)
+            throw new IllegalArgumentException("ERROR: High dynamic range output cannot be rendered externally");
+        if (denoising || aovOutput)
+            throw new IllegalArgumentException("ERROR: Denoising and AOV output cannot be rendered externally");
+        region = cropWindow == null ? new Region(0, 0, nX, nY) : cropWindow;
+        pixelManager = new PixelManager(nX, nY, region.y0(), region.x0(), region.y1(), region.x1(), null, printInterval);
+        return pixelManager;
+    }
+
+    /**
+     * Writes the pixels of a tile rendered elsewhere into the image
+     * @param tile the rendered tile
+     * @param rgb  packed RGB values of the tile's pixels (row by row)
+     */
+    void writeTile(PixelManager.Tile tile, int[] rgb) {
+        int width = tile.x1() - tile.x0(), height = tile.y1() - tile.y0();
+        imageWriter.writePixels(tile.x0(), tile.y0(), width, height, rgb);
+        pixelManager.pixelsDone(width * height);
     }
 
 
@@ -293,6 +757,114 @@ public class Camera implements Cloneable {
         return this ;
     }
 
+    /**
+     * Writes the rendered image to a file with fast compression - for previews
+     * (the file is larger)
+     * @param nameFile the name of the image file
+     * @return this
+     */
+    public Camera writePreviewImage(String nameFile) {
+        imageWriter.writeToImage(nameFile, PngEncoder.Compression.FAST);
+        return this;
+    }
+
+    /**
+     * Writes the unclamped rendered colors to a Portable Float Map file, for
+     * re-exposure and post-processing without rendering again. The camera must be
+     * built with high dynamic range output
+     * @param nameFile the name of the pfm file
+     * @return this
+     * @throws IllegalStateException if high dynamic range output is not enabled
+     */
+    public Camera writeToPfm(String nameFile) {
+        imageWriter.writeToPfm(nameFile);
+        return this;
+    }
+
+    /**
+     * Writes the unclamped rendered colors to an uncompressed OpenEXR file, for
+     * re-exposure and post-processing without rendering again. The camera must be
+     * built with high dynamic range output
+     * @param nameFile the name of the exr file
+     * @return this
+     * @throws IllegalStateException if high dynamic range output is not enabled
+     */
+    public Camera writeToExr(String nameFile) {
+        imageWriter.writeToExr(nameFile);
+        return this;
+    }
+
+    /**
+     * Writes the auxiliary buffers of the rendered image (AOVs) to an uncompressed
+     * OpenEXR file with the channels Z (depth of the first hit, infinity where
+     * nothing is hit), N.X, N.Y, N.Z (normal facing the camera), albedo.R,
+     * albedo.G, albedo.B, id (index of the hit geometry in the scene, -1 where
+     * nothing is hit) and samples (amount of rays of the pixel). The camera must be
+     * built with AOV output or with denoising
+     * @param nameFile the name of the exr file
+     * @return this
+     * @throws IllegalStateException if the auxiliary buffers are not captured
+     */
+    public Camera writeAovs(String nameFile) {
+        if (gBuffer == null) throw new IllegalStateException("ERROR: AOV output is not enabled");
+        imageWriter.writeToExr(nameFile, gBuffer.exrChannels());
+        return this;
+    }
+
+    /**
+     * Writes a heatmap image of the amount of rays traced for every pixel - from
+     * blue (few rays) through green and yellow to red (the maximum amount of
+     * samples of variance-driven sampling, or the largest amount of rays of a
+     * pixel). The camera must be built with variance-driven sampling, AOV output
+     * or denoising
+     * @param nameFile the name of the png file
+     * @return this
+     * @throws IllegalStateException if the amounts of rays are not captured
+     */
+    public Camera writeSampleHeatmap(String nameFile) {
+        if (gBuffer == null) throw new IllegalStateException("ERROR: The amounts of rays are not captured");
+        int max = varianceConfig.enabled ? varianceConfig.maxSamples : IntStream.of(gBuffer.samples).max().orElse(1);
+        int[] rgb = new int[nX * nY];
+        for (int p = 0; p < rgb.length; ++p)
+            rgb[p] = heatColor(Math.min(1, gBuffer.samples[p] / (double) Math.max(1, max)));
+        ImageWriter heatmap = new ImageWriter(nX, nY);
+        heatmap.writePixels(0, 0, nX, nY, rgb);
+        heatmap.writeToImage(nameFile);
+        return this;
+    }
+
+    /**
+     * Color of a value in the heatmap's color ramp: blue, cyan, green, yellow, red
+     * @param value the value between 0 and 1
+     * @return packed RGB value of the color
+     */
+    private static int heatColor(double value) {
+        final int[][] ramp = { { 0, 0, 255 }, { 0, 255, 255 }, { 0, 255, 0 }, { 255, 255, 0 }, { 255, 0, 0 } };
+        double position = value * (ramp.length - 1);
+        int index = Math.min(ramp.length - 2, (int) position);
+        double t = position - index;
+        int rgb = 0;
+        for (int c = 0; c < 3; ++c)
+            rgb = rgb << 8 | (int) Math.round(ramp[index][c] + t * (ramp[index + 1][c] - ramp[index][c]));
+        return rgb;
+    }
+
+    /**
+     * The image writer holding the image rendered by the camera
+     * @return the image writer
+     */
+    ImageWriter getImageWriter() {
+        return imageWriter;
+    }
+
+    /**
+     * The auxiliary buffers of the image rendered by the camera
+     * @return the auxiliary buffers, or null if they are not captured
+     */
+    GBuffer getGBuffer() {
+        return gBuffer;
+    }
+
 
     /**
      * Constructs a ray through a specific pixel on the view plane.
@@ -304,33 +876,8 @@ public class Camera implements Cloneable {
      * @return the constructed {@link Ray}.
      */
     public Ray constructRay(int nX, int nY, int j, int i) {
-        // Calculate the center point of the view plane
-        Point pC = location.add(vTo.scale(distance));
-
-        // Calculate the size of each pixel in the view plane
-        double rX =(width / (double)nX);
-        double rY = (height / (double)nY);
-
-        // Calculate the offset of the current pixel from the center
-        double xJ = (j - (nX - 1) / 2d) * rX;
-        double yI = -(i - (nY - 1) / 2d) * rY;
-
-        // Initialize the intersection point of the ray with the view plane
-        Point pIJ = pC;
-
-        // Adjust the intersection point based on the pixel offset
-        if (!isZero(xJ)) {
-            pIJ = pIJ.add(vRight.scale(xJ));
-        }
-        if (!isZero(yI)) {
-            pIJ = pIJ.add(vUp.scale(yI));
-        }
-
-        // Calculate the direction vector of the ray from the camera location to the pixel
-        Vector vIJ = pIJ.subtract(location);
-
-        // Return the constructed ray
-        return new Ray(location, vIJ);
+        // the direction from the camera location to the pixel's center on the view plane
+        return new Ray(location, viewPlaneOffset(viewPlane(nX, nY), j, i));
     }
 
     /**
@@ -343,21 +890,28 @@ public class Camera implements Cloneable {
      * @return a list of rays representing the beam through the specified pixel
      */
     public List<Ray> constructBeam(int nX, int nY, int j, int i) {
-        Point pC = location.add(vTo.scale(distance));
-        double rY = height / nY;
-        double rX = width / nX;
-        double yI = -(i - 0.5 * (nY - 1)) * rY;
-        double xJ = (j - 0.5 * (nX - 1)) * rX;
-        Point pIJ = pC;
-        if (!Util.isZero(xJ))
-            pIJ = pIJ.add(vRight.scale(xJ));
-        if (!Util.isZero(yI))
-            pIJ = pIJ.add(vUp.scale(yI));
-        Ray mainRay = new Ray(location, pIJ.subtract(location));
+        return constructBeam(nX, nY, j, i, pixelRandom(j, i));
+    }
+
+    /**
+     * Constructs a beam of rays through a specific pixel on the view plane,
+     * drawing the random positions of the rays from a given generator.
+     *
+     * @param nX the number of pixels along the X-axis (image width)
+     * @param nY the number of pixels along the Y-axis (image height)
+     * @param j the column index of the pixel (X-axis)
+     * @param i the row index of the pixel (Y-axis)
+     * @param random the random generator of the pixel
+     * @return a list of rays representing the beam through the specified pixel
+     */
+    private List<Ray> constructBeam(int nX, int nY, int j, int i, RandomGenerator random) {
+        Vector offset = viewPlaneOffset(viewPlane(nX, nY), j, i);
+        Ray mainRay = new Ray(location, offset);
         if (numOfRaysAA == 1)
             return List.of(mainRay);
-        QuadrilateralTargetArea targetArea = new QuadrilateralTargetArea(rY, rX, vRight, vTo, pIJ, numOfRaysAA, samplingPattern);
-        return mainRay.createBeam(targetArea);
+        QuadrilateralTargetArea targetArea = new QuadrilateralTargetArea(height / nY, width / nX, vRight, vTo,
+                location.add(offset), numOfRaysAA, samplingPattern);
+        return mainRay.createBeam(targetArea, random);
     }
 
 
@@ -385,14 +939,58 @@ public class Camera implements Cloneable {
     }
 
 
+    /**
+     * Creates the cache of the adaptive super sampling samples on the pixels'
+     * borders for rendering a tile - the neighbouring pixels of the tile share
+     * them instead of tracing them twice
+     * @return an empty cache, or null if adaptive super sampling is disabled
+     */
+    private Map<Long, Color> cornersCache() {
+        return assConfig.enabled ? new HashMap<>() : null;
+    }
+
+    /**
+     * Renders all the pixels of a tile and saves the finished tile in the
+     * checkpoint (if there is one)
+     * @param tile the tile to render
+     */
+    private void renderTile(PixelManager.Tile tile) {
+        if (tracesPackets()) renderTilePackets(tile);
+        else {
+            Map<Long, Color> corners = cornersCache();
+            for (int i = tile.y0(); i < tile.y1(); ++i)
+                for (int j = tile.x0(); j < tile.x1(); ++j)
+                    castRay(j, i, corners);
+        }
+        if (checkpoint != null) checkpoint.tileDone(tile, imageWriter);
+    }
+
+    /**
+     * Renders the pixels of a tile by packets of the primary rays of neighbouring
+     * pixels in the tile's rows, and writes them to the image
+     * @param tile the tile to render
+     */
+    private void renderTilePackets(PixelManager.Tile tile) {
+        RayPacket packet = new RayPacket();
+        Color[] colors = new Color[RayPacket.WIDTH];
+        GBuffer.Sample[] samples = gBuffer == null ? null : new GBuffer.Sample[RayPacket.WIDTH];
+        for (int i = tile.y0(); i < tile.y1(); ++i)
+            for (int j0 = tile.x0(); j0 < tile.x1(); j0 += RayPacket.WIDTH) {
+                int count = tracePacket(j0, tile.x1(), i, packet, samples, colors);
+                for (int k = 0; k < count; ++k) {
+                    imageWriter.writePixel(j0 + k, i, colors[k]);
+                    if (samples != null) gBuffer.write(j0 + k, i, samples[k]);
+                }
+                pixelManager.pixelsDone(count);
+            }
+    }
+
     /**
      * Render image using multi-threading by parallel streaming
      * @return the camera object itself
      */
     private Camera renderImageStream() {
-        IntStream.range(0, nY).parallel()
-                .forEach(i -> IntStream.range(0, nX).parallel()
-                        .forEach(j -> castRay(j, i)));
+        pixelManager.tiles().parallelStream().forEach(this::renderTile);
         return this;
     }
     /**
@@ -400,9 +998,9 @@ public class Camera implements Cloneable {
      * @return the camera object itself
      */
     private Camera renderImageNoThreads() {
-        for (int i = 0; i < nY; ++i)
-            for (int j = 0; j < nX; ++j)
-                castRay(j, i);
+        PixelManager.Tile tile;
+        while ((tile = pixelManager.nextTile()) != null)
+            renderTile(tile);
         return this;
     }
     /**
@@ -411,11 +1009,11 @@ public class Camera implements Cloneable {
      */
     private Camera renderImageRawThreads() {
         var threads = new LinkedList<Thread>();
-        while (threadsCount-- > 0)
+        for (int count = threadsCount; count > 0; --count)
             threads.add(new Thread(() -> {
-                PixelManager.Pixel pixel;
-                while ((pixel = pixelManager.nextPixel()) != null)
-                    castRay(pixel.col(), pixel.row());
+                PixelManager.Tile tile;
+                while ((tile = pixelManager.nextTile()) != null)
+                    renderTile(tile);
             }));
         for (var thread : threads) thread.start();
         try {
@@ -424,17 +1022,99 @@ public class Camera implements Cloneable {
         return this;
     }
 
+    /**
+     * Sets the amount of threads rendering this camera's image, e.g. when several
+     * cameras are rendered concurrently
+     * @param threads amount of threads (1 or more)
+     */
+    void setThreadsCount(int threads) {
+        threadsCount = threads;
+    }
+
     /** This function renders image's pixel color map from the scene
-     * included in the ray tracer object
+     * included in the ray tracer object.<br>
+     * If a crop window was set in the builder - only the pixels inside
+     * the window are rendered
      * @return the camera object itself
      */
     public Camera renderImage() {
-        pixelManager = new PixelManager(nY, nX, printInterval);
-        return switch (threadsCount) {
-            case 0 -> renderImageNoThreads();
-            case -1 -> renderImageStream();
-            default -> renderImageRawThreads();
-        };
+        return cropWindow == null
+                ? renderRegion(0, 0, nX, nY)
+                : renderRegion(cropWindow.x0(), cropWindow.y0(), cropWindow.x1(), cropWindow.y1());
+    }
+
+    /**
+     * Renders only a rectangular region of the image through the same ray casting
+     * pipeline as {@link #renderImage()}. The pixels outside the region keep their
+     * current color, so that the region is composited into the image already held
+     * by the camera (e.g. for re-rendering a small part of the image after tweaking
+     * a material)
+     * @param x0 first pixel column of the region (included)
+     * @param y0 first pixel row of the region (included)
+     * @param x1 last pixel column of the region (excluded)
+     * @param y1 last pixel row of the region (excluded)
+     * @return the camera object itself
+     * @throws IllegalArgumentException if the region is empty or exceeds the image
+     */
+    public Camera renderRegion(int x0, int y0, int x1, int y1) {
+        if (x0 < 0 || y0 < 0 || x1 > nX || y1 > nY)
+            throw new IllegalArgumentException("ERROR: The region exceeds the image resolution");
+        if (x0 >= x1 || y0 >= y1)
+            throw new IllegalArgumentException("ERROR: The region must not be empty");
+        region = new Region(x0, y0, x1, y1);
+        if (checkpointPath != null && checkpoint == null)
+            checkpoint = new Checkpoint(Path.of(checkpointPath), nX, nY, false);
+        pixelManager = new PixelManager(nX, nY, y0, x0, y1, x1, resumedTiles, printInterval);
+        resumedTiles = null;
+        if (checkpoint != null) checkpoint.start(checkpointInterval);
+        try {
+            switch (threadsCount) {
+                case 0 -> renderImageNoThreads();
+                case -1 -> renderImageStream();
+                default -> renderImageRawThreads();
+            }
+        } finally {
+            if (checkpoint != null) checkpoint.stop();
+        }
+        if (denoising)
+            imageWriter.writeColors(Denoiser.denoise(imageWriter.readColors(), nX, gBuffer, x0, y0, x1, y1),
+                    x0, y0, x1, y1);
+        return this;
+    }
+
+    /**
+     * Checks that the camera's outputs may be checkpointed - the checkpoint keeps
+     * only the 8-bit colors of the finished tiles, without the high dynamic range
+     * colors and the auxiliary buffers
+     * @throws IllegalArgumentException if the camera has high dynamic range
+     *                                  output, denoising or AOV output
+     */
+    private void checkCheckpointing() {
+        if (hdrOutput)
+            throw new IllegalArgumentException("ERROR: High dynamic range output cannot be checkpointed");
+        if (denoising)
+            throw new IllegalArgumentException("ERROR: Denoising cannot be checkpointed");
+        if (aovOutput)
+            throw new IllegalArgumentException("ERROR: AOV output cannot be checkpointed");
+    }
+
+    /**
+     * Resumes an interrupted rendering from a checkpoint file: the finished tiles
+     * are restored into the image and are skipped by the next rendering, and the
+     * rendering progress continues to be saved into the same file
+     * @param path the checkpoint file path
+     * @return the camera object itself
+     * @throws IllegalArgumentException if the checkpoint does not match the camera,
+     *                                  or if the camera has high dynamic range
+     *                                  output, denoising or AOV output
+     */
+    public Camera resumeFrom(String path) {
+        checkCheckpointing();
+        checkpointPath = path;
+        checkpoint = new Checkpoint(Path.of(path), nX, nY, true);
+        checkpoint.restore(imageWriter);
+        resumedTiles = checkpoint.finishedTiles();
+        return this;
     }
 
     /**
@@ -685,9 +1365,11 @@ public class Camera implements Cloneable {
             Vector crossProduct = axis.crossProduct(v);
             double dotProduct = axis.dotProduct(v);
 
-            return v.scale(cosTheta)
-                    .add(crossProduct.scale(sinTheta))
-                    .add(axis.scale(dotProduct * (1 - cosTheta)));
+            Vector rotated = isZero(cosTheta) ? crossProduct.scale(sinTheta)
+                    : isZero(sinTheta) ? v.scale(cosTheta)
+                    : v.scale(cosTheta).add(crossProduct.scale(sinTheta));
+            // the axial component vanishes when the vector is perpendicular to the axis
+            return isZero(dotProduct) ? rotated : rotated.add(axis.scale(dotProduct * (1 - cosTheta)));
         }
 
 
@@ -719,7 +1401,7 @@ public class Camera implements Cloneable {
 
                  Vector vecToCentreRotated = rotateVector(vecToCentre, axe, angleRadians);
 
-                camera.location = centre.subtract(vecToCentreRotated);
+                camera.location = centre.add(vecToCentreRotated.scale(-1));
 
                 Vector direction = centre.subtract(camera.location);
                 if (direction.lengthSquared() > 0) {
@@ -734,6 +1416,20 @@ public class Camera implements Cloneable {
         }
 
 
+        /**
+         * Sets the index of the rendered animation frame. The random numbers of the
+         * samples are hashed from the frame, the pixel, the sample and the
+         * dimension, so a frame is rendered into the same image with any amount
+         * of threads, and the frames of an animation get different noise
+         * @param frame the frame index (0 by default)
+         * @return builder object itself
+         */
+        public Builder setFrame(int frame) {
+            if (frame < 0) throw new IllegalArgumentException("ERROR: Frame index must be non-negative");
+            camera.frame = frame;
+            return this;
+        }
+
         /**
          * Set multi-threading <br>
          * Parameter value meaning:
@@ -769,6 +1465,148 @@ public class Camera implements Cloneable {
 
 
 
+        /**
+         * Sets a crop window - only the pixels inside the window will be rendered by
+         * {@link Camera#renderImage()}, the rest of the image is left untouched
+         * @param x0 first pixel column of the window (included)
+         * @param y0 first pixel row of the window (included)
+         * @param x1 last pixel column of the window (excluded)
+         * @param y1 last pixel row of the window (excluded)
+         * @return builder object itself
+         * @throws IllegalArgumentException if the window is empty or has negative coordinates
+         */
+        public Builder setCropWindow(int x0, int y0, int x1, int y1) {
+            if (x0 < 0 || y0 < 0)
+                throw new IllegalArgumentException("ERROR: Crop window coordinates must not be negative");
+            if (x0 >= x1 || y0 >= y1)
+                throw new IllegalArgumentException("ERROR: Crop window must not be empty");
+            camera.cropWindow = new Region(x0, y0, x1, y1);
+            return this;
+        }
+
+        /**
+         * Sets periodic checkpointing of the rendering progress into a file, so that
+         * an interrupted rendering may be resumed by {@link Camera#resumeFrom(String)}.
+         * The checkpoint keeps only the 8-bit colors of the finished tiles, so that
+         * it cannot be combined with high dynamic range output, denoising or AOV
+         * output
+         * @param path     the checkpoint file path
+         * @param interval checkpoint saving interval in seconds
+         * @return builder object itself
+         */
+        public Builder setCheckpoint(String path, double interval) {
+            if (path == null)
+                throw new IllegalArgumentException("ERROR: Checkpoint path cannot be null.");
+            if (interval <= 0)
+                throw new IllegalArgumentException("ERROR: Checkpoint interval must be positive.");
+            camera.checkpointPath = path;
+            camera.checkpointInterval = interval;
+            return this;
+        }
+
+        /**
+         * Sets high dynamic range output: the unclamped rendered colors are kept in
+         * a float buffer which may be written by {@link Camera#writeToPfm(String)}
+         * and {@link Camera#writeToExr(String)}
+         * @param hdr true for high dynamic range output
+         * @return builder object itself
+         */
+        public Builder setHdrOutput(boolean hdr) {
+            camera.hdrOutput = hdr;
+            return this;
+        }
+
+        /**
+         * Sets a memory mapped frame buffer file for holding the rendered image
+         * instead of the heap, for images larger than the heap (e.g. poster prints).
+         * Every built camera gets its own frame buffer, so the path must be changed
+         * before building another camera. High dynamic range output, denoising, AOV
+         * output and variance sampling keep full image buffers in the heap, so that
+         * they cannot be combined with a frame buffer file
+         * @param path the frame buffer file path
+         * @return builder object itself
+         */
+        public Builder setFrameBufferFile(String path) {
+            if (path == null)
+                throw new IllegalArgumentException("ERROR: Frame buffer path cannot be null.");
+            camera.frameBufferPath = path;
+            return this;
+        }
+
+        /**
+         * Sets denoising of the rendered image: the depth, normal and albedo of the
+         * first hits of the pixels' rays are captured while rendering, and they
+         * guide an edge-avoiding filter applied to the image after the rendering.
+         * It gives a clean image with much fewer rays per pixel
+         * @param denoising true for denoising the rendered image
+         * @return builder object itself
+         */
+        public Builder setDenoising(boolean denoising) {
+            camera.denoising = denoising;
+            return this;
+        }
+
+        /**
+         * Sets the capture of the auxiliary buffers (AOVs) of the rendered image:
+         * depth, normal, albedo, geometry id and amount of rays of every pixel,
+         * recorded while tracing the pixels' rays. They may be written by
+         * {@link Camera#writeAovs(String)}
+         * @param aovOutput true for capturing the auxiliary buffers
+         * @return builder object itself
+         */
+        public Builder setAovOutput(boolean aovOutput) {
+            camera.aovOutput = aovOutput;
+            return this;
+        }
+
+        /**
+         * Sets variance-driven adaptive sampling: every pixel is sampled by batches
+         * of rays spread over the pixel (and the aperture) until the 95% confidence
+         * interval of its mean color is narrower than the tolerance, or until the
+         * maximum amount of samples. The amounts of rays of the pixels may be
+         * written by {@link Camera#writeSampleHeatmap(String)}
+         * @param tolerance  the maximum half width of the confidence interval, where
+         *                   1 is the full intensity
+         * @param batchSize  the amount of samples added between convergence checks
+         * @param maxSamples the maximum amount of samples of a pixel (0 to disable)
+         * @return builder object itself
+         */
+        public Builder setVarianceSampling(double tolerance, int batchSize, int maxSamples) {
+            camera.varianceConfig = new VarianceSamplingConfig(tolerance, batchSize, maxSamples);
+            return this;
+        }
+
+        /**
+         * Sets combined antialiasing and depth of field sampling: every pixel is
+         * sampled by the given amount of rays, each through its own stratified
+         * point of the pixel and its own stratified point of the aperture (when
+         * depth of field is enabled), instead of a depth of field beam for every
+         * antialiasing ray. Amounts which are perfect squares stratify best
+         * @param samples the amount of rays of a pixel (0 to disable)
+         * @return builder object itself
+         */
+        public Builder setCombinedSampling(int samples) {
+            if (samples < 0) throw new IllegalArgumentException("ERROR: Amount of samples must be non-negative");
+            camera.combinedSamples = samples;
+            return this;
+        }
+
+        /**
+         * Sets packet tracing: the primary rays of neighbouring pixels are
+         * intersected with the geometries together, by packets of 8 rays, and so
+         * are the shadow rays of their hits toward every light. The geometries are
+         * traversed once per packet instead of once per ray, by the same scalar
+         * computation for every ray, so the image is the same. It is used when
+         * every pixel is sampled by a single ray (without antialiasing, depth of
+         * field or adaptive sampling), otherwise the rays are traced one by one
+         * @param packetTracing true to trace the primary rays in packets
+         * @return builder object itself
+         */
+        public Builder setPacketTracing(boolean packetTracing) {
+            camera.packetTracing = packetTracing;
+            return this;
+        }
+
         public Builder setAdaptiveSuperSampling(int depth) {
             camera.setAdaptiveSuperSampling(depth, camera.assConfig.colorThreshold);
             return this;
@@ -799,17 +1637,38 @@ public class Camera implements Cloneable {
                 throw new MissingResourceException(MISSING_DATA, CLASS_NAME, "distance");
             if  (camera.nX <= 0 || camera.nY <= 0)
                 throw new IllegalArgumentException("ERROR: The resolution cannot be negative");
+            if (camera.cropWindow != null && (camera.cropWindow.x1() > camera.nX || camera.cropWindow.y1() > camera.nY))
+                throw new IllegalArgumentException("ERROR: The crop window exceeds the resolution");
 
             // Compute vRight
             Vector vRight = camera.vTo.crossProduct(camera.vUp);
             if (vRight.lengthSquared() == 0)
                 throw new IllegalArgumentException("ERROR: vTo and vUp cannot be parallel – cannot compute vRight.");
             camera.vRight = vRight.normalize();
+            camera.viewPlane = camera.viewPlaneBasis(camera.nX, camera.nY);
 
             if(camera.rayTracer == null)
                 camera.rayTracer = new SimpleRayTracer(null);
 
-            camera.imageWriter = new ImageWriter(camera.nX, camera.nY);
+            if (camera.frameBufferPath != null && camera.hdrOutput)
+                throw new IllegalArgumentException("ERROR: High dynamic range output needs the image in the heap");
+            // the auxiliary buffers and the denoised colors are full image arrays in the heap
+            if (camera.frameBufferPath != null && camera.denoising)
+                throw new IllegalArgumentException("ERROR: Denoising needs the image in the heap");
+            if (camera.frameBufferPath != null && camera.aovOutput)
+                throw new IllegalArgumentException("ERROR: AOV output needs the image in the heap");
+            // the amounts of rays of the pixels are a full image array in the heap
+            if (camera.frameBufferPath != null && camera.varianceConfig.enabled)
+                throw new IllegalArgumentException("ERROR: Variance sampling needs the image in the heap");
+            if (camera.checkpointPath != null) camera.checkCheckpointing();
+            if (camera.varianceConfig.enabled && camera.assConfig.enabled)
+                throw new IllegalArgumentException("ERROR: Variance sampling and adaptive super sampling are exclusive");
+            if (camera.combinedSamples > 0 && (camera.varianceConfig.enabled || camera.assConfig.enabled))
+                throw new IllegalArgumentException("ERROR: Combined sampling is exclusive with the adaptive samplings");
+            camera.gBuffer = camera.denoising || camera.aovOutput || camera.varianceConfig.enabled ? new GBuffer(camera.nX, camera.nY) : null;
+            camera.imageWriter = camera.frameBufferPath == null
+                    ? new ImageWriter(camera.nX, camera.nY, camera.hdrOutput)
+                    : new ImageWriter(camera.nX, camera.nY, Path.of(camera.frameBufferPath));
             try {
                 return (Camera)camera.clone();
             } catch (CloneNotSupportedException e) {
@@ -0,0 +1,187 @@
+package renderer;
+
+import java.io.IOException;
+import java.nio.IntBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+import static java.nio.file.StandardOpenOption.*;
+
+/**
+ * Checkpoint of a rendering in progress, kept in a compact binary file so that a
+ * long rendering may be resumed after a crash.<br/>
+ * The file holds a small header, a bitmap of the finished tiles and the packed RGB
+ * values of all the image's pixels. The file is memory mapped: the rendering
+ * threads copy every finished tile straight into the mapping, and a background
+ * thread periodically forces the mapping to the disk. A tile is marked as
+ * finished in the file's bitmap only after its pixels have been forced, so that
+ * the file is consistent whenever the rendering stops.
+ * @author Devorah Wajs and Guila Czerniewicz
+ */
+final class Checkpoint {
+    /** File format magic number ("RTCK") */
+    private static final int MAGIC       = 0x5254434B;
+    /** File format version */
+    private static final int VERSION     = 1;
+    /** Header size in bytes: magic, version, nX, nY, tile size, tiles count */
+    private static final int HEADER_SIZE = 6 * Integer.BYTES;
+
+    /** Horizontal resolution of the image */
+    private final int                            nX;
+    /** Vertical resolution of the image */
+    private final int                            nY;
+    /** The memory mapped file */
+    private final MappedByteBuffer               buffer;
+    /** Pixels data view of the mapped file */
+    private final IntBuffer                      pixels;
+    /** Tiles which are marked as finished in the file */
+    private final BitSet                         finished;
+    /** Tiles which were copied into the mapping but not forced to the disk yet */
+    private final ConcurrentLinkedQueue<Integer> pending = new ConcurrentLinkedQueue<>();
+    /** Background thread forcing the mapping periodically */
+    private ScheduledExecutorService             flusher;
+
+    /**
+     * Opens a checkpoint file
+     * @param  path                     the file path
+     * @param  nX                       horizontal resolution of the image
+     * @param  nY                       vertical resolution of the image
+     * @param  resume                   true for opening an existing checkpoint,
+     *                                  false for creating a new (empty) one
+     * @throws IllegalArgumentException if an existing checkpoint does not match
+     *                                  the image
+     * @throws IllegalStateException    in case of I/O error
+     */
+    Checkpoint(Path path, int nX, int nY, boolean resume) {
+        this.nX = nX;
+        this.nY = nY;
+        int  tilesCount   = PixelManager.tilesCount(nX) * PixelManager.tilesCount(nY);
+        int  bitmapSize   = (tilesCount + 7) / 8;
+        int  pixelsOffset = HEADER_SIZE + ((bitmapSize + 3) & ~3);
+        long size         = pixelsOffset + (long) nX * nY * Integer.BYTES;
+        if (size > Integer.MAX_VALUE)
+            throw new IllegalArgumentException("ERROR: The image is too large for a checkpoint");
+
+        try (FileChannel channel = resume
+                ? FileChannel.open(path, READ, WRITE)
+                : FileChannel.open(path, READ, WRITE, CREATE, TRUNCATE_EXISTING)) {
+            if (resume && channel.size() != size)
+                throw new IllegalArgumentException("ERROR: The checkpoint does not match the image resolution");
+            buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, size);
+        } catch (IOException e) {
+            throw new IllegalStateException("I/O error - cannot open checkpoint " + path, e);
+        }
+
+        if (resume) {
+            if (buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION)
+                throw new IllegalArgumentException("ERROR: The file is not a checkpoint of a supported version");
+            if (buffer.getInt(8) != nX || buffer.getInt(12) != nY
+                    || buffer.getInt(16) != PixelManager.TILE_SIZE || buffer.getInt(20) != tilesCount)
+                throw new IllegalArgumentException("ERROR: The checkpoint does not match the image resolution");
+            byte[] bitmap = new byte[bitmapSize];
+            buffer.get(HEADER_SIZE, bitmap);
+            finished = BitSet.valueOf(bitmap);
+        } else {
+            buffer.putInt(0, MAGIC).putInt(4, VERSION).putInt(8, nX).putInt(12, nY)
+                    .putInt(16, PixelManager.TILE_SIZE).putInt(20, tilesCount);
+            finished = new BitSet(tilesCount);
+        }
+        pixels = buffer.slice(pixelsOffset, (int) (size - pixelsOffset)).asIntBuffer();
+    }
+
+    /**
+     * The tiles which are marked as finished in the checkpoint
+     * @return a copy of the finished tiles set
+     */
+    BitSet finishedTiles() {
+        synchronized (finished) {
+            return (BitSet) finished.clone();
+        }
+    }
+
+    /**
+     * Copies the pixels of all the finished tiles from the checkpoint into the image
+     * @param imageWriter the image to restore
+     */
+    void restore(ImageWriter imageWriter) {
+        int tilesInRow = PixelManager.tilesCount(nX);
+        BitSet tiles = finishedTiles();
+        for (int index = tiles.nextSetBit(0); index >= 0; index = tiles.nextSetBit(index + 1)) {
+            int x0 = index % tilesInRow * PixelManager.TILE_SIZE;
+            int y0 = index / tilesInRow * PixelManager.TILE_SIZE;
+            int width = Math.min(PixelManager.TILE_SIZE, nX - x0);
+            int height = Math.min(PixelManager.TILE_SIZE, nY - y0);
+            int[] rgb = new int[width * height];
+            for (int row = 0; row < height; ++row)
+                pixels.get((y0 + row) * nX + x0, rgb, row * width, width);
+            imageWriter.writePixels(x0, y0, width, height, rgb);
+        }
+    }
+
+    /**
+     * Copies a finished tile straight from the image into the checkpoint mapping,
+     * without an intermediate array. It is called by the
+     * rendering threads, the tile will be marked as finished in the file by the
+     * next periodic flush. Tiles clipped by the rendered region are ignored
+     * @param tile        the finished tile
+     * @param imageWriter the image holding the tile's pixels
+     */
+    void tileDone(PixelManager.Tile tile, ImageWriter imageWriter) {
+        if (!tile.whole()) return;
+        int width = tile.x1() - tile.x0();
+        int height = tile.y1() - tile.y0();
+        imageWriter.copyPixels(tile.x0(), tile.y0(), width, height, pixels, tile.y0() * nX + tile.x0(), nX);
+        pending.add(tile.index());
+    }
+
+    /**
+     * Forces the pixels of the pending tiles to the disk, and then marks them as
+     * finished in the file's bitmap and forces it as well
+     */
+    void flush() {
+        List<Integer> tiles = new ArrayList<>();
+        Integer index;
+        while ((index = pending.poll()) != null) tiles.add(index);
+        if (tiles.isEmpty()) return;
+        synchronized (finished) {
+            buffer.force();
+            for (int tile : tiles) {
+                int offset = HEADER_SIZE + tile / 8;
+                buffer.put(offset, (byte) (buffer.get(offset) | 1 << tile % 8));
+                finished.set(tile);
+            }
+            buffer.force();
+        }
+    }
+
+    /**
+     * Starts the periodic flushing in a background thread
+     * @param interval flushing interval in seconds
+     */
+    void start(double interval) {
+        long period = Math.max(1, (long) (interval * 1000));
+        flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "checkpoint");
+            thread.setDaemon(true);
+            return thread;
+        });
+        flusher.scheduleAtFixedRate(this::flush, period, period, TimeUnit.MILLISECONDS);
+    }
+
+    /** Stops the periodic flushing and flushes the remaining finished tiles */
+    void stop() {
+        flusher.shutdown();
+        try {
+            flusher.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException ignored) {}
+        flush();
+    }
+}
@@ -0,0 +1,144 @@
+package renderer;
+
+import java.util.stream.IntStream;
+
+/**
+ * Edge-avoiding à-trous wavelet denoiser.<br/>
+ * The image is smoothed by a few passes of a 5x5 B3-spline kernel whose taps
+ * spread twice as far in every pass. Every tap is weighted by its similarity to
+ * the filtered pixel in color, and in the depth, normal and albedo of the first
+ * hit (from the G-buffer), so that the noise of the sampling is removed while the
+ * geometric edges and the texture details are kept. The tiles of the image are
+ * filtered in parallel in every pass.
+ * @author Devorah Wajs and Guila Czerniewicz
+ */
+final class Denoiser {
+    /** B3-spline kernel weights */
+    private static final float[] KERNEL       = { 1 / 16f, 1 / 4f, 3 / 8f, 1 / 4f, 1 / 16f };
+    /** Amount of filtering passes */
+    private static final int     PASSES       = 5;
+    /** Color similarity scale of the first pass, halved in every pass */
+    private static final float   SIGMA_COLOR  = 0.3f;
+    /** Normal similarity scale */
+    private static final float   SIGMA_NORMAL = 0.3f;
+    /** Relative depth similarity scale (per pixel of distance) */
+    private static final float   SIGMA_DEPTH  = 0.02f;
+    /** Albedo similarity scale */
+    private static final float   SIGMA_ALBEDO = 0.3f;
+    /**
+     * Depth dissimilarity of a pixel whose rays hit nothing from a pixel whose rays
+     * hit a geometry - finite, since the pixels on the blurred silhouettes of
+     * out-of-focus geometries are partly covered
+     */
+    private static final float   MISS_DISTANCE = 4;
+
+    /** Don't let anyone instantiate this class. */
+    private Denoiser() {}
+
+    /**
+     * Denoises a rectangular region of an image. Only the region's pixels take
+     * part in the filtering
+     * @param  rgb     red, green and blue of every pixel of the image (row by row)
+     * @param  nX      horizontal resolution of the image
+     * @param  gBuffer the auxiliary buffers of the image
+     * @param  x0      first pixel column of the region (included)
+     * @param  y0      first pixel row of the region (included)
+     * @param  x1      last pixel column of the region (excluded)
+     * @param  y1      last pixel row of the region (excluded)
+     * @return         the denoised colors of the image
+     */
+    static float[] denoise(float[] rgb, int nX, GBuffer gBuffer, int x0, int y0, int x1, int y1) {
+        float[] input = rgb.clone();
+        float[] output = rgb.clone();
+        int tilesInRow = PixelManager.tilesCount(x1 - x0);
+        int tilesInColumn = PixelManager.tilesCount(y1 - y0);
+        float sigmaColor = SIGMA_COLOR;
+        for (int pass = 0; pass < PASSES; ++pass, sigmaColor /= 2) {
+            int step = 1 << pass;
+            float[] in = input, out = output;
+            float colorFactor = 1 / (sigmaColor * sigmaColor);
+            IntStream.range(0, tilesInRow * tilesInColumn).parallel().forEach(tile -> {
+                int tileX = x0 + tile % tilesInRow * PixelManager.TILE_SIZE;
+                int tileY = y0 + tile / tilesInRow * PixelManager.TILE_SIZE;
+                for (int y = tileY; y < Math.min(y1, tileY + PixelManager.TILE_SIZE); ++y)
+                    for (int x = tileX; x < Math.min(x1, tileX + PixelManager.TILE_SIZE); ++x)
+                        filterPixel(in, out, nX, gBuffer, x, y, step, colorFactor, x0, y0, x1, y1);
+            });
+            output = input;
+            input = out;
+        }
+        return input;
+    }
+
+    /**
+     * Filters one pixel in one pass
+     * @param in          the colors before the pass
+     * @param out         the colors after the pass
+     * @param nX          horizontal resolution of the image
+     * @param gBuffer     the auxiliary buffers of the image
+     * @param x           X axis index of the pixel
+     * @param y           Y axis index of the pixel
+     * @param step        distance between the kernel taps
+     * @param colorFactor inverse squared color similarity scale
+     * @param x0          first pixel column of the region
+     * @param y0          first pixel row of the region
+     * @param x1          pixel column following the region
+     * @param y1          pixel row following the region
+     */
+    private static void filterPixel(float[] in, float[] out, int nX, GBuffer gBuffer, int x, int y, int step,
+                                    float colorFactor, int x0, int y0, int x1, int y1) {
+        int p = y * nX + x;
+        float depth = gBuffer.depth[p];
+        float r = 0, g = 0, b = 0, weights = 0;
+        for (int dy = -2; dy <= 2; ++dy) {
+            int qy = y + dy * step;
+            if (qy < y0 || qy >= y1) continue;
+            for (int dx = -2; dx <= 2; ++dx) {
+                int qx = x + dx * step;
+                if (qx < x0 || qx >= x1) continue;
+                int q = qy * nX + qx;
+                float weight = KERNEL[dx + 2] * KERNEL[dy + 2]
+                        * (float) Math.exp(-distance(in, p, q) * colorFactor
+                                - distance(gBuffer.normal, p, q) / (SIGMA_NORMAL * SIGMA_NORMAL)
+                                - distance(gBuffer.albedo, p, q) / (SIGMA_ALBEDO * SIGMA_ALBEDO)
+                                - depthDistance(depth, gBuffer.depth[q], step));
+                r += weight * in[3 * q];
+                g += weight * in[3 * q + 1];
+                b += weight * in[3 * q + 2];
+                weights += weight;
+            }
+        }
+        // the pixel itself always has a positive weight
+        out[3 * p] = r / weights;
+        out[3 * p + 1] = g / weights;
+        out[3 * p + 2] = b / weights;
+    }
+
+    /**
+     * Squared distance between the triads of two pixels
+     * @param  data triads of the pixels
+     * @param  p    the first pixel
+     * @param  q    the second pixel
+     * @return      the squared distance
+     */
+    private static float distance(float[] data, int p, int q) {
+        float d1 = data[3 * p] - data[3 * q];
+        float d2 = data[3 * p + 1] - data[3 * q + 1];
+        float d3 = data[3 * p + 2] - data[3 * q + 2];
+        return d1 * d1 + d2 * d2 + d3 * d3;
+    }
+
+    /**
+     * Depth dissimilarity of two pixels relative to the depth and to the distance
+     * between the pixels
+     * @param  depthP depth of the first pixel
+     * @param  depthQ depth of the second pixel
+     * @param  step   distance between the pixels
+     * @return        the dissimilarity
+     */
+    private static float depthDistance(float depthP, float depthQ, int step) {
+        if (Float.isInfinite(depthP) || Float.isInfinite(depthQ))
+            return depthP == depthQ ? 0 : MISS_DISTANCE;
+        return Math.abs(depthP - depthQ) / (SIGMA_DEPTH * step * depthP + Float.MIN_NORMAL);
+    }
+}
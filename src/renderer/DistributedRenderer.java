@@ -0,0 +1,256 @@
+package renderer;
+
+import java.io.*;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingDeque;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Coordinator of distributed rendering over TCP.<br/>
+ * The coordinator listens on a port, ships the serialized camera (with its ray
+ * tracer and scene) to every {@link RenderWorker} that connects - from the local
+ * machine or across the LAN - and then hands the image tiles to the workers on
+ * demand. The rendered pixels are streamed back into the camera's image. If a
+ * worker fails (the connection breaks or it does not answer in time) the tiles it
+ * was rendering are given to the other workers. If rendering a tile fails in a
+ * worker, the whole rendering fails at once.
+ * <p>
+ * Example:
+ * <pre>{@code
+ * try (DistributedRenderer renderer = new DistributedRenderer(0).spawnLocalWorkers(4, 2)) {
+ *     renderer.render(camera).writeToImage("distributed");
+ * }
+ * }</pre>
+ * @author Devorah Wajs and Guila Czerniewicz
+ */
+public class DistributedRenderer implements AutoCloseable {
+    /** Interval for checking the rendering state while waiting (in milliseconds) */
+    private static final int     POLL_INTERVAL  = 200;
+
+    /** The listening socket of the coordinator */
+    private final ServerSocket   server;
+    /** Worker processes spawned by the coordinator on the local machine */
+    private final List<Process>  localWorkers   = new LinkedList<>();
+    /** Maximum time for a worker to answer (in milliseconds), 0 for no limit */
+    private int                  timeout        = 600_000;
+
+    /**
+     * Constructs a coordinator listening on a port
+     * @param  port                  the port, or 0 for any free port
+     * @throws IllegalStateException if the port cannot be opened
+     */
+    public DistributedRenderer(int port) {
+        try {
+            server = new ServerSocket(port);
+            server.setSoTimeout(POLL_INTERVAL);
+        } catch (IOException e) {
+            throw new IllegalStateException("I/O error - cannot listen on port " + port, e);
+        }
+    }
+
+    /**
+     * The port the coordinator listens on (for connecting remote workers)
+     * @return the port number
+     */
+    public int getPort() { return server.getLocalPort(); }
+
+    /**
+     * Sets the maximum time for a worker to answer. A worker which does not send a
+     * rendered tile during this time is considered failed
+     * @param  seconds the time in seconds, 0 for no limit
+     * @return         the coordinator object itself
+     */
+    public DistributedRenderer setTimeout(double seconds) {
+        if (seconds < 0) throw new IllegalArgumentException("ERROR: Timeout must not be negative");
+        timeout = (int) (seconds * 1000);
+        return this;
+    }
+
+    /**
+     * Spawns worker processes (separate JVMs) on the local machine which connect
+     * to this coordinator
+     * @param  count   amount of worker processes
+     * @param  threads amount of rendering threads in each worker
+     * @return         the coordinator object itself
+     */
+    public DistributedRenderer spawnLocalWorkers(int count, int threads) {
+        if (count < 1 || threads < 1)
+            throw new IllegalArgumentException("ERROR: Amount of workers and threads must be positive");
+        String java = Path.of(System.getProperty("java.home"), "bin", "java").toString();
+        ProcessBuilder builder = new ProcessBuilder(java, "-cp", System.getProperty("java.class.path"),
+                RenderWorker.class.getName(), "localhost", String.valueOf(getPort()), String.valueOf(threads))
+                .inheritIO();
+        try {
+            for (int i = 0; i < count; ++i) localWorkers.add(builder.start());
+        } catch (IOException e) {
+            throw new IllegalStateException("I/O error - cannot start a worker process", e);
+        }
+        return this;
+    }
+
+    /**
+     * Renders the image of a camera (or its crop window) by the connected workers.
+     * The method returns when all the tiles are rendered
+     * @param  camera                the camera to render
+     * @return                       the camera itself
+     * @throws IllegalArgumentException if the camera has high dynamic range
+     *                                  output, denoising or AOV output
+     * @throws IllegalStateException    if rendering a tile has failed in a worker,
+     *                                  or if all the local workers have failed
+     *                                  and no worker is connected
+     */
+    public Camera render(Camera camera) {
+        PixelManager pixelManager = camera.startExternalRendering();
+        byte[] data = serialize(camera);
+        BlockingDeque<PixelManager.Tile> tiles = new LinkedBlockingDeque<>(pixelManager.tiles());
+        CountDownLatch remaining = new CountDownLatch(tiles.size());
+        AtomicInteger connected = new AtomicInteger();
+        AtomicReference<String> failure = new AtomicReference<>();
+        List<Thread> handlers = new LinkedList<>();
+        List<Socket> sockets = new LinkedList<>();
+
+        try {
+            while (remaining.getCount() > 0 && failure.get() == null) {
+                try {
+                    Socket socket = server.accept();
+                    connected.incrementAndGet();
+                    synchronized (sockets) {
+                        sockets.add(socket);
+                    }
+                    Thread handler = new Thread(() -> {
+                        try {
+                            serve(socket, camera, data, tiles, remaining, failure);
+                        } finally {
+                            connected.decrementAndGet();
+                        }
+                    });
+                    handlers.add(handler);
+                    handler.start();
+                } catch (SocketTimeoutException e) {
+                    if (connected.get() == 0 && failure.get() == null && !localWorkers.isEmpty()
+                            && localWorkers.stream().noneMatch(Process::isAlive))
+                        throw new IllegalStateException("ERROR: All the rendering workers have failed");
+                } catch (IOException e) {
+                    throw new IllegalStateException("I/O error - cannot accept a worker", e);
+                }
+            }
+        } finally {
+            // on failure the connections are closed, the workers stop at once
+            if (remaining.getCount() > 0)
+                synchronized (sockets) {
+                    for (Socket socket : sockets) close(socket);
+                }
+            try {
+                for (Thread handler : handlers) handler.join();
+            } catch (InterruptedException ignored) {}
+        }
+        if (failure.get() != null)
+            throw new IllegalStateException("ERROR: Rendering a tile has failed in a worker: " + failure.get());
+        return camera;
+    }
+
+    /**
+     * Closes a connection to a worker, ignoring errors
+     * @param socket the connection
+     */
+    private static void close(Socket socket) {
+        try {
+            socket.close();
+        } catch (IOException ignored) {}
+    }
+
+    /**
+     * Serializes the camera for shipping it to the workers
+     * @param  camera the camera
+     * @return        the serialized camera
+     */
+    private static byte[] serialize(Camera camera) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(camera);
+        } catch (IOException e) {
+            throw new IllegalStateException("ERROR: The camera and its scene cannot be serialized", e);
+        }
+        return bytes.toByteArray();
+    }
+
+    /**
+     * Serves one worker: ships the camera and keeps the worker busy with tiles until
+     * all the tiles are rendered. If the worker fails, its unfinished tiles are
+     * returned to the tiles queue. If the worker reports that rendering a tile has
+     * failed, the failure is recorded for failing the whole rendering
+     * @param socket    the connection to the worker
+     * @param camera    the rendered camera
+     * @param data      the serialized camera
+     * @param tiles     queue of the tiles waiting for rendering
+     * @param remaining count of the tiles not rendered yet
+     * @param failure   receives the description of a tile rendering failure
+     */
+    private void serve(Socket socket, Camera camera, byte[] data, BlockingDeque<PixelManager.Tile> tiles,
+                       CountDownLatch remaining, AtomicReference<String> failure) {
+        Map<Integer, PixelManager.Tile> inFlight = new HashMap<>();
+        try (socket) {
+            socket.setSoTimeout(timeout);
+            DataInputStream  in  = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+            DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+            out.writeInt(data.length);
+            out.write(data);
+            out.flush();
+            int capacity = in.readInt();
+
+            while (remaining.getCount() > 0 && failure.get() == null) {
+                while (inFlight.size() < capacity) {
+                    PixelManager.Tile tile = inFlight.isEmpty()
+                            ? tiles.poll(POLL_INTERVAL, TimeUnit.MILLISECONDS)
+                            : tiles.poll();
+                    if (tile == null) break;
+                    inFlight.put(tile.index(), tile);
+                    out.writeInt(tile.index());
+                    out.writeInt(tile.x0());
+                    out.writeInt(tile.y0());
+                    out.writeInt(tile.x1());
+                    out.writeInt(tile.y1());
+                }
+                out.flush();
+                if (inFlight.isEmpty()) continue;
+
+                int index = in.readInt();
+                if (index == RenderWorker.TILE_FAILED) {
+                    failure.compareAndSet(null, in.readUTF());
+                    return;
+                }
+                PixelManager.Tile tile = inFlight.get(index);
+                if (tile == null) throw new IOException("Unexpected tile from a worker");
+                int[] rgb = new int[(tile.x1() - tile.x0()) * (tile.y1() - tile.y0())];
+                for (int i = 0; i < rgb.length; ++i) rgb[i] = in.readInt();
+                inFlight.remove(tile.index());
+                camera.writeTile(tile, rgb);
+                remaining.countDown();
+            }
+            out.writeInt(-1);
+            out.flush();
+        } catch (IOException | InterruptedException e) {
+            // the worker has failed - let the other workers render its tiles
+            for (PixelManager.Tile tile : inFlight.values()) tiles.addFirst(tile);
+        }
+    }
+
+    @Override
+    public void close() {
+        try {
+            server.close();
+        } catch (IOException ignored) {}
+        for (Process worker : localWorkers) worker.destroy();
+    }
+}
@@ -0,0 +1,52 @@
+package renderer;
+
+import java.nio.IntBuffer;
+
+/**
+ * Storage of the packed RGB values of an image's pixels. The pixels may be
+ * accessed by several threads concurrently, as long as they access different
+ * pixels
+ * @author Devorah Wajs and Guila Czerniewicz
+ */
+interface FrameBuffer {
+    /**
+     * Writes the packed RGB value of one pixel
+     * @param x   X axis index of the pixel
+     * @param y   Y axis index of the pixel
+     * @param rgb packed RGB value
+     */
+    void setRGB(int x, int y, int rgb);
+
+    /**
+     * Reads packed RGB values of a rectangular block of pixels (row by row)
+     * @param x0     X axis index of the first pixel of the block
+     * @param y0     Y axis index of the first pixel of the block
+     * @param width  width of the block
+     * @param height height of the block
+     * @param rgb    array for the packed RGB values of the block's pixels
+     */
+    void getRGB(int x0, int y0, int width, int height, int[] rgb);
+
+    /**
+     * Writes packed RGB values of a rectangular block of pixels (row by row)
+     * @param x0     X axis index of the first pixel of the block
+     * @param y0     Y axis index of the first pixel of the block
+     * @param width  width of the block
+     * @param height height of the block
+     * @param rgb    packed RGB values of the block's pixels
+     */
+    void setRGB(int x0, int y0, int width, int height, int[] rgb);
+
+    /**
+     * Copies packed RGB values of a rectangular block of pixels straight into an
+     * int buffer (row by row), without an intermediate array
+     * @param x0     X axis index of the first pixel of the block
+     * @param y0     Y axis index of the first pixel of the block
+     * @param width  width of the block
+     * @param height height of the block
+     * @param target the buffer
+     * @param offset index of the block's first pixel in the buffer
+     * @param stride distance between the block's rows in the buffer
+     */
+    void copyRGB(int x0, int y0, int width, int height, IntBuffer target, int offset, int stride);
+}
@@ -0,0 +1,150 @@
+package renderer;
+
+import primitives.Color;
+import primitives.Double3;
+import primitives.Vector;
+
+import java.util.List;
+
+/**
+ * Auxiliary buffers of the image (G-buffer, or AOVs) holding the first hit data
+ * of every pixel: depth, normal and albedo averaged over the pixel's rays, the
+ * id of the geometry hit by the pixel's first ray and the amount of the pixel's
+ * rays. The data is captured while tracing the pixel's rays without any
+ * additional ray. It guides the denoising of the image, and it may be written to
+ * an OpenEXR file for compositing and debugging
+ * @author Devorah Wajs and Guila Czerniewicz
+ */
+final class GBuffer {
+    /**
+     * First hit data of the rays of one pixel, accumulated while tracing them
+     */
+    static final class Sample {
+        /** Amount of traced rays */
+        private int    rays     = 0;
+        /** Id of the geometry hit by the first ray, -1 if it hits nothing */
+        private int    id       = -1;
+        /** Amount of rays hitting a geometry */
+        private int    hits     = 0;
+        /** Sum of the hits' distances */
+        private double depth    = 0;
+        /** Sum of the hits' normals (facing the rays) */
+        private double normalX  = 0, normalY = 0, normalZ = 0;
+        /** Sum of the rays' albedo */
+        private double albedoR  = 0, albedoG = 0, albedoB = 0;
+
+        /**
+         * Records a ray which hits a geometry
+         * @param distance distance of the hit from the ray's head
+         * @param normal   the surface normal facing the ray
+         * @param albedo   the surface albedo
+         * @param id       id of the geometry
+         */
+        void hit(double distance, Vector normal, Double3 albedo, int id) {
+            if (rays == 0) this.id = id;
+            ++hits;
+            depth += distance;
+            normalX += normal.getX();
+            normalY += normal.getY();
+            normalZ += normal.getZ();
+            addAlbedo(albedo);
+        }
+
+        /**
+         * Records a ray which hits nothing
+         * @param background the background color
+         */
+        void miss(Color background) {
+            addAlbedo(background.getRgb().reduce(255));
+        }
+
+        /**
+         * Adds a ray's albedo
+         * @param albedo the albedo
+         */
+        private void addAlbedo(Double3 albedo) {
+            ++rays;
+            albedoR += albedo.d1();
+            albedoG += albedo.d2();
+            albedoB += albedo.d3();
+        }
+    }
+
+    /** Horizontal resolution of the image */
+    private final int     nX;
+    /** Distance of the first hit of every pixel, infinity if nothing is hit */
+    final float[]         depth;
+    /** Normal (x, y, z) at the first hit of every pixel */
+    final float[]         normal;
+    /** Albedo (red, green, blue) at the first hit of every pixel */
+    final float[]         albedo;
+    /** Id of the geometry hit by the first ray of every pixel, -1 if nothing is hit */
+    final int[]           objectId;
+    /** Amount of rays of every pixel */
+    final int[]           samples;
+
+    /**
+     * Constructs the buffers of an image
+     * @param nX horizontal resolution of the image
+     * @param nY vertical resolution of the image
+     */
+    GBuffer(int nX, int nY) {
+        this.nX = nX;
+        depth = new float[nX * nY];
+        normal = new float[3 * nX * nY];
+        albedo = new float[3 * nX * nY];
+        objectId = new int[nX * nY];
+        samples = new int[nX * nY];
+    }
+
+    /**
+     * Writes the averaged first hit data of a pixel
+     * @param x      X axis index of the pixel
+     * @param y      Y axis index of the pixel
+     * @param sample the pixel's data
+     */
+    void write(int x, int y, Sample sample) {
+        int index = y * nX + x;
+        depth[index] = sample.hits == 0 ? Float.POSITIVE_INFINITY : (float) (sample.depth / sample.hits);
+        double length = Math.sqrt(sample.normalX * sample.normalX + sample.normalY * sample.normalY
+                + sample.normalZ * sample.normalZ);
+        double scale = length == 0 ? 0 : 1 / length;
+        normal[3 * index] = (float) (sample.normalX * scale);
+        normal[3 * index + 1] = (float) (sample.normalY * scale);
+        normal[3 * index + 2] = (float) (sample.normalZ * scale);
+        double rays = Math.max(1, sample.rays);
+        albedo[3 * index] = (float) (sample.albedoR / rays);
+        albedo[3 * index + 1] = (float) (sample.albedoG / rays);
+        albedo[3 * index + 2] = (float) (sample.albedoB / rays);
+        objectId[index] = sample.id;
+        samples[index] = sample.rays;
+    }
+
+    /**
+     * The buffers as OpenEXR channels: Z (depth), N.X, N.Y, N.Z (normal),
+     * albedo.R, albedo.G, albedo.B, id and samples
+     * @return the channels
+     */
+    List<ImageWriter.ExrChannel> exrChannels() {
+        return List.of(new ImageWriter.ExrChannel("Z", depth, 1, 0),
+                new ImageWriter.ExrChannel("N.X", normal, 3, 0),
+                new ImageWriter.ExrChannel("N.Y", normal, 3, 1),
+                new ImageWriter.ExrChannel("N.Z", normal, 3, 2),
+                new ImageWriter.ExrChannel("albedo.R", albedo, 3, 0),
+                new ImageWriter.ExrChannel("albedo.G", albedo, 3, 1),
+                new ImageWriter.ExrChannel("albedo.B", albedo, 3, 2),
+                new ImageWriter.ExrChannel("id", toFloats(objectId), 1, 0),
+                new ImageWriter.ExrChannel("samples", toFloats(samples), 1, 0));
+    }
+
+    /**
+     * Converts integer values to floats (exact up to 2^24)
+     * @param  values the values
+     * @return        the values as floats
+     */
+    private static float[] toFloats(int[] values) {
+        float[] floats = new float[values.length];
+        for (int i = 0; i < values.length; ++i) floats[i] = values[i];
+        return floats;
+    }
+}
@@ -1,11 +1,21 @@
 package renderer;
 
 import java.awt.image.BufferedImage;
-import java.io.*;
-
-import javax.imageio.ImageIO;
+import java.awt.image.DataBufferInt;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
 
 import primitives.Color;
+import primitives.Double3;
+
+import static java.nio.file.StandardOpenOption.*;
 
 /**
  * Image writer class combines accumulation of pixel color matrix and finally
@@ -24,10 +34,20 @@ final class ImageWriter {
      * Directory path for the image file generation - relative to the user
      * directory
      */
-    private static final String FOLDER_PATH = System.getProperty("user.dir") + "/images";
+    static final String FOLDER_PATH = System.getProperty("user.dir") + "/images";
 
     /** Image generation buffer (the matrix of the pixels) */
-    private final BufferedImage image;
+    private final FrameBuffer   image;
+
+    /**
+     * High dynamic range buffer - red, green and blue of every pixel (row by row)
+     * without clamping, where 1 is the full intensity (255) of the image<br>
+     * if it is null - there is no high dynamic range output
+     */
+    private final float[]       hdr;
+
+    /** Magic number of OpenEXR files */
+    private static final int    EXR_MAGIC = 20000630;
 
     // ***************** Constructors ********************** //
     /**
@@ -36,10 +56,65 @@ final class ImageWriter {
      * @param nY amount of pixels by height
      */
     ImageWriter(int nX, int nY) {
+        this(nX, nY, false);
+    }
+
+    /**
+     * Image Writer constructor accepting View Plane parameters, with optional high
+     * dynamic range buffer
+     * @param nX  amount of pixels by Width
+     * @param nY  amount of pixels by height
+     * @param hdr true for keeping the unclamped colors for high dynamic range output
+     */
+    ImageWriter(int nX, int nY, boolean hdr) {
+        this.nX = nX;
+        this.nY = nY;
+
+        image    = new ImageFrameBuffer(new BufferedImage(nX, nY, BufferedImage.TYPE_INT_RGB));
+        this.hdr = hdr ? new float[3 * nX * nY] : null;
+    }
+
+    /**
+     * Image Writer constructor accepting View Plane parameters, keeping the pixel
+     * color matrix in a memory mapped file instead of the heap (for images larger
+     * than the heap)
+     * @param nX              amount of pixels by Width
+     * @param nY              amount of pixels by height
+     * @param frameBufferPath the path of the frame buffer file
+     */
+    ImageWriter(int nX, int nY, Path frameBufferPath) {
         this.nX = nX;
         this.nY = nY;
 
-        image   = new BufferedImage(nX, nY, BufferedImage.TYPE_INT_RGB);
+        image    = new MappedFrameBuffer(frameBufferPath, nX, nY, MappedFrameBuffer.SEGMENT_SIZE);
+        this.hdr = null;
+    }
+
+    /**
+     * Frame buffer of an image in the heap
+     * @param image the image
+     */
+    private record ImageFrameBuffer(BufferedImage image) implements FrameBuffer {
+        @Override
+        public void setRGB(int x, int y, int rgb) { image.setRGB(x, y, rgb); }
+
+        @Override
+        public void getRGB(int x0, int y0, int width, int height, int[] rgb) {
+            image.getRGB(x0, y0, width, height, rgb, 0, width);
+        }
+
+        @Override
+        public void setRGB(int x0, int y0, int width, int height, int[] rgb) {
+            image.setRGB(x0, y0, width, height, rgb, 0, width);
+        }
+
+        @Override
+        public void copyRGB(int x0, int y0, int width, int height, IntBuffer target, int offset, int stride) {
+            // the pixels array of the TYPE_INT_RGB image
+            int[] data = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+            for (int row = 0; row < height; ++row)
+                target.put(offset + row * stride, data, (y0 + row) * image.getWidth() + x0, width);
+        }
     }
 
     // ***************** Getters ********************** //
@@ -58,14 +133,25 @@ final class ImageWriter {
     // ***************** Operations ******************** //
 
     /**
-     * Function writeToImage produces unoptimized png file of the image according
+     * Function writeToImage produces png file of the image according
      * to pixel color matrix in the directory of the project
      * @param imageName the name of png file
      */
     void writeToImage(String imageName) {
+        writeToImage(imageName, PngEncoder.Compression.DEFAULT);
+    }
+
+    /**
+     * Function writeToImage produces png file of the image according to pixel
+     * color matrix in the directory of the project, compressing bands of the image
+     * in parallel
+     * @param imageName   the name of png file
+     * @param compression the compression level (e.g. fast compression for previews)
+     */
+    void writeToImage(String imageName, PngEncoder.Compression compression) {
         try {
-            File file = new File(FOLDER_PATH + '/' + imageName + ".png");
-            ImageIO.write(image, "png", file);
+            new PngEncoder(nX, nY, (y, rgb) -> image.getRGB(0, y, nX, 1, rgb), compression)
+                    .write(Path.of(FOLDER_PATH, imageName + ".png"));
         } catch (IOException e) {
             throw new IllegalStateException("I/O error - may be missing directory " + FOLDER_PATH, e);
         }
@@ -78,7 +164,250 @@ final class ImageWriter {
      * @param yIndex Y axis index of the pixel
      * @param color  final color of the pixel
      */
-    void writePixel(int xIndex, int yIndex, Color color) { image.setRGB(xIndex, yIndex, color.getColor().getRGB()); }
+    void writePixel(int xIndex, int yIndex, Color color) {
+        image.setRGB(xIndex, yIndex, color.getColor().getRGB());
+        if (hdr != null) {
+            Double3 rgb = color.getRgb();
+            int offset = 3 * (yIndex * nX + xIndex);
+            hdr[offset] = (float) (rgb.d1() / 255);
+            hdr[offset + 1] = (float) (rgb.d2() / 255);
+            hdr[offset + 2] = (float) (rgb.d3() / 255);
+        }
+    }
+
+    /**
+     * The function readPixels copies packed RGB values of a rectangular block of
+     * pixels from the pixel color matrix (row by row)
+     * @param  x0     X axis index of the first pixel of the block
+     * @param  y0     Y axis index of the first pixel of the block
+     * @param  width  width of the block
+     * @param  height height of the block
+     * @return        packed RGB values of the block's pixels
+     */
+    int[] readPixels(int x0, int y0, int width, int height) {
+        int[] rgb = new int[width * height];
+        image.getRGB(x0, y0, width, height, rgb);
+        return rgb;
+    }
+
+    /**
+     * Copies packed RGB values of a rectangular block of pixels straight into an
+     * int buffer (row by row), e.g. into a memory mapped file
+     * @param x0     X axis index of the first pixel of the block
+     * @param y0     Y axis index of the first pixel of the block
+     * @param width  width of the block
+     * @param height height of the block
+     * @param target the buffer
+     * @param offset index of the block's first pixel in the buffer
+     * @param stride distance between the block's rows in the buffer
+     */
+    void copyPixels(int x0, int y0, int width, int height, IntBuffer target, int offset, int stride) {
+        image.copyRGB(x0, y0, width, height, target, offset, stride);
+    }
+
+    /**
+     * The function writePixels writes packed RGB values of a rectangular block of
+     * pixels into the pixel color matrix (row by row)
+     * @param x0     X axis index of the first pixel of the block
+     * @param y0     Y axis index of the first pixel of the block
+     * @param width  width of the block
+     * @param height height of the block
+     * @param rgb    packed RGB values of the block's pixels
+     */
+    void writePixels(int x0, int y0, int width, int height, int[] rgb) {
+        image.setRGB(x0, y0, width, height, rgb);
+        if (hdr != null)
+            // the packed values are already clamped
+            for (int row = 0, i = 0; row < height; ++row)
+                for (int col = 0, offset = 3 * ((y0 + row) * nX + x0); col < width; ++col, ++i) {
+                    hdr[offset++] = (rgb[i] >> 16 & 0xFF) / 255f;
+                    hdr[offset++] = (rgb[i] >> 8 & 0xFF) / 255f;
+                    hdr[offset++] = (rgb[i] & 0xFF) / 255f;
+                }
+    }
+
+    /**
+     * The function readColors gives the colors of all the pixels as floats, where
+     * 1 is the full intensity (255) of the image - unclamped if there is a high
+     * dynamic range buffer
+     * @return red, green and blue of every pixel (row by row)
+     */
+    float[] readColors() {
+        if (hdr != null) return hdr.clone();
+        float[] colors = new float[3 * nX * nY];
+        int[] rgb = new int[nX];
+        for (int y = 0, offset = 0; y < nY; ++y) {
+            image.getRGB(0, y, nX, 1, rgb);
+            for (int x = 0; x < nX; ++x) {
+                colors[offset++] = (rgb[x] >> 16 & 0xFF) / 255f;
+                colors[offset++] = (rgb[x] >> 8 & 0xFF) / 255f;
+                colors[offset++] = (rgb[x] & 0xFF) / 255f;
+            }
+        }
+        return colors;
+    }
+
+    /**
+     * The function writeColors writes float colors of a rectangular region of
+     * pixels into the pixel color matrix (and the high dynamic range buffer)
+     * @param colors red, green and blue of every pixel of the image (row by row),
+     *               where 1 is the full intensity (255)
+     * @param x0     first pixel column of the region (included)
+     * @param y0     first pixel row of the region (included)
+     * @param x1     last pixel column of the region (excluded)
+     * @param y1     last pixel row of the region (excluded)
+     */
+    void writeColors(float[] colors, int x0, int y0, int x1, int y1) {
+        int[] rgb = new int[x1 - x0];
+        for (int y = y0; y < y1; ++y) {
+            for (int x = x0, offset = 3 * (y * nX + x0); x < x1; ++x, offset += 3)
+                rgb[x - x0] = 0xFF000000 | channel(colors[offset]) << 16
+                        | channel(colors[offset + 1]) << 8 | channel(colors[offset + 2]);
+            image.setRGB(x0, y, x1 - x0, 1, rgb);
+            if (hdr != null)
+                System.arraycopy(colors, 3 * (y * nX + x0), hdr, 3 * (y * nX + x0), 3 * (x1 - x0));
+        }
+    }
+
+    /**
+     * Converts a float color component to its clamped byte value
+     * @param  value the component, where 1 is the full intensity
+     * @return       the byte value
+     */
+    private static int channel(float value) {
+        return Math.max(0, Math.min(255, (int) (value * 255)));
+    }
+
+    /**
+     * Function writeToPfm produces a Portable Float Map file (little endian) of
+     * the high dynamic range buffer in the directory of the project
+     * @param imageName the name of pfm file
+     * @throws IllegalStateException if there is no high dynamic range buffer
+     */
+    void writeToPfm(String imageName) {
+        checkHdr();
+        Path path = Path.of(FOLDER_PATH, imageName + ".pfm");
+        try (FileChannel channel = FileChannel.open(path, WRITE, CREATE, TRUNCATE_EXISTING)) {
+            write(channel, ByteBuffer.wrap(("PF\n" + nX + " " + nY + "\n-1.0\n").getBytes(StandardCharsets.US_ASCII)));
+            ByteBuffer row = ByteBuffer.allocate(3 * nX * Float.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            // the rows are stored from the bottom to the top
+            for (int y = nY - 1; y >= 0; --y) {
+                row.clear();
+                row.asFloatBuffer().put(hdr, 3 * y * nX, 3 * nX);
+                write(channel, row);
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("I/O error - may be missing directory " + FOLDER_PATH, e);
+        }
+    }
+
+    /**
+     * Function writeToExr produces an uncompressed OpenEXR file (32 bits float
+     * scan lines) of the high dynamic range buffer in the directory of the project
+     * @param imageName the name of exr file
+     * @throws IllegalStateException if there is no high dynamic range buffer
+     */
+    void writeToExr(String imageName) {
+        checkHdr();
+        writeToExr(imageName, List.of(new ExrChannel("R", hdr, 3, 0), new ExrChannel("G", hdr, 3, 1),
+                new ExrChannel("B", hdr, 3, 2)));
+    }
+
+    /**
+     * Channel of an OpenEXR file: one float of every pixel (row by row) taken from
+     * an interleaved buffer
+     * @param name   the channel name
+     * @param data   the buffer
+     * @param stride amount of floats of a pixel in the buffer
+     * @param offset index of the channel's float in a pixel
+     */
+    record ExrChannel(String name, float[] data, int stride, int offset) {
+    }
+
+    /**
+     * Function writeToExr produces an uncompressed OpenEXR file (32 bits float
+     * scan lines) of arbitrary channels of the image (e.g. auxiliary buffers) in
+     * the directory of the project
+     * @param imageName the name of exr file
+     * @param channels  the channels of the file
+     */
+    void writeToExr(String imageName, List<ExrChannel> channels) {
+        // the channels are stored in alphabetical order
+        List<ExrChannel> sorted = channels.stream().sorted(Comparator.comparing(ExrChannel::name)).toList();
+        int channelsSize = 1;
+        for (ExrChannel channel : sorted) channelsSize += channel.name().length() + 17;
+        ByteBuffer header = ByteBuffer.allocate(512 + channelsSize).order(ByteOrder.LITTLE_ENDIAN);
+        header.putInt(EXR_MAGIC).putInt(2);
+        exrAttribute(header, "channels", "chlist", channelsSize);
+        for (ExrChannel channel : sorted)
+            header.put(channel.name().getBytes(StandardCharsets.US_ASCII)).put((byte) 0)
+                    .putInt(2).putInt(0).putInt(1).putInt(1); // float, linear, sampling
+        header.put((byte) 0);
+        exrAttribute(header, "compression", "compression", 1).put((byte) 0);
+        exrAttribute(header, "dataWindow", "box2i", 16).putInt(0).putInt(0).putInt(nX - 1).putInt(nY - 1);
+        exrAttribute(header, "displayWindow", "box2i", 16).putInt(0).putInt(0).putInt(nX - 1).putInt(nY - 1);
+        exrAttribute(header, "lineOrder", "lineOrder", 1).put((byte) 0);
+        exrAttribute(header, "pixelAspectRatio", "float", 4).putFloat(1);
+        exrAttribute(header, "screenWindowCenter", "v2f", 8).putFloat(0).putFloat(0);
+        exrAttribute(header, "screenWindowWidth", "float", 4).putFloat(1);
+        header.put((byte) 0);
+
+        int lineSize = 2 * Integer.BYTES + sorted.size() * nX * Float.BYTES;
+        long firstLine = header.position() + (long) nY * Long.BYTES;
+        ByteBuffer offsets = ByteBuffer.allocate(nY * Long.BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        for (int y = 0; y < nY; ++y) offsets.putLong(firstLine + (long) y * lineSize);
+
+        Path path = Path.of(FOLDER_PATH, imageName + ".exr");
+        try (FileChannel file = FileChannel.open(path, WRITE, CREATE, TRUNCATE_EXISTING)) {
+            write(file, header.flip());
+            write(file, offsets.flip());
+            ByteBuffer line = ByteBuffer.allocate(lineSize).order(ByteOrder.LITTLE_ENDIAN);
+            for (int y = 0; y < nY; ++y) {
+                line.clear();
+                line.putInt(y).putInt(lineSize - 2 * Integer.BYTES);
+                for (ExrChannel channel : sorted) {
+                    float[] data = channel.data();
+                    int stride = channel.stride();
+                    for (int x = 0, offset = stride * y * nX + channel.offset(); x < nX; ++x, offset += stride)
+                        line.putFloat(data[offset]);
+                }
+                write(file, line.flip());
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("I/O error - may be missing directory " + FOLDER_PATH, e);
+        }
+    }
+
+    /**
+     * Puts the name, type and size of an OpenEXR header attribute into the header
+     * @param  header the header
+     * @param  name   the attribute name
+     * @param  type   the attribute type
+     * @param  size   the size of the attribute value
+     * @return        the header
+     */
+    private static ByteBuffer exrAttribute(ByteBuffer header, String name, String type, int size) {
+        return header.put(name.getBytes(StandardCharsets.US_ASCII)).put((byte) 0)
+                .put(type.getBytes(StandardCharsets.US_ASCII)).put((byte) 0).putInt(size);
+    }
+
+    /**
+     * Checks that there is a high dynamic range buffer
+     * @throws IllegalStateException if there is no high dynamic range buffer
+     */
+    private void checkHdr() {
+        if (hdr == null) throw new IllegalStateException("ERROR: High dynamic range output is not enabled");
+    }
+
+    /**
+     * Writes a whole buffer to a file
+     * @param  channel     the file
+     * @param  buffer      the buffer
+     * @throws IOException in case of I/O error
+     */
+    private static void write(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) channel.write(buffer);
+    }
 
 }
 
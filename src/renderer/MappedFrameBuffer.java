@@ -0,0 +1,126 @@
+package renderer;
+
+import java.io.IOException;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+
+import static java.nio.file.StandardOpenOption.*;
+
+/**
+ * Frame buffer kept in a memory mapped file instead of the heap, for images much
+ * larger than the heap (e.g. poster prints).<br/>
+ * The pixels are organized in tiles of the rendering tiles' size, so that every
+ * rendered tile is written into one contiguous area of the file. Since a single
+ * mapping is limited to 2GB, the file is mapped by several segments of whole
+ * tiles. The file is kept after the rendering.
+ * @author Devorah Wajs and Guila Czerniewicz
+ */
+final class MappedFrameBuffer implements FrameBuffer {
+    /** Default size of a mapped segment in bytes */
+    static final long         SEGMENT_SIZE = 1L << 30;
+    /** Tile size (in pixels) */
+    private static final int  TILE         = PixelManager.TILE_SIZE;
+    /** Amount of pixels in a tile */
+    private static final int  TILE_PIXELS  = TILE * TILE;
+
+    /** Amount of tiles in a row of tiles */
+    private final int         tilesInRow;
+    /** Amount of tiles in a segment */
+    private final int         segmentTiles;
+    /** The mapped segments of the file */
+    private final IntBuffer[] segments;
+
+    /**
+     * Creates a frame buffer file and maps it
+     * @param  path                  the file path
+     * @param  nX                    horizontal resolution of the image
+     * @param  nY                    vertical resolution of the image
+     * @param  segmentSize           maximum size of a mapped segment in bytes
+     * @throws IllegalStateException in case of I/O error
+     */
+    MappedFrameBuffer(Path path, int nX, int nY, long segmentSize) {
+        tilesInRow = PixelManager.tilesCount(nX);
+        long tiles = (long) tilesInRow * PixelManager.tilesCount(nY);
+        segmentTiles = (int) Math.max(1, Math.min(segmentSize, Integer.MAX_VALUE) / (TILE_PIXELS * Integer.BYTES));
+        segments = new IntBuffer[(int) ((tiles + segmentTiles - 1) / segmentTiles)];
+        try (FileChannel channel = FileChannel.open(path, READ, WRITE, CREATE, TRUNCATE_EXISTING)) {
+            long segmentBytes = (long) segmentTiles * TILE_PIXELS * Integer.BYTES;
+            for (int i = 0; i < segments.length; ++i) {
+                long size = Math.min(segmentBytes, tiles * TILE_PIXELS * Integer.BYTES - i * segmentBytes);
+                segments[i] = channel.map(FileChannel.MapMode.READ_WRITE, i * segmentBytes, size).asIntBuffer();
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("I/O error - cannot create frame buffer " + path, e);
+        }
+    }
+
+    /**
+     * The segment holding a tile
+     * @param  tile the tile index
+     * @return      the segment
+     */
+    private IntBuffer segment(int tile) { return segments[tile / segmentTiles]; }
+
+    /**
+     * Index of a pixel in its segment
+     * @param  tile the index of the pixel's tile
+     * @param  x    X axis index of the pixel
+     * @param  y    Y axis index of the pixel
+     * @return      the index in the segment
+     */
+    private int index(int tile, int x, int y) {
+        return tile % segmentTiles * TILE_PIXELS + y % TILE * TILE + x % TILE;
+    }
+
+    /**
+     * Index of the tile holding a pixel
+     * @param  x X axis index of the pixel
+     * @param  y Y axis index of the pixel
+     * @return   the tile index
+     */
+    private int tile(int x, int y) { return y / TILE * tilesInRow + x / TILE; }
+
+    @Override
+    public void setRGB(int x, int y, int rgb) {
+        int tile = tile(x, y);
+        segment(tile).put(index(tile, x, y), rgb);
+    }
+
+    @Override
+    public void getRGB(int x0, int y0, int width, int height, int[] rgb) {
+        for (int row = 0; row < height; ++row)
+            for (int x = x0, y = y0 + row; x < x0 + width;) {
+                // the part of the row inside one tile is contiguous
+                int length = Math.min(x0 + width, (x / TILE + 1) * TILE) - x;
+                int tile = tile(x, y);
+                int offset = row * width + x - x0;
+                segment(tile).get(index(tile, x, y), rgb, offset, length);
+                // opaque pixels as in the image buffer
+                for (int i = offset; i < offset + length; ++i) rgb[i] |= 0xFF000000;
+                x += length;
+            }
+    }
+
+    @Override
+    public void setRGB(int x0, int y0, int width, int height, int[] rgb) {
+        for (int row = 0; row < height; ++row)
+            for (int x = x0, y = y0 + row; x < x0 + width;) {
+                int length = Math.min(x0 + width, (x / TILE + 1) * TILE) - x;
+                int tile = tile(x, y);
+                segment(tile).put(index(tile, x, y), rgb, row * width + x - x0, length);
+                x += length;
+            }
+    }
+
+    @Override
+    public void copyRGB(int x0, int y0, int width, int height, IntBuffer target, int offset, int stride) {
+        for (int row = 0; row < height; ++row)
+            for (int x = x0, y = y0 + row; x < x0 + width;) {
+                int length = Math.min(x0 + width, (x / TILE + 1) * TILE) - x;
+                int tile = tile(x, y);
+                target.put(offset + row * stride + x - x0, segment(tile), index(tile, x, y), length);
+                x += length;
+            }
+    }
+}
@@ -1,34 +1,43 @@
 package renderer;
 
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+
 /**
  * PixelManager is a helper class. It is used for multi-threading in the
  * renderer and
  * for follow up its progress.<br/>
- * A Camera uses one pixel manager object and several Pixel objects - one in
- * each thread.
+ * The image is divided into square tiles of pixels. A Camera uses one pixel
+ * manager object which allocates the tiles to the rendering threads - a tile
+ * is processed entirely by one thread.
  * @author Dan Zilberstein
  */
 class PixelManager {
     /**
-     * Immutable class for object containing allocated pixel (with its row and
-     * column numbers)
-     * @param col pixel column number
-     * @param row pixel row number
+     * Immutable class for object containing allocated tile of pixels.<br/>
+     * The tiles are aligned to the image's tile grid, tiles at the border of the
+     * rendered region are clipped by the region
+     * @param index index of the tile in the image's tile grid (row by row)
+     * @param x0    first pixel column of the tile
+     * @param y0    first pixel row of the tile
+     * @param x1    pixel column following the last column of the tile
+     * @param y1    pixel row following the last row of the tile
+     * @param whole true if the tile was not clipped by the rendered region
      */
-    record Pixel(int col, int row) {
+    record Tile(int index, int x0, int y0, int x1, int y1, boolean whole) {
     }
 
-    /** Maximum rows of pixels */
-    private int                 maxRows       = 0;
-    /** Maximum columns of pixels */
-    private int                 maxCols       = 0;
-    /** Total amount of pixels in the generated image */
+    /** Width and height of a tile in pixels */
+    static final int            TILE_SIZE     = 32;
+
+    /** The tiles to be processed */
+    private final List<Tile>    tiles         = new ArrayList<>();
+    /** Total amount of pixels to be processed */
     private long                totalPixels   = 0l;
 
-    /** Currently processed row of pixels */
-    private volatile int        cRow          = 0;
-    /** Currently processed column of pixels */
-    private volatile int        cCol          = -1;
+    /** Index of the next tile to be allocated */
+    private volatile int        cTile         = 0;
     /** Amount of pixels that have been processed */
     private volatile long       pixels        = 0l;
     /** Last printed progress update percentage */
@@ -41,7 +50,7 @@ class PixelManager {
     /** Printing format */
     private static final String PRINT_FORMAT  = "%5.1f%%\r";
     /**
-     * Mutual exclusion object for synchronizing next pixel allocation between
+     * Mutual exclusion object for synchronizing next tile allocation between
      * threads
      */
     private Object              mutexNext     = new Object();
@@ -52,51 +61,79 @@ class PixelManager {
     private Object              mutexPixels   = new Object();
 
     /**
-     * Initialize pixel manager data for multi-threading
-     * @param maxRows  the amount of pixel rows
-     * @param maxCols  the amount of pixel columns
+     * Initialize pixel manager data for multi-threading over a rectangular region
+     * of the image
+     * @param nX       the amount of pixel columns in the whole image
+     * @param nY       the amount of pixel rows in the whole image
+     * @param firstRow the first pixel row of the region
+     * @param firstCol the first pixel column of the region
+     * @param maxRows  the pixel row following the last row of the region
+     * @param maxCols  the pixel column following the last column of the region
+     * @param skip     tiles of the image's tile grid that are already finished,
+     *                 or null if all the tiles must be processed
      * @param interval print time interval in seconds, 0 if printing is not
      *                 required
      */
-    PixelManager(int maxRows, int maxCols, double... interval) {
+    PixelManager(int nX, int nY, int firstRow, int firstCol, int maxRows, int maxCols, BitSet skip, double... interval) {
         if (interval.length > 1) throw new IllegalArgumentException("only up to one interval argument is allowed");
-        this.maxRows  = maxRows;
-        this.maxCols  = maxCols;
-        totalPixels   = (long) maxRows * maxCols;
+        int tilesInRow = tilesCount(nX);
+        for (int tRow = firstRow / TILE_SIZE; tRow * TILE_SIZE < maxRows; ++tRow)
+            for (int tCol = firstCol / TILE_SIZE; tCol * TILE_SIZE < maxCols; ++tCol) {
+                int index = tRow * tilesInRow + tCol;
+                if (skip != null && skip.get(index)) continue;
+                int x0 = tCol * TILE_SIZE, y0 = tRow * TILE_SIZE;
+                int x1 = Math.min(x0 + TILE_SIZE, nX), y1 = Math.min(y0 + TILE_SIZE, nY);
+                Tile tile = new Tile(index, Math.max(x0, firstCol), Math.max(y0, firstRow),
+                        Math.min(x1, maxCols), Math.min(y1, maxRows),
+                        x0 >= firstCol && y0 >= firstRow && x1 <= maxCols && y1 <= maxRows);
+                tiles.add(tile);
+                totalPixels += (long) (tile.x1() - tile.x0()) * (tile.y1() - tile.y0());
+            }
         printInterval = interval.length == 0 ? printInterval : (long) (interval[0] * 10);
-        print         = printInterval != 0;
+        print         = printInterval != 0 && totalPixels != 0;
         if (print) System.out.printf(PRINT_FORMAT, 0d);
     }
 
     /**
-     * Function for thread-safe manipulating of main follow up Pixel object - this
+     * Calculates the amount of tiles covering a given amount of pixels along one
+     * axis of the image
+     * @param  pixels the amount of pixels
+     * @return        the amount of tiles
+     */
+    static int tilesCount(int pixels) { return (pixels + TILE_SIZE - 1) / TILE_SIZE; }
+
+    /**
+     * The list of all the tiles to be processed (for parallel streaming)
+     * @return the tiles list
+     */
+    List<Tile> tiles() { return tiles; }
+
+    /**
+     * Function for thread-safe manipulating of main follow up tile index - this
      * function is critical section for all the threads, and the pixel manager data
      * is the shared data of this critical section.<br/>
-     * The function provides next available pixel number each call.
-     * @return true if next pixel is allocated, false if there are no more pixels
+     * The function provides next available tile each call.
+     * @return the next tile, or null if there are no more tiles
      */
-    Pixel nextPixel() {
+    Tile nextTile() {
         synchronized (mutexNext) {
-            if (cRow == maxRows) return null;
-
-            ++cCol;
-            if (cCol < maxCols)
-                return new Pixel(cRow, cCol);
-
-            cCol = 0;
-            ++cRow;
-            if (cRow < maxRows)
-                return new Pixel(cRow, cCol);
+            return cTile < tiles.size() ? tiles.get(cTile++) : null;
         }
-        return null;
     }
 
     /** Finish pixel processing by updating and printing of progress percentage */
-    void pixelDone() {
+    void pixelDone() { pixelsDone(1); }
+
+    /**
+     * Finish processing of several pixels by updating and printing of progress
+     * percentage
+     * @param count the amount of the processed pixels
+     */
+    void pixelsDone(int count) {
         boolean flag       = false;
         int     percentage = 0;
         synchronized (mutexPixels) {
-            ++pixels;
+            pixels += count;
             if (print) {
                 percentage = (int) (1000l * pixels / totalPixels);
                 if (percentage - lastPrinted >= printInterval) {
@@ -107,4 +144,4 @@ class PixelManager {
             if (flag) System.out.printf(PRINT_FORMAT, percentage / 10d);
         }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,62 @@
+package renderer;
+
+import primitives.Color;
+import primitives.Double3;
+
+/**
+ * Running statistics of the color samples of a pixel - mean and variance of every
+ * color component, updated by Welford's algorithm without keeping the samples
+ * @author Devorah Wajs and Guila Czerniewicz
+ */
+final class PixelStatistics {
+    /** Critical value of the standard normal distribution for 95% confidence */
+    private static final double Z_95  = 1.96;
+
+    /** Amount of samples */
+    private int                 count = 0;
+    /** Mean of the red, green and blue components */
+    private double              meanR = 0, meanG = 0, meanB = 0;
+    /** Sums of the squared differences from the mean of the components */
+    private double              m2R   = 0, m2G = 0, m2B = 0;
+
+    /**
+     * Adds a sample
+     * @param color the sample's color
+     */
+    void add(Color color) {
+        Double3 rgb = color.getRgb();
+        ++count;
+        double deltaR = rgb.d1() - meanR;
+        double deltaG = rgb.d2() - meanG;
+        double deltaB = rgb.d3() - meanB;
+        meanR += deltaR / count;
+        meanG += deltaG / count;
+        meanB += deltaB / count;
+        m2R += deltaR * (rgb.d1() - meanR);
+        m2G += deltaG * (rgb.d2() - meanG);
+        m2B += deltaB * (rgb.d3() - meanB);
+    }
+
+    /**
+     * Amount of samples
+     * @return the amount of samples
+     */
+    int count() { return count; }
+
+    /**
+     * Mean color of the samples
+     * @return the mean color
+     */
+    Color mean() { return new Color(Math.max(0, meanR), Math.max(0, meanG), Math.max(0, meanB)); }
+
+    /**
+     * Half width of the 95% confidence interval of the mean of the noisiest color
+     * component, where 1 is the full intensity (255)
+     * @return the half width, infinity if there are less than 2 samples
+     */
+    double error() {
+        if (count < 2) return Double.POSITIVE_INFINITY;
+        double variance = Math.max(m2R, Math.max(m2G, m2B)) / (count - 1);
+        return Z_95 * Math.sqrt(variance / count) / 255;
+    }
+}
@@ -0,0 +1,323 @@
+package renderer;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.zip.Adler32;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+import static java.nio.file.StandardOpenOption.*;
+
+/**
+ * PNG encoder deflating bands of image rows in parallel.<br/>
+ * Every band of rows is filtered and compressed independently (primed with the
+ * last 32K of the preceding band as a dictionary) and becomes one IDAT chunk of
+ * the file. The bands are flushed to byte boundaries so that their compressed
+ * data concatenate into one valid zlib stream, whose checksum is combined from
+ * the checksums of the bands. The chunks are streamed to the file in order while
+ * the following bands are compressed, so only a few bands are held in memory.
+ * @author Devorah Wajs and Guila Czerniewicz
+ */
+final class PngEncoder {
+    /**
+     * Source of the image's pixels, read row by row (possibly by several threads
+     * concurrently)
+     */
+    @FunctionalInterface
+    interface PixelSource {
+        /**
+         * Reads the packed RGB values of one row of the image
+         * @param y   the row index
+         * @param rgb array for the row's pixels
+         */
+        void readRow(int y, int[] rgb);
+    }
+
+    /** Compression levels of the encoder */
+    enum Compression {
+        /** Fastest compression for previews - larger files */
+        FAST(Deflater.BEST_SPEED, 0x01),
+        /** Balanced compression */
+        DEFAULT(Deflater.DEFAULT_COMPRESSION, 0x9C),
+        /** Best compression - slower */
+        BEST(Deflater.BEST_COMPRESSION, 0xDA);
+
+        /** Deflater level */
+        private final int level;
+        /** zlib header flags byte for the level */
+        private final int flags;
+
+        /**
+         * Constructs a compression level
+         * @param level deflater level
+         * @param flags zlib header flags byte
+         */
+        Compression(int level, int flags) {
+            this.level = level;
+            this.flags = flags;
+        }
+    }
+
+    /** PNG file signature */
+    private static final byte[] SIGNATURE       = { (byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1A, '\n' };
+    /** Size of the uncompressed data of a band (approximately) */
+    private static final int    BAND_SIZE       = 1 << 18;
+    /** Size of the deflate dictionary */
+    private static final int    DICTIONARY_SIZE = 1 << 15;
+    /** Row filter type: difference from the left pixel */
+    private static final byte   FILTER_SUB      = 1;
+    /** Row filter type: Paeth predictor of the left, upper and upper-left pixels */
+    private static final byte   FILTER_PAETH    = 4;
+    /** Modulus of the Adler-32 checksum */
+    private static final long   ADLER_BASE      = 65521;
+
+    /** Image width */
+    private final int           width;
+    /** Image height */
+    private final int           height;
+    /** Source of the image's pixels */
+    private final PixelSource   source;
+    /** Compression level */
+    private final Compression   compression;
+    /** Size of a filtered row: filter type and 3 bytes per pixel */
+    private final int           rowSize;
+    /** Amount of rows in a band */
+    private final int           bandRows;
+
+    /**
+     * Compressed band of rows
+     * @param chunk  the IDAT chunk of the band
+     * @param adler  Adler-32 checksum of the band's uncompressed data
+     * @param length length of the band's uncompressed data
+     */
+    private record Band(byte[] chunk, long adler, long length) {
+    }
+
+    /**
+     * Constructs an encoder of an image
+     * @param width       image width
+     * @param height      image height
+     * @param source      source of the image's pixels
+     * @param compression compression level
+     */
+    PngEncoder(int width, int height, PixelSource source, Compression compression) {
+        this.width = width;
+        this.height = height;
+        this.source = source;
+        this.compression = compression;
+        rowSize = 1 + 3 * width;
+        bandRows = Math.max(1, BAND_SIZE / rowSize);
+    }
+
+    /**
+     * Encodes the image into a PNG file
+     * @param  path        the file path
+     * @throws IOException in case of I/O error
+     */
+    void write(Path path) throws IOException {
+        int bands = (height + bandRows - 1) / bandRows;
+        // bands compressed ahead of the band being written
+        int window = 2 * ForkJoinPool.getCommonPoolParallelism();
+        Queue<CompletableFuture<Band>> pending = new ArrayDeque<>();
+        try (FileChannel channel = FileChannel.open(path, WRITE, CREATE, TRUNCATE_EXISTING)) {
+            write(channel, ByteBuffer.wrap(SIGNATURE));
+            // 8 bits per sample, RGB, deflate, adaptive filtering, no interlace
+            writeChunk(channel, "IHDR", ByteBuffer.allocate(13).putInt(width).putInt(height)
+                    .put((byte) 8).put((byte) 2).put((byte) 0).put((byte) 0).put((byte) 0).array());
+
+            long adler = 1;
+            int next = 0;
+            for (int band = 0; band < bands; ++band) {
+                while (next < bands && pending.size() < window) {
+                    int index = next++;
+                    pending.add(CompletableFuture.supplyAsync(() -> compressBand(index, index == bands - 1)));
+                }
+                Band done = pending.remove().get();
+                write(channel, ByteBuffer.wrap(done.chunk()));
+                adler = adler32Combine(adler, done.adler(), done.length());
+            }
+
+            writeChunk(channel, "IDAT", ByteBuffer.allocate(4).putInt((int) adler).array());
+            writeChunk(channel, "IEND", new byte[0]);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("PNG encoding is interrupted", e);
+        } catch (ExecutionException e) {
+            throw new IOException("PNG encoding has failed", e.getCause());
+        }
+    }
+
+    /**
+     * Filters and compresses a band of rows into an IDAT chunk
+     * @param  band index of the band
+     * @param  last true for the last band of the image
+     * @return      the compressed band
+     */
+    private Band compressBand(int band, boolean last) {
+        int y0 = band * bandRows;
+        int y1 = Math.min(height, y0 + bandRows);
+        byte[] raw = filterRows(y0, y1);
+        Adler32 adler = new Adler32();
+        adler.update(raw);
+
+        Deflater deflater = new Deflater(compression.level, true);
+        ByteArrayOutputStream data = new ByteArrayOutputStream(raw.length / 2 + 64);
+        if (band == 0) {
+            data.write(0x78);
+            data.write(compression.flags);
+        } else {
+            int dictionaryRows = Math.min(y0, (DICTIONARY_SIZE + rowSize - 1) / rowSize);
+            byte[] previous = filterRows(y0 - dictionaryRows, y0);
+            int length = Math.min(previous.length, DICTIONARY_SIZE);
+            deflater.setDictionary(previous, previous.length - length, length);
+        }
+        deflater.setInput(raw);
+        if (last) deflater.finish();
+        byte[] buffer = new byte[1 << 16];
+        int flush = last ? Deflater.NO_FLUSH : Deflater.SYNC_FLUSH;
+        while (true) {
+            int count = deflater.deflate(buffer, 0, buffer.length, flush);
+            data.write(buffer, 0, count);
+            if (last ? deflater.finished() : count < buffer.length) break;
+        }
+        deflater.end();
+
+        ByteBuffer chunk = ByteBuffer.allocate(data.size() + 12);
+        putChunk(chunk, "IDAT", data.toByteArray());
+        return new Band(chunk.array(), adler.getValue(), raw.length);
+    }
+
+    /**
+     * Filters rows of the image for compression
+     * @param  y0 first row
+     * @param  y1 row following the last row
+     * @return    the filtered rows, each starting with its filter type
+     */
+    private byte[] filterRows(int y0, int y1) {
+        byte[] filtered = new byte[(y1 - y0) * rowSize];
+        int[] rgb = new int[width];
+        byte[] current = new byte[3 * width];
+        byte[] upper = new byte[3 * width];
+        if (y0 > 0 && compression != Compression.FAST) {
+            source.readRow(y0 - 1, rgb);
+            unpack(rgb, upper);
+        }
+        for (int y = y0, offset = 0; y < y1; ++y, offset += rowSize) {
+            source.readRow(y, rgb);
+            unpack(rgb, current);
+            if (compression == Compression.FAST) {
+                filtered[offset] = FILTER_SUB;
+                for (int i = 0; i < current.length; ++i)
+                    filtered[offset + 1 + i] = (byte) (current[i] - (i < 3 ? 0 : current[i - 3]));
+            } else {
+                filtered[offset] = FILTER_PAETH;
+                for (int i = 0; i < current.length; ++i) {
+                    int left = i < 3 ? 0 : current[i - 3] & 0xFF;
+                    int up = upper[i] & 0xFF;
+                    int upperLeft = i < 3 ? 0 : upper[i - 3] & 0xFF;
+                    filtered[offset + 1 + i] = (byte) (current[i] - paeth(left, up, upperLeft));
+                }
+                byte[] swap = upper;
+                upper = current;
+                current = swap;
+            }
+        }
+        return filtered;
+    }
+
+    /**
+     * Unpacks RGB values into bytes
+     * @param rgb   packed RGB values
+     * @param bytes the red, green and blue bytes of the values
+     */
+    private static void unpack(int[] rgb, byte[] bytes) {
+        for (int i = 0, j = 0; i < rgb.length; ++i) {
+            bytes[j++] = (byte) (rgb[i] >> 16);
+            bytes[j++] = (byte) (rgb[i] >> 8);
+            bytes[j++] = (byte) rgb[i];
+        }
+    }
+
+    /**
+     * Paeth predictor of a byte by its neighbours
+     * @param  left      the left byte
+     * @param  up        the upper byte
+     * @param  upperLeft the upper-left byte
+     * @return           the predicted byte
+     */
+    private static int paeth(int left, int up, int upperLeft) {
+        int p = left + up - upperLeft;
+        int pLeft = Math.abs(p - left);
+        int pUp = Math.abs(p - up);
+        int pUpperLeft = Math.abs(p - upperLeft);
+        if (pLeft <= pUp && pLeft <= pUpperLeft) return left;
+        return pUp <= pUpperLeft ? up : upperLeft;
+    }
+
+    /**
+     * Combines the Adler-32 checksums of two consecutive blocks of data into the
+     * checksum of the whole data
+     * @param  adler1  checksum of the first block
+     * @param  adler2  checksum of the second block
+     * @param  length2 length of the second block
+     * @return         checksum of the blocks together
+     */
+    static long adler32Combine(long adler1, long adler2, long length2) {
+        long remainder = length2 % ADLER_BASE;
+        long sum1 = adler1 & 0xFFFF;
+        long sum2 = remainder * sum1 % ADLER_BASE;
+        sum1 += (adler2 & 0xFFFF) + ADLER_BASE - 1;
+        sum2 += (adler1 >> 16 & 0xFFFF) + (adler2 >> 16 & 0xFFFF) + ADLER_BASE - remainder;
+        if (sum1 >= ADLER_BASE) sum1 -= ADLER_BASE;
+        if (sum1 >= ADLER_BASE) sum1 -= ADLER_BASE;
+        if (sum2 >= ADLER_BASE << 1) sum2 -= ADLER_BASE << 1;
+        if (sum2 >= ADLER_BASE) sum2 -= ADLER_BASE;
+        return sum1 | sum2 << 16;
+    }
+
+    /**
+     * Puts a PNG chunk (length, type, data and CRC) into a buffer
+     * @param buffer the buffer
+     * @param type   the chunk type
+     * @param data   the chunk data
+     */
+    private static void putChunk(ByteBuffer buffer, String type, byte[] data) {
+        byte[] typeBytes = type.getBytes(StandardCharsets.US_ASCII);
+        CRC32 crc = new CRC32();
+        crc.update(typeBytes);
+        crc.update(data);
+        buffer.putInt(data.length).put(typeBytes).put(data).putInt((int) crc.getValue());
+    }
+
+    /**
+     * Writes a PNG chunk to the file
+     * @param  channel     the file
+     * @param  type        the chunk type
+     * @param  data        the chunk data
+     * @throws IOException in case of I/O error
+     */
+    private static void writeChunk(FileChannel channel, String type, byte[] data) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(data.length + 12);
+        putChunk(buffer, type, data);
+        write(channel, buffer.flip());
+    }
+
+    /**
+     * Writes a whole buffer to the file
+     * @param  channel     the file
+     * @param  buffer      the buffer
+     * @throws IOException in case of I/O error
+     */
+    private static void write(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) channel.write(buffer);
+    }
+}
@@ -1,16 +1,25 @@
 package renderer;
 
+import geometries.Geometries;
+import geometries.Geometry;
+import geometries.RayPacket;
 import primitives.Color;
 import primitives.Ray;
 import scene.Scene;
 
+import java.io.Serializable;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
 
 /**
  * Abstract base class for ray tracing in a 3D scene.
  * Provides the structure for tracing rays and calculating their color.
  * @author Devorah Wajs and Guila Czerniewicz
  */
-public abstract class RayTracerBase {
+public abstract class RayTracerBase implements Serializable {
+    /** Serialization version */
+    private static final long serialVersionUID = 1L;
 
 
     /**
@@ -18,6 +27,18 @@ public abstract class RayTracerBase {
      */
     protected final Scene scene;
 
+    /**
+     * Ids of the scene's geometries - their indices in the order of their addition
+     * to the scene, computed when first needed
+     */
+    private transient volatile Map<Geometry, Integer> geometryIds = null;
+    /**
+     * Ids of the first triangles of the scene's compiled meshes - the ids of the
+     * other triangles follow them by the triangles' order in the mesh, so that
+     * the triangles don't have to be created for giving them ids
+     */
+    private transient Map<Geometries, Integer> meshIds = null;
+
 
     /**
      * Constructor for the RayTracerBase class.
@@ -38,4 +59,61 @@ public abstract class RayTracerBase {
      * @return the color resulting from tracing the ray
      */
     public abstract Color traceRay(Ray ray);
+
+    /**
+     * Traces a ray and calculates its color, recording the first hit data of the
+     * ray for the auxiliary buffers. By default nothing is recorded
+     *
+     * @param ray the ray to be traced
+     * @param sample the first hit data of the pixel's rays, or null
+     * @return the color resulting from tracing the ray
+     */
+    Color traceRay(Ray ray, GBuffer.Sample sample) {
+        return traceRay(ray);
+    }
+
+    /**
+     * Traces the rays of a packet and calculates their colors, recording the first
+     * hit data of every ray. By default the rays are traced one by one
+     *
+     * @param packet the ray packet
+     * @param samples the first hit data of the rays' pixels (for every lane), or null
+     * @param colors receives the colors of the rays (for every lane)
+     */
+    void tracePacket(RayPacket packet, GBuffer.Sample[] samples, Color[] colors) {
+        for (int lane = 0; lane < packet.size(); ++lane)
+            colors[lane] = traceRay(packet.ray(lane), samples == null ? null : samples[lane]);
+    }
+
+    /**
+     * Gives the id of a geometry of the scene - its index in the order of the
+     * geometries' addition to the scene (including nested collections)
+     *
+     * @param geometry the geometry
+     * @return the id of the geometry, -1 if it is not in the scene
+     */
+    int geometryId(Geometry geometry) {
+        Map<Geometry, Integer> ids = geometryIds;
+        if (ids == null) {
+            synchronized (this) {
+                ids = geometryIds;
+                if (ids == null) {
+                    Map<Geometry, Integer> map = new IdentityHashMap<>();
+                    Map<Geometries, Integer> meshes = new IdentityHashMap<>();
+                    int[] count = { 0 };
+                    scene.geometries.forEachGeometry(g -> {
+                        if (map.putIfAbsent(g, count[0]) == null) ++count[0];
+                    }, (mesh, size) -> {
+                        if (meshes.putIfAbsent(mesh, count[0]) == null) count[0] += size;
+                    });
+                    meshIds = meshes;
+                    geometryIds = ids = map;
+                }
+            }
+        }
+        Integer id = ids.get(geometry);
+        if (id != null) return id;
+        Integer meshId = meshIds.get(Geometries.meshOf(geometry));
+        return meshId == null ? -1 : meshId + Geometries.meshIndex(geometry);
+    }
 }
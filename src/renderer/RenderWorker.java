@@ -0,0 +1,149 @@
+package renderer;
+
+import java.io.*;
+import java.net.ConnectException;
+import java.net.Socket;
+import java.net.SocketException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Rendering worker process for distributed rendering by {@link DistributedRenderer}.<br/>
+ * The worker connects to the coordinator, receives the serialized camera (including
+ * its ray tracer and scene) and then renders the tiles it is given on demand,
+ * streaming the rendered pixels back to the coordinator. It runs until the
+ * coordinator finishes the rendering or closes the connection. If rendering a
+ * tile fails, the failure is reported to the coordinator and the connection is
+ * closed.
+ * <p>
+ * Usage: {@code java renderer.RenderWorker <host> <port> [threads]}
+ * @author Devorah Wajs and Guila Czerniewicz
+ */
+public final class RenderWorker {
+    /** Amount of attempts for connecting to the coordinator */
+    private static final int  CONNECT_ATTEMPTS = 60;
+    /** Delay between attempts for connecting to the coordinator (in milliseconds) */
+    private static final long CONNECT_DELAY    = 500;
+    /** Tile index reporting the coordinator that rendering a tile has failed */
+    static final int          TILE_FAILED      = -1;
+
+    /** Don't let anyone instantiate this class. */
+    private RenderWorker() {}
+
+    /**
+     * Worker process entry point
+     * @param  args                 coordinator host, coordinator port and
+     *                              (optionally) the amount of rendering threads
+     * @throws IOException          in case of communication error
+     * @throws InterruptedException if interrupted while waiting for the
+     *                              coordinator
+     */
+    public static void main(String[] args) throws IOException, InterruptedException {
+        if (args.length < 2 || args.length > 3)
+            throw new IllegalArgumentException("Usage: RenderWorker <host> <port> [threads]");
+        int threads = args.length == 3 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+        try (Socket socket = connect(args[0], Integer.parseInt(args[1]))) {
+            serve(socket, threads);
+        }
+    }
+
+    /**
+     * Connects to the coordinator, retrying while it is not listening yet
+     * @param  host                 coordinator host
+     * @param  port                 coordinator port
+     * @return                      the connected socket
+     * @throws IOException          if the coordinator cannot be reached
+     * @throws InterruptedException if interrupted while waiting between attempts
+     */
+    private static Socket connect(String host, int port) throws IOException, InterruptedException {
+        for (int attempt = 1;; ++attempt) {
+            try {
+                return new Socket(host, port);
+            } catch (ConnectException e) {
+                if (attempt == CONNECT_ATTEMPTS) throw e;
+                Thread.sleep(CONNECT_DELAY);
+            }
+        }
+    }
+
+    /**
+     * Serves the coordinator over a connected socket: receives the camera, reports
+     * the amount of tiles that may be rendered concurrently, and then renders the
+     * requested tiles until a negative tile index is received
+     * @param  socket      the connection to the coordinator
+     * @param  threads     amount of rendering threads
+     * @throws IOException in case of communication error
+     */
+    static void serve(Socket socket, int threads) throws IOException {
+        DataInputStream  in  = new DataInputStream(new BufferedInputStream(socket.getInputStream()));
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(socket.getOutputStream()));
+
+        byte[] data = new byte[in.readInt()];
+        in.readFully(data);
+        Camera camera;
+        try (ObjectInputStream objectIn = new ObjectInputStream(new ByteArrayInputStream(data))) {
+            camera = (Camera) objectIn.readObject();
+        } catch (ClassNotFoundException e) {
+            throw new IllegalStateException("ERROR: The worker cannot load the rendered scene", e);
+        }
+        out.writeInt(threads);
+        out.flush();
+
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        try {
+            int index;
+            while ((index = in.readInt()) >= 0) {
+                PixelManager.Tile tile = new PixelManager.Tile(index,
+                        in.readInt(), in.readInt(), in.readInt(), in.readInt(), true);
+                pool.execute(() -> renderTile(camera, tile, socket, out));
+            }
+        } catch (EOFException | SocketException ignored) {
+            // the coordinator (or a failed tile) has closed the connection
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    /**
+     * Renders a tile and sends its pixels to the coordinator. If rendering the tile
+     * fails, the failure is reported to the coordinator and the connection is
+     * closed; if the connection is broken, it is closed as well
+     * @param camera the rendered camera
+     * @param tile   the tile to render
+     * @param socket the connection to the coordinator
+     * @param out    the output stream of the connection
+     */
+    private static void renderTile(Camera camera, PixelManager.Tile tile, Socket socket, DataOutputStream out) {
+        try {
+            int[] rgb = camera.renderTilePixels(tile);
+            synchronized (out) {
+                out.writeInt(tile.index());
+                for (int pixel : rgb) out.writeInt(pixel);
+                out.flush();
+            }
+        } catch (RuntimeException | Error e) {
+            try {
+                synchronized (out) {
+                    out.writeInt(TILE_FAILED);
+                    out.writeUTF(String.valueOf(e));
+                    out.flush();
+                }
+            } catch (IOException ignored) {
+                // the connection is broken - it is closed below anyway
+            }
+            close(socket);
+        } catch (IOException e) {
+            close(socket);
+        }
+    }
+
+    /**
+     * Closes the connection to the coordinator, ignoring errors
+     * @param socket the connection
+     */
+    private static void close(Socket socket) {
+        try {
+            socket.close();
+        } catch (IOException ignored) {}
+    }
+}
@@ -0,0 +1,61 @@
+package renderer;
+
+import java.util.random.RandomGenerator;
+
+/**
+ * Counter-based random generator of a pixel.<br/>
+ * Every random number is a hash of the animation frame, the pixel, the index of
+ * the sample in the pixel and the dimension (the count of the numbers already
+ * drawn for the sample), without any state shared between the pixels. The numbers
+ * of a sample therefore don't depend on the threads, on the order of the pixels or
+ * on the numbers drawn for the other samples of the pixel, and the images are
+ * bit-identical in every rendering of the same frame.
+ * @author Devorah Wajs and Guila Czerniewicz
+ */
+final class SampleRandom implements RandomGenerator {
+    /** Golden ratio increment of the SplitMix64 sequence */
+    private static final long GOLDEN = 0x9E3779B97F4A7C15L;
+
+    /** Hash of the frame and the pixel */
+    private final long        key;
+    /** Index of the current sample */
+    private long              sample    = 0;
+    /** Dimension of the next number in the current sample */
+    private long              dimension = 0;
+
+    /**
+     * Constructs the generator of a pixel, starting with the sample of index 0
+     * @param frame the animation frame index
+     * @param pixel the pixel index in the image
+     */
+    SampleRandom(int frame, long pixel) {
+        key = mix(mix((frame + 1L) * GOLDEN) + pixel);
+    }
+
+    /**
+     * Starts drawing the numbers of a sample from its first dimension
+     * @param  index the sample index
+     * @return       the generator itself
+     */
+    SampleRandom sample(int index) {
+        sample = index;
+        dimension = 0;
+        return this;
+    }
+
+    @Override
+    public long nextLong() {
+        return mix(mix(key + sample * GOLDEN) + dimension++ * GOLDEN);
+    }
+
+    /**
+     * SplitMix64 finalizer - a bijective avalanche mix of 64 bits
+     * @param  z the bits
+     * @return   the mixed bits
+     */
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
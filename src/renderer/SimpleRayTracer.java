@@ -1,6 +1,7 @@
 package renderer;
 
 import geometries.Intersectable.Intersection;
+import geometries.RayPacket;
 import lighting.LightSource;
 import primitives.*;
 import scene.Scene;
@@ -14,6 +15,8 @@ import scene.Scene;
  * @author Devorah Wajs and Guila Czerniewicz
  */
 public class SimpleRayTracer extends RayTracerBase {
+    /** Serialization version */
+    private static final long serialVersionUID = 1L;
 
     /**
      * Creates a new SimpleRayTracer for the given scene.
@@ -58,6 +61,103 @@ public class SimpleRayTracer extends RayTracerBase {
                 : calcColor(intersections, ray);
     }
 
+    @Override
+    Color traceRay(Ray ray, GBuffer.Sample sample) {
+        if (sample == null) return traceRay(ray);
+        Intersection intersection = findClosestIntersection(ray);
+        return shade(ray, intersection, intersection == null ? scene.background : calcColor(intersection, ray), sample);
+    }
+
+    /**
+     * Intersects the rays of the packet with the scene's geometries together, then
+     * passes the shadow rays of their closest hits toward every light through the
+     * geometries together, and shades the closest hit of every ray by the
+     * transparencies of its shadow rays
+     */
+    @Override
+    void tracePacket(RayPacket packet, GBuffer.Sample[] samples, Color[] colors) {
+        scene.geometries.findClosestIntersections(packet);
+        Intersection[] intersections = new Intersection[packet.size()];
+        Intersection[] lit = new Intersection[packet.size()];
+        for (int lane = 0; lane < packet.size(); ++lane) {
+            Intersection intersection = packet.intersection(lane);
+            intersections[lane] = intersection;
+            if (intersection != null && preprocessIntersection(intersection, packet.ray(lane).getDirection()))
+                lit[lane] = intersection;
+        }
+        Double3[][] transparencies = transparencies(lit);
+        for (int lane = 0; lane < packet.size(); ++lane) {
+            Color color = intersections[lane] == null ? scene.background
+                    : lit[lane] == null ? Color.BLACK : calcPreprocessedColor(lit[lane], transparencies[lane]);
+            colors[lane] = samples == null ? color : shade(packet.ray(lane), intersections[lane], color, samples[lane]);
+        }
+    }
+
+    /**
+     * Calculates the transparencies of the shadow rays of several intersections
+     * toward every light, passing the shadow rays toward a light through the
+     * geometries together in a ray packet
+     *
+     * @param intersections the preprocessed intersections (up to a packet's
+     *                      width), null where there is no intersection
+     * @return the transparency of the shadow ray of every intersection toward
+     *         every light (in the order of the lights), null where the light
+     *         doesn't contribute to the intersection
+     */
+    private Double3[][] transparencies(Intersection[] intersections) {
+        Double3[][] transparencies = new Double3[intersections.length][scene.lights.size()];
+        RayPacket shadows = new RayPacket();
+        int[] lanes = new int[RayPacket.WIDTH];
+        int light = 0;
+        for (LightSource lightSource : scene.lights) {
+            shadows.clear();
+            for (int lane = 0; lane < intersections.length; ++lane) {
+                Intersection intersection = intersections[lane];
+                if (intersection == null || !setLightSource(intersection, lightSource)) continue;
+                lanes[shadows.size()] = lane;
+                shadows.add(shadowRay(intersection), lightSource.getDistance(intersection.point));
+            }
+            if (shadows.size() > 0) scene.geometries.findTransparencies(shadows, MIN_CALC_COLOR_K);
+            for (int i = 0; i < shadows.size(); ++i)
+                transparencies[lanes[i]][light] = shadows.transparency(i);
+            ++light;
+        }
+        return transparencies;
+    }
+
+    /**
+     * Records the first hit data of a ray by its closest intersection
+     *
+     * @param ray the ray
+     * @param intersection the closest intersection of the ray, or null
+     * @param color the color of the ray
+     * @param sample the first hit data of the pixel's rays
+     * @return the color of the ray
+     */
+    private Color shade(Ray ray, Intersection intersection, Color color, GBuffer.Sample sample) {
+        if (intersection == null) {
+            sample.miss(color);
+            return color;
+        }
+        Vector normal = intersection.rayNormalDot > 0
+                ? intersection.normalIntersection.scale(-1) : intersection.normalIntersection;
+        sample.hit(ray.getPoint(0).distance(intersection.point), normal, albedo(intersection),
+                geometryId(intersection.geometry));
+        return color;
+    }
+
+    /**
+     * Calculates the albedo of the surface at an intersection: its diffuse
+     * coefficient together with its emission, at most 1
+     *
+     * @param intersection the intersection
+     * @return the albedo
+     */
+    private Double3 albedo(Intersection intersection) {
+        Double3 albedo = intersection.material.kD.add(intersection.geometry.getEmission().getRgb().reduce(255));
+        return new Double3(Math.min(1, albedo.d1()), Math.min(1, albedo.d2()), Math.min(1, albedo.d3()));
+    }
+
     /**
      * Computes the color at a given intersection point using recursive color calculation.
      *
@@ -69,9 +169,23 @@ public class SimpleRayTracer extends RayTracerBase {
      * @return the resulting color at the intersection point
      */
     private Color calcColor(Intersection intersection, Ray ray) {
-        return preprocessIntersection(intersection, ray.getDirection()) ?
-                calcColor(intersection, MAX_CALC_COLOR_LEVEL, INITIAL_K)
-                        .add(scene.ambientLight.getIntensity().scale(intersection.material.kA)) : Color.BLACK;
+        return preprocessIntersection(intersection, ray.getDirection())
+                ? calcPreprocessedColor(intersection, null) : Color.BLACK;
+    }
+
+    /**
+     * Computes the color at a preprocessed intersection point of a ray from the
+     * camera, with the transparencies of its shadow rays if they are already
+     * known.
+     *
+     * @param intersection the preprocessed intersection
+     * @param transparencies the transparencies of the shadow rays toward every
+     *                       light, or null for tracing them
+     * @return the resulting color at the intersection point
+     */
+    private Color calcPreprocessedColor(Intersection intersection, Double3[] transparencies) {
+        return calcColor(intersection, MAX_CALC_COLOR_LEVEL, INITIAL_K, transparencies)
+                .add(scene.ambientLight.getIntensity().scale(intersection.material.kA));
     }
 
     /**
@@ -83,7 +197,23 @@ public class SimpleRayTracer extends RayTracerBase {
      * @return the resulting color at the intersection
      */
     private Color calcColor(Intersection intersection, int level, Double3 k) {
-        Color color = calcLocalEffects(intersection, k);
+        return calcColor(intersection, level, k, null);
+    }
+
+    /**
+     * Calculates the total color at an intersection point including local and
+     * global lighting effects, with the transparencies of its shadow rays if they
+     * are already known.
+     *
+     * @param intersection the intersection point for which to calculate the color
+     * @param level the recursion level for global lighting (reflection/refraction)
+     * @param k the accumulated transparency/reflection coefficient
+     * @param transparencies the transparencies of the shadow rays toward every
+     *                       light, or null for tracing them
+     * @return the resulting color at the intersection
+     */
+    private Color calcColor(Intersection intersection, int level, Double3 k, Double3[] transparencies) {
+        Color color = calcLocalEffects(intersection, k, transparencies);
         return 1 == level ? color : color.add(calcGlobalEffects(intersection, level, k));
     }
 
@@ -119,14 +249,21 @@ public class SimpleRayTracer extends RayTracerBase {
      * Calculates the local lighting effects (diffuse and specular) at the intersection point.
      *
      * @param intersection the intersection to evaluate
+     * @param k the accumulated transparency/reflection coefficient
+     * @param transparencies the transparencies of the shadow rays toward every
+     *                       light, or null for tracing them
      * @return the resulting color from all local light sources
      */
-    private Color calcLocalEffects(Intersection intersection, Double3 k) {
+    private Color calcLocalEffects(Intersection intersection, Double3 k, Double3[] transparencies) {
         Color color = intersection.geometry.getEmission();
+        int light = 0;
         for (LightSource lightSource : scene.lights) {
-            if (!setLightSource(intersection, lightSource))
+            if (!setLightSource(intersection, lightSource)) {
+                ++light;
                 continue;
-            Double3 ktr = transparency(intersection);
+            }
+            Double3 ktr = transparencies == null ? transparency(intersection) : transparencies[light];
+            ++light;
             if (!ktr.product(k).lowerThan(MIN_CALC_COLOR_K)) {
                 Color iL = lightSource.getIntensity(intersection.point).scale(ktr);
                 color = color.add(
@@ -166,8 +303,7 @@ public class SimpleRayTracer extends RayTracerBase {
      * @return true if the point is not shadowed (i.e., light reaches it), false otherwise
      */
     private boolean unshaded(Intersection intersection) {
-        var intersections = scene.geometries.calculateIntersections(
-                new Ray(intersection.point, intersection.lightDirection.scale(-1), intersection.normalIntersection),
+        var intersections = scene.geometries.calculateIntersections(shadowRay(intersection),
                 intersection.lightSource.getDistance(intersection.point));
         if (intersections == null)
             return true;
@@ -188,8 +324,7 @@ public class SimpleRayTracer extends RayTracerBase {
      * @return the accumulated transparency factor along the path to the light source
      */
     private Double3 transparency(Intersection intersection) {
-        var intersections = scene.geometries.calculateIntersections(
-                new Ray(intersection.point, intersection.lightDirection.scale(-1), intersection.normalIntersection),
+        var intersections = scene.geometries.calculateIntersections(shadowRay(intersection),
                 intersection.lightSource.getDistance(intersection.point));
         Double3 ktr = Double3.ONE;
         if (intersections == null)
@@ -205,6 +340,16 @@ public class SimpleRayTracer extends RayTracerBase {
 
     }
 
+    /**
+     * Constructs the shadow ray from the intersection point toward the current light source.
+     *
+     * @param intersection the intersection point with its light source
+     * @return the shadow ray
+     */
+    private Ray shadowRay(Intersection intersection) {
+        return new Ray(intersection.point, intersection.lightDirection.scale(-1), intersection.normalIntersection);
+    }
+
     /**
      * Calculates the global lighting effects (reflection and refraction) at the intersection point.
      *
@@ -264,8 +409,7 @@ public class SimpleRayTracer extends RayTracerBase {
      * @return the closest intersection, or {@code null} if there are no intersections
      */
     private Intersection findClosestIntersection(Ray ray) {
-        var intersections = scene.geometries.calculateIntersections(ray);
-        return intersections == null ? null : ray.findClosestIntersection(intersections);
+        return scene.geometries.calculateClosestIntersection(ray);
     }
 
 }
\ No newline at end of file
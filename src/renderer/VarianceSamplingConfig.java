@@ -0,0 +1,67 @@
+package renderer;
+
+import java.io.Serializable;
+
+/**
+ * Configuration class for variance-driven adaptive sampling in a ray tracing
+ * renderer.
+ * <p>
+ * Every pixel is sampled by batches of rays spread over the pixel (and over the
+ * aperture when depth of field is enabled) while the running mean and variance of
+ * the pixel's color are kept. The sampling of the pixel stops when the confidence
+ * interval of the mean is narrower than the tolerance or when the maximum amount
+ * of samples is reached, so flat regions get few samples and detailed regions
+ * get many.
+ */
+public class VarianceSamplingConfig implements Serializable {
+    /** Serialization version */
+    private static final long serialVersionUID = 1L;
+
+    /**
+     * Indicates whether variance-driven sampling is enabled.
+     * It is set to true if {@code maxSamples > 0}.
+     */
+    public final boolean enabled;
+
+    /**
+     * The maximum half width of the 95% confidence interval of the pixel's color,
+     * where 1 is the full intensity (255).
+     */
+    public final double tolerance;
+
+    /**
+     * The amount of samples added to a pixel between two convergence checks.
+     */
+    public final int batchSize;
+
+    /**
+     * The maximum amount of samples of a pixel.
+     */
+    public final int maxSamples;
+
+    /**
+     * Constructs a new VarianceSamplingConfig with the given parameters.
+     *
+     * @param tolerance  the maximum half width of the confidence interval (1 is the full intensity)
+     * @param batchSize  the amount of samples of a batch (at least 2)
+     * @param maxSamples the maximum amount of samples of a pixel (set 0 to disable)
+     * @throws IllegalArgumentException if a parameter is out of its range
+     */
+    public VarianceSamplingConfig(double tolerance, int batchSize, int maxSamples) {
+        if (tolerance <= 0)
+            throw new IllegalArgumentException("ERROR: The tolerance must be positive");
+        if (batchSize < 2)
+            throw new IllegalArgumentException("ERROR: A batch must have at least 2 samples");
+        if (maxSamples < 0)
+            throw new IllegalArgumentException("ERROR: The maximum amount of samples cannot be negative");
+        this.enabled = maxSamples > 0;
+        this.tolerance = tolerance;
+        this.batchSize = batchSize;
+        this.maxSamples = maxSamples;
+    }
+
+    /**
+     * A static configuration representing variance-driven sampling being disabled.
+     */
+    public static final VarianceSamplingConfig DISABLED = new VarianceSamplingConfig(0.01, 16, 0);
+}
@@ -0,0 +1,260 @@
+package renderer;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.stream.MemoryCacheImageOutputStream;
+
+import static java.nio.file.StandardOpenOption.*;
+
+/**
+ * Video writer producing a Motion-JPEG AVI file from the images rendered by
+ * cameras (e.g. the frames of an {@link AnimationRenderer}).<br/>
+ * The frame's pixels are copied from the camera when the frame is written, and the
+ * frame is compressed and appended to the file by a background thread, so that the
+ * next frame may be rendered meanwhile. A bounded queue of waiting frames limits
+ * the memory when the encoding is slower than the rendering.
+ * <p>
+ * Example:
+ * <pre>{@code
+ * try (VideoWriter video = new VideoWriter("orbit", 30)) {
+ *     new AnimationRenderer(120, path).render((camera, i) -> video.writeFrame(camera));
+ * }
+ * }</pre>
+ * @author Devorah Wajs and Guila Czerniewicz
+ */
+public class VideoWriter implements AutoCloseable {
+    /** Size of the AVI headers preceding the frames data */
+    private static final int     HEADER_SIZE  = 224;
+    /** Position of the "movi" list type, from which the frame offsets are counted */
+    private static final int     MOVI_OFFSET  = 220;
+    /** Amount of frames waiting for encoding */
+    private static final int     QUEUE_SIZE   = 4;
+    /** Index entry flag of a key frame */
+    private static final int     KEY_FRAME    = 0x10;
+    /** End of frames mark in the frames queue */
+    private static final int[]   END          = new int[0];
+
+    /** The video file */
+    private final FileChannel    channel;
+    /** The video file path */
+    private final Path           path;
+    /** Frames per second */
+    private final double         framesPerSecond;
+    /** JPEG compression quality between 0 and 1 */
+    private float                quality      = 0.9f;
+    /** Frames waiting for encoding */
+    private final BlockingQueue<int[]> queue  = new ArrayBlockingQueue<>(QUEUE_SIZE);
+    /** Background thread encoding the frames */
+    private final Thread         encoder;
+    /** Index of the written frames: offset and size of each frame */
+    private ByteBuffer           index        = ByteBuffer.allocate(1024).order(ByteOrder.LITTLE_ENDIAN);
+    /** Horizontal resolution of the video, set by the first frame */
+    private int                  nX           = 0;
+    /** Vertical resolution of the video, set by the first frame */
+    private int                  nY           = 0;
+    /** Amount of written frames */
+    private int                  frames       = 0;
+    /** Size of the largest frame */
+    private int                  maxFrameSize = 0;
+    /** Error of the background encoding, if any */
+    private volatile Throwable   failure      = null;
+
+    /**
+     * Constructs a video writer creating the video file in the images directory
+     * @param  videoName             the name of the AVI file
+     * @param  framesPerSecond       frame rate of the video
+     * @throws IllegalStateException if the file cannot be created
+     */
+    public VideoWriter(String videoName, double framesPerSecond) {
+        if (framesPerSecond <= 0) throw new IllegalArgumentException("ERROR: Frame rate must be positive");
+        this.framesPerSecond = framesPerSecond;
+        path = Path.of(ImageWriter.FOLDER_PATH, videoName + ".avi");
+        try {
+            channel = FileChannel.open(path, WRITE, CREATE, TRUNCATE_EXISTING);
+            channel.position(HEADER_SIZE);
+        } catch (IOException e) {
+            throw new IllegalStateException("I/O error - may be missing directory " + ImageWriter.FOLDER_PATH, e);
+        }
+        encoder = new Thread(this::encode, "video encoder");
+        encoder.start();
+    }
+
+    /**
+     * Sets the JPEG compression quality of the frames
+     * @param  quality quality between 0 (smallest file) and 1 (best image)
+     * @return         the video writer itself
+     */
+    public VideoWriter setQuality(double quality) {
+        if (quality < 0 || quality > 1) throw new IllegalArgumentException("ERROR: Quality must be between 0 and 1");
+        this.quality = (float) quality;
+        return this;
+    }
+
+    /**
+     * Appends the image rendered by a camera to the video. The image is copied, and
+     * it is encoded in the background. All the frames must have the resolution of
+     * the first frame
+     * @param  camera                the camera holding the rendered image
+     * @return                       the video writer itself
+     * @throws IllegalStateException if the encoding of a previous frame has failed
+     */
+    public VideoWriter writeFrame(Camera camera) {
+        ImageWriter image = camera.getImageWriter();
+        if (nX == 0) {
+            nX = image.nX();
+            nY = image.nY();
+        } else if (nX != image.nX() || nY != image.nY())
+            throw new IllegalArgumentException("ERROR: All the frames must have the same resolution");
+        checkFailure();
+        try {
+            queue.put(image.readPixels(0, 0, nX, nY));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return this;
+    }
+
+    /**
+     * Encodes the queued frames and appends them to the file until the end of
+     * frames mark
+     */
+    private void encode() {
+        javax.imageio.ImageWriter jpeg = ImageIO.getImageWritersByFormatName("jpeg").next();
+        ImageWriteParam param = jpeg.getDefaultWriteParam();
+        param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try {
+            for (int[] rgb; (rgb = queue.take()) != END;) {
+                if (failure != null) continue; // keep draining so that the rendering is not blocked
+                bytes.reset();
+                try (MemoryCacheImageOutputStream out = new MemoryCacheImageOutputStream(bytes)) {
+                    BufferedImage image = new BufferedImage(nX, nY, BufferedImage.TYPE_INT_RGB);
+                    image.setRGB(0, 0, nX, nY, rgb, 0, nX);
+                    param.setCompressionQuality(quality);
+                    jpeg.setOutput(out);
+                    jpeg.write(null, new IIOImage(image, null, null), param);
+                    out.flush();
+                    appendFrame(bytes.toByteArray());
+                } catch (Throwable e) {
+                    // any failure, otherwise the writers would wait forever on the full queue
+                    failure = e;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            jpeg.dispose();
+        }
+    }
+
+    /**
+     * Appends a compressed frame chunk to the file and records it in the index
+     * @param  data        the JPEG data of the frame
+     * @throws IOException in case of I/O error
+     */
+    private void appendFrame(byte[] data) throws IOException {
+        int offset = (int) channel.position() - MOVI_OFFSET;
+        ByteBuffer chunk = ByteBuffer.allocate(8 + data.length + (data.length & 1)).order(ByteOrder.LITTLE_ENDIAN);
+        chunk.put(fourCC("00dc")).putInt(data.length).put(data).flip();
+        while (chunk.hasRemaining()) channel.write(chunk);
+
+        if (index.remaining() < 16) {
+            ByteBuffer larger = ByteBuffer.allocate(index.capacity() * 2).order(ByteOrder.LITTLE_ENDIAN);
+            index = larger.put(index.flip());
+        }
+        index.put(fourCC("00dc")).putInt(KEY_FRAME).putInt(offset).putInt(data.length);
+        maxFrameSize = Math.max(maxFrameSize, data.length);
+        ++frames;
+    }
+
+    /**
+     * Throws the error of the background encoding, if any
+     * @throws IllegalStateException if the encoding has failed
+     */
+    private void checkFailure() {
+        if (failure instanceof IOException)
+            throw new IllegalStateException("I/O error - cannot write video " + path, failure);
+        if (failure != null) throw new IllegalStateException("ERROR: Encoding of video " + path + " has failed", failure);
+    }
+
+    /**
+     * Waits for the encoding of all the written frames, and completes the file with
+     * the frames index and the headers
+     * @throws IllegalStateException in case of I/O error
+     */
+    @Override
+    public void close() {
+        try {
+            queue.put(END);
+            encoder.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        try (channel) {
+            checkFailure();
+            long moviEnd = channel.position();
+            ByteBuffer idx = ByteBuffer.allocate(8).order(ByteOrder.LITTLE_ENDIAN);
+            idx.put(fourCC("idx1")).putInt(index.position()).flip();
+            channel.write(idx);
+            index.flip();
+            while (index.hasRemaining()) channel.write(index);
+            channel.write(headers((int) channel.position(), (int) moviEnd), 0);
+        } catch (IOException e) {
+            throw new IllegalStateException("I/O error - cannot write video " + path, e);
+        }
+    }
+
+    /**
+     * Builds the AVI headers: RIFF header, main AVI header, video stream headers
+     * and the beginning of the frames list
+     * @param  fileSize the total file size
+     * @param  moviEnd  the position following the frames list
+     * @return          the headers
+     */
+    private ByteBuffer headers(int fileSize, int moviEnd) {
+        int rate = (int) Math.round(framesPerSecond * 1000);
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        header.put(fourCC("RIFF")).putInt(fileSize - 8).put(fourCC("AVI "))
+                .put(fourCC("LIST")).putInt(192).put(fourCC("hdrl"))
+                // main AVI header
+                .put(fourCC("avih")).putInt(56)
+                .putInt((int) Math.round(1_000_000 / framesPerSecond))
+                .putInt((int) Math.min(Integer.MAX_VALUE, (long) (maxFrameSize * framesPerSecond)))
+                .putInt(0).putInt(KEY_FRAME).putInt(frames).putInt(0).putInt(1).putInt(maxFrameSize)
+                .putInt(nX).putInt(nY).putInt(0).putInt(0).putInt(0).putInt(0)
+                // video stream header
+                .put(fourCC("LIST")).putInt(116).put(fourCC("strl"))
+                .put(fourCC("strh")).putInt(56).put(fourCC("vids")).put(fourCC("MJPG"))
+                .putInt(0).putInt(0).putInt(0).putInt(1000).putInt(rate).putInt(0).putInt(frames)
+                .putInt(maxFrameSize).putInt(-1).putInt(0)
+                .putShort((short) 0).putShort((short) 0).putShort((short) nX).putShort((short) nY)
+                // video stream format
+                .put(fourCC("strf")).putInt(40).putInt(40).putInt(nX).putInt(nY)
+                .putShort((short) 1).putShort((short) 24).put(fourCC("MJPG")).putInt(nX * nY * 3)
+                .putInt(0).putInt(0).putInt(0).putInt(0)
+                // frames list
+                .put(fourCC("LIST")).putInt(moviEnd - MOVI_OFFSET).put(fourCC("movi"));
+        return header.flip();
+    }
+
+    /**
+     * Converts a four characters code to its bytes
+     * @param  code the code
+     * @return      the bytes of the code
+     */
+    private static byte[] fourCC(String code) {
+        return code.getBytes(StandardCharsets.US_ASCII);
+    }
+}
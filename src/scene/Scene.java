@@ -6,6 +6,7 @@ import lighting.LightSource;
 import primitives.Color;
 import targetAreas.TargetArea;
 
+import java.io.Serializable;
 import java.util.LinkedList;
 import java.util.List;
 
@@ -13,7 +14,10 @@ import java.util.List;
  * Scene class represents a scene in the 3D space
  * @author Devorah Wajs and Guila Czerniewicz
  */
-public class Scene {
+public class Scene implements Serializable {
+    /** Serialization version */
+    private static final long serialVersionUID = 1L;
+
     /**
      * Name of the scene
      */
@@ -37,6 +41,7 @@ public class Scene {
     /**
      * List of light sources in the scene
      */
+    @SuppressWarnings("serial") // the scene's lights are kept in serializable JDK lists
     public List<LightSource> lights = new LinkedList<>();
     /**
      * Defines the sampling pattern used for generating points on a target area in the scene.
@@ -0,0 +1,228 @@
+package scene;
+
+import geometries.Geometries;
+import primitives.Color;
+import primitives.Material;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InvalidClassException;
+import java.io.ObjectInputFilter;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
+import java.io.Serializable;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static java.nio.file.StandardOpenOption.*;
+
+/**
+ * Compiled scene file, loaded in milliseconds instead of building the scene in
+ * code at every run.<br/>
+ * The file holds a small header, the compiled blocks of the scene's triangle
+ * meshes (the geometries collections holding only triangles) with their
+ * precomputed intersection data and bounds, and the rest of the scene - its
+ * lights, its other geometries and the appearances of the meshes' triangles -
+ * serialized. The loader memory maps the blocks of the meshes and intersects them
+ * in place, without parsing them: the triangles of a mesh are created only when
+ * they are first hit.
+ * @author Devorah Wajs and Guila Czerniewicz
+ */
+public final class SceneFile {
+    /** File format magic number ("RTSC") */
+    private static final int MAGIC       = 0x52545343;
+    /** File format version */
+    private static final int VERSION     = 3;
+    /**
+     * Header size in bytes: magic, version, meshes count, reserved, offset and
+     * length of the serialized scene
+     */
+    private static final int HEADER_SIZE = 4 * Integer.BYTES + 2 * Long.BYTES;
+    /**
+     * Alignment of the mesh blocks in the file - a cache line, so that the
+     * columns of the triangles' values inside the mapped blocks are aligned as
+     * well
+     */
+    private static final int ALIGNMENT   = 64;
+    /**
+     * Filter of the deserialized classes - only the classes of the scene's
+     * packages and the JDK collections, arrays and enums which they hold, so
+     * that a crafted file cannot deserialize any other class of the class path
+     */
+    private static final ObjectInputFilter FILTER = ObjectInputFilter.Config.createFilter(
+            "scene.*;geometries.*;primitives.*;lighting.*;targetAreas.*;"
+                    + "java.lang.Object;java.lang.Enum;java.util.LinkedList;java.util.ArrayList;"
+                    + "java.util.ImmutableCollections$*;java.util.CollSer;!*");
+
+    /**
+     * Reference to a compiled mesh in the serialized scene
+     * @param index     the mesh index in the file
+     * @param emissions the emissions of the appearances of the mesh's triangles
+     * @param materials the materials of the appearances of the mesh's triangles
+     */
+    private record MeshReference(int index, Color[] emissions, Material[] materials) implements Serializable {
+    }
+
+    /**
+     * Appearance of a triangle
+     * @param emission the emission color
+     * @param material the material
+     */
+    private record Appearance(Color emission, Material material) {
+    }
+
+    /** Private constructor to prevent instantiation */
+    private SceneFile() {
+    }
+
+    /**
+     * Compiles a scene into a file
+     * @param  scene                 the scene
+     * @param  path                  the file path
+     * @throws IllegalStateException in case of I/O error
+     */
+    public static void compile(Scene scene, Path path) {
+        List<ByteBuffer> meshes = new ArrayList<>();
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes) {
+            {
+                enableReplaceObject(true);
+            }
+
+            @Override
+            protected Object replaceObject(Object object) {
+                return object instanceof Geometries geometries ? compileMesh(geometries, meshes) : object;
+            }
+        }) {
+            out.writeObject(scene);
+        } catch (IOException e) {
+            throw new IllegalStateException("I/O error - cannot serialize scene " + scene.name, e);
+        }
+
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE + meshes.size() * 2 * Long.BYTES)
+                .order(ByteOrder.LITTLE_ENDIAN);
+        long[] offsets = new long[meshes.size()];
+        long offset = align(header.capacity());
+        for (int i = 0; i < offsets.length; ++i) {
+            offsets[i] = offset;
+            offset = align(offset + meshes.get(i).remaining());
+        }
+        header.putInt(MAGIC).putInt(VERSION).putInt(meshes.size()).putInt(0).putLong(offset).putLong(bytes.size());
+        for (int i = 0; i < offsets.length; ++i)
+            header.putLong(offsets[i]).putLong(meshes.get(i).remaining());
+
+        try (FileChannel channel = FileChannel.open(path, WRITE, CREATE, TRUNCATE_EXISTING)) {
+            write(channel, header.flip(), 0);
+            for (int i = 0; i < offsets.length; ++i)
+                write(channel, meshes.get(i), offsets[i]);
+            write(channel, ByteBuffer.wrap(bytes.toByteArray()), offset);
+        } catch (IOException e) {
+            throw new IllegalStateException("I/O error - cannot write compiled scene " + path, e);
+        }
+    }
+
+    /**
+     * Loads a compiled scene from a file
+     * @param  path                     the file path
+     * @return                          the scene
+     * @throws IllegalArgumentException if the file is not a compiled scene of
+     *                                  this version, or if it holds a class
+     *                                  which is not allowed in a scene
+     * @throws IllegalStateException    in case of I/O error
+     */
+    public static Scene load(Path path) {
+        try (FileChannel channel = FileChannel.open(path, READ)) {
+            if (channel.size() < HEADER_SIZE)
+                throw new IllegalArgumentException("ERROR: " + path + " is not a compiled scene");
+            ByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_SIZE)
+                    .order(ByteOrder.LITTLE_ENDIAN);
+            if (header.getInt(0) != MAGIC)
+                throw new IllegalArgumentException("ERROR: " + path + " is not a compiled scene");
+            if (header.getInt(4) != VERSION)
+                throw new IllegalArgumentException("ERROR: Unsupported compiled scene version " + header.getInt(4));
+
+            int count = header.getInt(8);
+            ByteBuffer table = channel.map(FileChannel.MapMode.READ_ONLY, HEADER_SIZE, count * 2L * Long.BYTES)
+                    .order(ByteOrder.LITTLE_ENDIAN);
+            ByteBuffer[] meshes = new ByteBuffer[count];
+            for (int i = 0; i < count; ++i)
+                meshes[i] = channel.map(FileChannel.MapMode.READ_ONLY,
+                        table.getLong(i * 2 * Long.BYTES), table.getLong((i * 2 + 1) * Long.BYTES));
+
+            byte[] data = new byte[Math.toIntExact(header.getLong(24))];
+            channel.map(FileChannel.MapMode.READ_ONLY, header.getLong(16), data.length).get(data);
+            try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(data)) {
+                {
+                    enableResolveObject(true);
+                    setObjectInputFilter(FILTER);
+                }
+
+                @Override
+                protected Object resolveObject(Object object) {
+                    return object instanceof MeshReference mesh
+                            ? Geometries.loadMesh(meshes[mesh.index()], mesh.emissions(), mesh.materials())
+                            : object;
+                }
+            }) {
+                return (Scene) in.readObject();
+            } catch (InvalidClassException e) {
+                throw new IllegalArgumentException("ERROR: The compiled scene holds a class which cannot be loaded: "
+                        + e.getMessage(), e);
+            } catch (ClassNotFoundException e) {
+                throw new IllegalStateException("ERROR: The compiled scene cannot be loaded", e);
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("I/O error - cannot load compiled scene " + path, e);
+        }
+    }
+
+    /**
+     * Compiles the geometries of a collection if all of them are triangles
+     * @param  geometries the geometries
+     * @param  meshes     the compiled meshes, the new mesh is added to them
+     * @return            the reference to the compiled mesh, or the geometries
+     *                    themselves if they are not all triangles
+     */
+    private static Object compileMesh(Geometries geometries, List<ByteBuffer> meshes) {
+        Map<Appearance, Integer> appearances = new HashMap<>();
+        ByteBuffer block = geometries.compileMesh(geometry -> appearances.computeIfAbsent(
+                new Appearance(geometry.getEmission(), geometry.getMaterial()), appearance -> appearances.size()));
+        if (block == null) return geometries;
+
+        Color[] emissions = new Color[appearances.size()];
+        Material[] materials = new Material[appearances.size()];
+        appearances.forEach((appearance, index) -> {
+            emissions[index] = appearance.emission();
+            materials[index] = appearance.material();
+        });
+        meshes.add(block);
+        return new MeshReference(meshes.size() - 1, emissions, materials);
+    }
+
+    /**
+     * Rounds a file offset up to the alignment of the mesh blocks
+     * @param  offset the offset
+     * @return        the aligned offset
+     */
+    private static long align(long offset) {
+        return (offset + ALIGNMENT - 1) & -ALIGNMENT;
+    }
+
+    /**
+     * Writes a whole buffer into a file at a position
+     * @param  channel     the file channel
+     * @param  buffer      the buffer
+     * @param  position    the position in the file
+     * @throws IOException in case of I/O error
+     */
+    private static void write(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) position += channel.write(buffer, position);
+    }
+}
@@ -2,8 +2,7 @@ package targetAreas;
 
 import primitives.*;
 
-import java.util.LinkedList;
-import java.util.List;
+import java.util.random.RandomGenerator;
 
 /**
  * Represents a circular target area for distributing rays in a 3D space.
@@ -12,6 +11,9 @@ import java.util.List;
  * methods for generating sampling points on its surface using different patterns.
  */
 public class CircleTargetArea extends TargetArea {
+    /** Serialization version */
+    private static final long serialVersionUID = 1L;
+
     /**
      * The radius of the target area.
      */
@@ -57,59 +59,74 @@ public class CircleTargetArea extends TargetArea {
     }
 
     @Override
-    public List<Point> generatePoints() {
+    public void forEachPoint(RandomGenerator random, PointConsumer action) {
         // Generate points according to the specified sampling pattern
-        return samplingPattern == SamplingPattern.RANDOM ? generateRandomPoints()
-                : generateGridPoints();
+        switch (samplingPattern) {
+            case RANDOM -> generateRandomPoints(random, action);
+            case GRID, JITTERED -> generateGridPoints(random, action);
+            case HALTON, SOBOL, R2 -> generateSequencePoints(random, action);
+        }
+    }
+
+    /**
+     * Maps the unit square to the circle by the concentric mapping (Shirley and
+     * Chiu), which keeps the relative areas and the adjacency of the square's
+     * regions, so that stratified and low-discrepancy points stay well spread
+     */
+    @Override
+    public Point samplePoint(double u, double v) {
+        double a = 2 * u - 1, b = 2 * v - 1;
+        if (a == 0 && b == 0) return targetCenter;
+        double r, theta;
+        if (a * a > b * b) {
+            r = radius * a;
+            theta = Math.PI / 4 * (b / a);
+        } else {
+            r = radius * b;
+            theta = Math.PI / 2 - Math.PI / 4 * (a / b);
+        }
+        return pointAt(r * Math.cos(theta), r * Math.sin(theta));
     }
 
     /**
      * Generates points using a random sampling pattern.
+     *
+     * @param random the random number generator
+     * @param action the receiver of the points' coordinates
      */
-    private List<Point> generateRandomPoints() {
-        List<Point> points = new LinkedList<>();
+    private void generateRandomPoints(RandomGenerator random, PointConsumer action) {
         for (int i = 0; i < numSamples; i++) {
-            double theta = RANDOM.nextDouble() * 2 * Math.PI;
-            double r = Math.sqrt(RANDOM.nextDouble()) * radius;
-            double x = r * Math.cos(theta);
-            double y = r * Math.sin(theta);
-            Point targetPoint = targetCenter;
-            if (!Util.isZero(x)) targetPoint = targetPoint.add(xVec.scale(x));
-            if (!Util.isZero(y)) targetPoint = targetPoint.add(yVec.scale(y));
-            points.add(targetPoint);
+            double theta = random.nextDouble() * 2 * Math.PI;
+            double r = Math.sqrt(random.nextDouble()) * radius;
+            acceptAt(r * Math.cos(theta), r * Math.sin(theta), action);
         }
-
-        return points;
     }
 
     /**
      * Generates points using a grid sampling pattern.
      * Adding jitter when chosen
+     *
+     * @param random the random number generator
+     * @param action the receiver of the points' coordinates
      */
-    private List<Point> generateGridPoints() {
-        List<Point> points = new LinkedList<>();
+    private void generateGridPoints(RandomGenerator random, PointConsumer action) {
         int adjustedNumSamples = (int) (numSamples * SQUARE_TO_CIRCLE_RATIO);
         int gridSize = (int) Math.ceil(Math.sqrt(adjustedNumSamples));
         double cellSize = 2 * radius / gridSize;
-        for (int i = 0; i < gridSize && points.size() < numSamples; i++) {
-            for (int j = 0; j < gridSize && points.size() < numSamples; j++) {
-                double x = -radius + cellSize * (i + 0.5);
-                double y = -radius + cellSize * (j + 0.5);
-                if (samplingPattern == SamplingPattern.JITTERED) {
-                    double jitterX = (RANDOM.nextDouble() - 0.5) * cellSize * 0.8;
-                    double jitterY = (RANDOM.nextDouble() - 0.5) * cellSize * 0.8;
-                    x += jitterX;
-                    y += jitterY;
-                }
-                if (x * x + y * y <= radius * radius) {
-                    Point targetPoint = targetCenter;
-                    if (!Util.isZero(x)) targetPoint = targetPoint.add(xVec.scale(x));
-                    if (!Util.isZero(y)) targetPoint = targetPoint.add(yVec.scale(y));
-                    points.add(targetPoint);
-                }
+        // the cells' centers of the grid size are computed once
+        double[] cells = gridTable(gridSize, gridSize, gridSize * gridSize);
+        int count = 0;
+        for (int k = 0; k < cells.length && count < numSamples; k += 2) {
+            double x = (2 * cells[k] - 1) * radius;
+            double y = (2 * cells[k + 1] - 1) * radius;
+            if (samplingPattern == SamplingPattern.JITTERED) {
+                x += (random.nextDouble() - 0.5) * cellSize * 0.8;
+                y += (random.nextDouble() - 0.5) * cellSize * 0.8;
+            }
+            if (x * x + y * y <= radius * radius) {
+                acceptAt(x, y, action);
+                ++count;
             }
         }
-
-        return points;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,87 @@
+package targetAreas;
+
+/**
+ * Two dimensional low-discrepancy sequences of the unit square: Halton, Sobol and
+ * R2. Their points cover the square much more evenly than random points, so the
+ * estimates sampled by them converge faster.
+ */
+final class LowDiscrepancySequence {
+    /** Scale of a 32 bits fraction */
+    private static final double FRACTION_32 = 0x1p-32;
+    /** The plastic number - the base of the R2 sequence */
+    private static final double PLASTIC     = 1.32471795724474602596;
+    /** Increment of the first coordinate of the R2 sequence */
+    private static final double R2_ALPHA_1  = 1 / PLASTIC;
+    /** Increment of the second coordinate of the R2 sequence */
+    private static final double R2_ALPHA_2  = 1 / (PLASTIC * PLASTIC);
+    /** Direction numbers of the second dimension of the Sobol sequence */
+    private static final int[]  SOBOL_2     = new int[32];
+
+    static {
+        // primitive polynomial x + 1
+        SOBOL_2[0] = 1 << 31;
+        for (int k = 1; k < 32; ++k) SOBOL_2[k] = SOBOL_2[k - 1] ^ SOBOL_2[k - 1] >>> 1;
+    }
+
+    /** Don't let anyone instantiate this class. */
+    private LowDiscrepancySequence() {}
+
+    /**
+     * Radical inverse of an index in a base (the Halton sequence of the base)
+     *
+     * @param index the index in the sequence
+     * @param base  the base (a prime)
+     * @return the value between 0 and 1
+     */
+    static double halton(int index, int base) {
+        double value = 0, fraction = 1.0 / base;
+        for (int i = index; i > 0; i /= base, fraction /= base) value += i % base * fraction;
+        return value;
+    }
+
+    /**
+     * Coordinate of a point of the Sobol sequence as 32 bits fraction
+     *
+     * @param index     the index in the sequence
+     * @param dimension the coordinate - 0 or 1
+     * @return the bits of the coordinate
+     */
+    static int sobol(int index, int dimension) {
+        if (dimension == 0) return Integer.reverse(index);
+        int bits = 0;
+        for (int k = 0; index != 0; ++k, index >>>= 1)
+            if ((index & 1) != 0) bits ^= SOBOL_2[k];
+        return bits;
+    }
+
+    /**
+     * Converts a 32 bits fraction to its value
+     *
+     * @param bits the fraction's bits
+     * @return the value between 0 and 1
+     */
+    static double fraction(int bits) {
+        return Integer.toUnsignedLong(bits) * FRACTION_32;
+    }
+
+    /**
+     * First coordinate of a point of the R2 sequence (additive recurrence by the
+     * plastic number)
+     *
+     * @param index the index in the sequence
+     * @return the value between 0 and 1
+     */
+    static double r2First(int index) {
+        return (0.5 + R2_ALPHA_1 * index) % 1;
+    }
+
+    /**
+     * Second coordinate of a point of the R2 sequence
+     *
+     * @param index the index in the sequence
+     * @return the value between 0 and 1
+     */
+    static double r2Second(int index) {
+        return (0.5 + R2_ALPHA_2 * index) % 1;
+    }
+}
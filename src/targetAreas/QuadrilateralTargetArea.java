@@ -2,8 +2,7 @@ package targetAreas;
 
 import primitives.*;
 
-import java.util.LinkedList;
-import java.util.List;
+import java.util.random.RandomGenerator;
 
 /**
  * A subclass of TargetArea representing a rectangular (quadrilateral) target area.
@@ -11,6 +10,8 @@ import java.util.List;
  * sampling points using different patterns such as RANDOM, GRID, or JITTERED.
  */
 public class QuadrilateralTargetArea extends TargetArea {
+    /** Serialization version */
+    private static final long serialVersionUID = 1L;
 
     /**
      * Represents the height of the quadrilateral target area.
@@ -58,60 +59,57 @@ public class QuadrilateralTargetArea extends TargetArea {
     }
 
     @Override
-    public List<Point> generatePoints() {
+    public void forEachPoint(RandomGenerator random, PointConsumer action) {
         // Generate points according to the specified sampling pattern
-        return samplingPattern == SamplingPattern.RANDOM ? generateRandomPoints()
-                : generateGridPoints();
+        switch (samplingPattern) {
+            case RANDOM -> generateRandomPoints(random, action);
+            case GRID, JITTERED -> generateGridPoints(random, action);
+            case HALTON, SOBOL, R2 -> generateSequencePoints(random, action);
+        }
+    }
+
+    @Override
+    public Point samplePoint(double u, double v) {
+        return pointAt((u - 0.5) * width, (v - 0.5) * height);
     }
 
     /**
      * Generates points using a random sampling pattern.
+     *
+     * @param random the random number generator
+     * @param action the receiver of the points' coordinates
      */
-    private List<Point> generateRandomPoints() {
-        List<Point> points = new LinkedList<>();
+    private void generateRandomPoints(RandomGenerator random, PointConsumer action) {
         for (int i = 0; i < numSamples; i++) {
-            double x = (RANDOM.nextDouble() - 0.5) * width;
-            double y = (RANDOM.nextDouble() - 0.5) * height;
-            Point targetPoint = targetCenter;
-            if (!Util.isZero(x)) targetPoint = targetPoint.add(xVec.scale(x));
-            if (!Util.isZero(y)) targetPoint = targetPoint.add(yVec.scale(y));
-            points.add(targetPoint);
+            double x = (random.nextDouble() - 0.5) * width;
+            double y = (random.nextDouble() - 0.5) * height;
+            acceptAt(x, y, action);
         }
-        return points;
     }
 
     /**
      * Generates points using a grid sampling pattern.
      * Adding jitter when chosen
+     *
+     * @param random the random number generator
+     * @param action the receiver of the points' coordinates
      */
-    private List<Point> generateGridPoints() {
-        List<Point> points = new LinkedList<>();
+    private void generateGridPoints(RandomGenerator random, PointConsumer action) {
         double aspectRatio = width / height;
-
         int gridSizeY = (int) Math.round(Math.sqrt(numSamples / aspectRatio));
         int gridSizeX = (int) Math.round((double) numSamples / gridSizeY);
-
         double cellWidth = width / gridSizeX;
         double cellHeight = height / gridSizeY;
-
-        for (int i = 0; i < gridSizeX && points.size() < numSamples; i++) {
-            for (int j = 0; j < gridSizeY && points.size() < numSamples; j++) {
-                double x = -width / 2 + cellWidth * (i + 0.5);
-                double y = -height / 2 + cellHeight * (j + 0.5);
-
-                if (samplingPattern == SamplingPattern.JITTERED) {
-                    double jitterX = (RANDOM.nextDouble() - 0.5) * cellWidth * 0.8;
-                    double jitterY = (RANDOM.nextDouble() - 0.5) * cellHeight * 0.8;
-                    x += jitterX;
-                    y += jitterY;
-                }
-
-                Point targetPoint = targetCenter;
-                if (!Util.isZero(x)) targetPoint = targetPoint.add(xVec.scale(x));
-                if (!Util.isZero(y)) targetPoint = targetPoint.add(yVec.scale(y));
-                points.add(targetPoint);
+        // the cells' centers of the grid size are computed once
+        double[] cells = gridTable(gridSizeX, gridSizeY, numSamples);
+        for (int k = 0; k < cells.length; k += 2) {
+            double x = (cells[k] - 0.5) * width;
+            double y = (cells[k + 1] - 0.5) * height;
+            if (samplingPattern == SamplingPattern.JITTERED) {
+                x += (random.nextDouble() - 0.5) * cellWidth * 0.8;
+                y += (random.nextDouble() - 0.5) * cellHeight * 0.8;
             }
+            acceptAt(x, y, action);
         }
-        return points;
     }
-}
\ No newline at end of file
+}
@@ -3,14 +3,21 @@ import primitives.Point;
 import primitives.Ray;
 import primitives.Vector;
 
+import java.io.Serializable;
+import java.util.ArrayList;
 import java.util.List;
-import java.util.Random;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.random.RandomGenerator;
 
 /**
  * Represents a target area for distributing rays in a geometric region.
  * Used for implementing antialiasing, soft shadows, and diffuse reflections.
  */
-public abstract class TargetArea {
+public abstract class TargetArea implements Serializable {
+    /** Serialization version */
+    private static final long serialVersionUID = 1L;
 
     /**
      * Enumeration defining different patterns for sampling points on the target area.
@@ -27,7 +34,37 @@ public abstract class TargetArea {
         /**
          * Grid sampling with jittered (randomized) positions
          */
-        JITTERED
+        JITTERED,
+        /**
+         * Halton sequence (bases 2 and 3) with a random toroidal shift
+         * (Cranley-Patterson rotation) for every set of points
+         */
+        HALTON,
+        /**
+         * Sobol sequence scrambled by a random digital shift for every set of points
+         */
+        SOBOL,
+        /**
+         * R2 sequence (additive recurrence by the plastic number) with a random
+         * toroidal shift (Cranley-Patterson rotation) for every set of points
+         */
+        R2
+    }
+
+    /**
+     * Receiver of the coordinates of generated points, so that samplers may use the
+     * points one by one without creating lists of points
+     */
+    @FunctionalInterface
+    public interface PointConsumer {
+        /**
+         * Receives a point
+         *
+         * @param x the X coordinate of the point
+         * @param y the Y coordinate of the point
+         * @param z the Z coordinate of the point
+         */
+        void accept(double x, double y, double z);
     }
 
     /**
@@ -62,9 +99,25 @@ public abstract class TargetArea {
     protected final SamplingPattern samplingPattern;
 
     /**
-     * Random number generator for sampling methods.
+     * The target area's frame as plain coordinates: the center, the X-axis and the
+     * Y-axis (3 coordinates each), for mapping offsets to points without
+     * intermediate vectors
      */
-    static final Random RANDOM = new Random();
+    private final double[] frame;
+
+    /**
+     * Key of a precomputed table of unit offsets
+     *
+     * @param pattern the sampling pattern
+     * @param columns the amount of grid columns (0 for a sequence)
+     * @param rows    the amount of grid rows (0 for a sequence)
+     * @param samples the amount of samples
+     */
+    private record TableKey(SamplingPattern pattern, int columns, int rows, int samples) {
+    }
+
+    /** Precomputed tables of unit offsets (pairs of coordinates in the unit square) */
+    private static final Map<TableKey, double[]> TABLES = new ConcurrentHashMap<>();
 
     /**
      * Constructs a TargetArea object with specified parameters including orientation,
@@ -83,6 +136,7 @@ public abstract class TargetArea {
         this.samplingPattern = samplingPattern;
         this.xVec = x;
         this.yVec = normal.crossProduct(xVec).normalize();
+        this.frame = frame(targetCenter, xVec, yVec);
     }
 
     /**
@@ -108,6 +162,62 @@ public abstract class TargetArea {
         // Create an orthogonal coordinate system on the target area
         this.xVec = baseVector.crossProduct(normal).normalize();
         this.yVec = normal.crossProduct(xVec).normalize();
+        this.frame = frame(targetCenter, xVec, yVec);
+    }
+
+    /**
+     * Gives the coordinates of a frame
+     *
+     * @param center the center
+     * @param x      the X-axis
+     * @param y      the Y-axis
+     * @return the coordinates of the center and of the axes
+     */
+    private static double[] frame(Point center, Vector x, Vector y) {
+        return new double[] { center.getX(), center.getY(), center.getZ(),
+                x.getX(), x.getY(), x.getZ(), y.getX(), y.getY(), y.getZ() };
+    }
+
+    /**
+     * Gives the precomputed centers of the cells of a grid over the unit square
+     * (column by column), computed once for every grid size
+     *
+     * @param columns the amount of columns
+     * @param rows    the amount of rows
+     * @param samples the maximum amount of cells
+     * @return pairs of coordinates of the cells' centers
+     */
+    protected static double[] gridTable(int columns, int rows, int samples) {
+        return TABLES.computeIfAbsent(new TableKey(SamplingPattern.GRID, columns, rows, samples), key -> {
+            int cells = Math.min(samples, columns * rows);
+            double[] table = new double[2 * cells];
+            for (int i = 0, k = 0; i < columns && k < table.length; i++)
+                for (int j = 0; j < rows && k < table.length; j++) {
+                    table[k++] = (i + 0.5) / columns;
+                    table[k++] = (j + 0.5) / rows;
+                }
+            return table;
+        });
+    }
+
+    /**
+     * Gives the precomputed points of a low-discrepancy sequence (HALTON or R2),
+     * computed once for every amount of samples
+     *
+     * @param pattern the sampling pattern
+     * @param samples the amount of samples
+     * @return pairs of coordinates of the points
+     */
+    private static double[] sequenceTable(SamplingPattern pattern, int samples) {
+        return TABLES.computeIfAbsent(new TableKey(pattern, 0, 0, samples), key -> {
+            double[] table = new double[2 * samples];
+            for (int i = 0; i < samples; i++) {
+                boolean halton = pattern == SamplingPattern.HALTON;
+                table[2 * i] = halton ? LowDiscrepancySequence.halton(i, 2) : LowDiscrepancySequence.r2First(i);
+                table[2 * i + 1] = halton ? LowDiscrepancySequence.halton(i, 3) : LowDiscrepancySequence.r2Second(i);
+            }
+            return table;
+        });
     }
 
     /**
@@ -116,5 +226,101 @@ public abstract class TargetArea {
      *
      * @return a list of generated points within the target area
      */
-    public abstract List<Point> generatePoints();
-}
\ No newline at end of file
+    public List<Point> generatePoints() {
+        return generatePoints(ThreadLocalRandom.current());
+    }
+
+    /**
+     * Generates a list of points based on the defined sampling pattern,
+     * number of samples, and other properties of the target area, drawing the
+     * random numbers from a given generator (e.g. a generator of the pixel).
+     *
+     * @param random the random number generator
+     * @return a list of generated points within the target area
+     */
+    public List<Point> generatePoints(RandomGenerator random) {
+        List<Point> points = new ArrayList<>(numSamples);
+        forEachPoint(random, (x, y, z) -> points.add(new Point(x, y, z)));
+        return points;
+    }
+
+    /**
+     * Generates the points of {@link #generatePoints(RandomGenerator)} one by one,
+     * passing the coordinates of every point to a receiver without creating the
+     * list of points.
+     *
+     * @param random the random number generator
+     * @param action the receiver of the points' coordinates
+     */
+    public abstract void forEachPoint(RandomGenerator random, PointConsumer action);
+
+    /**
+     * Generates the points of a low-discrepancy sequence (HALTON, SOBOL or R2),
+     * randomized for every set of points so that neighbouring pixels do not share
+     * the same pattern
+     *
+     * @param random the random number generator
+     * @param action the receiver of the points' coordinates
+     */
+    protected void generateSequencePoints(RandomGenerator random, PointConsumer action) {
+        if (samplingPattern == SamplingPattern.SOBOL) {
+            int scrambleU = random.nextInt(), scrambleV = random.nextInt();
+            for (int i = 0; i < numSamples; i++)
+                accept(samplePoint(LowDiscrepancySequence.fraction(LowDiscrepancySequence.sobol(i, 0) ^ scrambleU),
+                        LowDiscrepancySequence.fraction(LowDiscrepancySequence.sobol(i, 1) ^ scrambleV)), action);
+            return;
+        }
+        double shiftU = random.nextDouble(), shiftV = random.nextDouble();
+        double[] table = sequenceTable(samplingPattern, numSamples);
+        for (int i = 0; i < table.length; i += 2)
+            accept(samplePoint((table[i] + shiftU) % 1, (table[i + 1] + shiftV) % 1), action);
+    }
+
+    /**
+     * Passes the coordinates of a point to a receiver
+     *
+     * @param point  the point
+     * @param action the receiver of the point's coordinates
+     */
+    private static void accept(Point point, PointConsumer action) {
+        action.accept(point.getX(), point.getY(), point.getZ());
+    }
+
+    /**
+     * Maps a point of the unit square to a point of the target area, so that
+     * uniformly distributed coordinates give uniformly distributed points. It lets
+     * samplers choose the samples one by one (e.g. in batches).
+     *
+     * @param u the first coordinate, between 0 and 1
+     * @param v the second coordinate, between 0 and 1
+     * @return the point of the target area
+     */
+    public abstract Point samplePoint(double u, double v);
+
+    /**
+     * Gives the point of the target area's plane at offsets from its center
+     *
+     * @param x the offset along the X-axis of the target area
+     * @param y the offset along the Y-axis of the target area
+     * @return the point
+     */
+    protected Point pointAt(double x, double y) {
+        return new Point(frame[0] + x * frame[3] + y * frame[6],
+                frame[1] + x * frame[4] + y * frame[7],
+                frame[2] + x * frame[5] + y * frame[8]);
+    }
+
+    /**
+     * Passes the coordinates of the point of the target area's plane at offsets
+     * from its center to a receiver, without creating the point
+     *
+     * @param x      the offset along the X-axis of the target area
+     * @param y      the offset along the Y-axis of the target area
+     * @param action the receiver of the point's coordinates
+     */
+    protected void acceptAt(double x, double y, PointConsumer action) {
+        action.accept(frame[0] + x * frame[3] + y * frame[6],
+                frame[1] + x * frame[4] + y * frame[7],
+                frame[2] + x * frame[5] + y * frame[8]);
+    }
+}
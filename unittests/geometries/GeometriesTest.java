@@ -1,10 +1,15 @@
 package geometries;
 
 import org.junit.jupiter.api.Test;
+import primitives.Double3;
+import primitives.Material;
 import primitives.Point;
 import primitives.Ray;
 import primitives.Vector;
 
+import java.util.LinkedList;
+import java.util.List;
+
 import static org.junit.jupiter.api.Assertions.*;
 
 
@@ -102,4 +107,213 @@ class GeometriesTest {
         assertEquals(2, result.size(), "ERROR: the intersections' array should not be null");
     }
 
-}
\ No newline at end of file
+    /**
+     * Test method for {@link Geometries#findClosestIntersections(RayPacket)}.
+     */
+    @Test
+    void testFindClosestIntersectionsPacket() {
+        // a sphere and a triangle with packet kernels, a plane and a polygon by the scalar fallback
+        Geometries geometries = new Geometries(new Sphere(1, new Point(0, 0, 1)),
+                new Triangle(new Point(1, 0, 0), new Point(1, 1, 0), new Point(0, 1, 0)),
+                new Plane(new Point(0, 0, 3), new Vector(0, 0, 1)),
+                new Polygon(new Point(-2, -2, -1), new Point(2, -2, -1), new Point(2, 2, -1), new Point(-2, 2, -1)));
+        Ray[] rays = {
+                new Ray(new Point(0, -2, 0), new Vector(0, 1, 1)),   // sphere, plane
+                new Ray(new Point(0.6, 0.6, -2), new Vector(0, 0, 1)), // all the geometries
+                new Ray(new Point(1, 1, 2.5), new Vector(1, 0, 0)),  // nothing
+                new Ray(new Point(0, 0, 1), new Vector(1, 1, 1)),    // from the sphere's center
+                new Ray(new Point(0.4, 0.4, 5), new Vector(0, 0, -1)), // plane first
+                new Ray(new Point(0.6, 0.6, 0.5), new Vector(0, 0, -1)) };
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: every lane gets the closest intersection of its ray alone
+        RayPacket packet = new RayPacket();
+        for (Ray ray : rays) packet.add(ray);
+        geometries.findClosestIntersections(packet);
+        for (int lane = 0; lane < rays.length; ++lane) {
+            var intersections = geometries.calculateIntersections(rays[lane]);
+            var expected = intersections == null ? null : rays[lane].findClosestIntersection(intersections);
+            var result = packet.intersection(lane);
+            if (expected == null) assertNull(result, "ERROR: Lane " + lane + " should hit nothing");
+            else assertEquals(expected, result, "ERROR: Wrong closest intersection of lane " + lane);
+        }
+
+        // =============== Boundary Values Tests ==================
+        // TC10: a refilled packet forgets the hits of the previous rays
+        packet.clear();
+        packet.add(rays[2]);
+        geometries.findClosestIntersections(packet);
+        assertEquals(1, packet.size(), "ERROR: Wrong amount of lanes");
+        assertNull(packet.intersection(0), "ERROR: A refilled lane should hit nothing");
+
+        // TC11: a full packet cannot be extended
+        for (int lane = 1; lane < RayPacket.WIDTH; ++lane) packet.add(rays[0]);
+        assertThrows(IllegalStateException.class, () -> packet.add(rays[0]), "ERROR: A full packet must fail");
+    }
+
+    /**
+     * Test method for {@link Geometries#findTransparencies(RayPacket, double)}.
+     */
+    @Test
+    void testFindTransparencies() {
+        // transparent sphere and triangle with packet kernels, an opaque plane by the scalar fallback
+        Material glass = new Material().setKt(new Double3(0.5, 0.6, 0.7));
+        Geometries geometries = new Geometries(new Sphere(1, new Point(0, 0, 1)).setMaterial(glass),
+                new Triangle(new Point(1, 0, 0), new Point(1, 1, 0), new Point(0, 1, 0)).setMaterial(glass),
+                new Plane(new Point(0, 0, 3), new Vector(0, 0, 1)));
+        Ray up = new Ray(new Point(0.6, 0.6, -2), new Vector(0, 0, 1));
+
+        // ============ Equivalence Partitions Tests ==============
+        RayPacket packet = new RayPacket()
+                .add(up, 2.5)                                          // TC01: triangle and sphere entry
+                .add(up, 10)                                           // TC02: blocked by the plane at last
+                .add(new Ray(new Point(1, 1, 2.5), new Vector(1, 0, 0)), 10) // TC03: nothing on the way
+                .add(new Ray(new Point(0, 0, 1), new Vector(1, 1, 1)), 10);  // TC04: from the sphere's center
+        geometries.findTransparencies(packet, 0.001);
+        for (int lane = 0; lane < packet.size(); ++lane) {
+            Ray ray = packet.ray(lane);
+            double maxDistance = lane == 0 ? 2.5 : 10;
+            Double3 expected = Double3.ONE;
+            var intersections = geometries.calculateIntersections(ray, maxDistance);
+            if (intersections != null)
+                for (var intersection : intersections)
+                    expected = intersection.material.kT.lowerThan(0.001) ? Double3.ZERO
+                            : expected.product(intersection.material.kT);
+            assertEquals(expected, packet.transparency(lane), "ERROR: Wrong transparency of lane " + lane);
+        }
+        assertEquals(new Double3(0.25, 0.36, 0.49), packet.transparency(0), "ERROR: Wrong transparency of the way");
+        assertEquals(Double3.ZERO, packet.transparency(1), "ERROR: The plane should block the ray");
+        assertEquals(Double3.ONE, packet.transparency(2), "ERROR: Nothing should be on the way");
+
+        // =============== Boundary Values Tests ==================
+        // TC10: the way ends before the first geometry
+        packet.clear();
+        packet.add(up, 1.5);
+        geometries.findTransparencies(packet, 0.001);
+        assertEquals(Double3.ONE, packet.transparency(0), "ERROR: The way should end before the geometries");
+    }
+
+    /**
+     * Test method for {@link geometries.Geometries#calculateClosestIntersection(primitives.Ray)}.
+     */
+    @Test
+    void testCalculateClosestIntersection() {
+        // a fan of triangles around the Z axis in two layers, intersected by the triangles' batch
+        Triangle[] triangles = new Triangle[16];
+        for (int k = 0; k < triangles.length; ++k) {
+            double a1 = Math.PI * 2 * k / 8, a2 = Math.PI * 2 * (k + 1) / 8, z = k < 8 ? 0 : -1;
+            triangles[k] = new Triangle(new Point(0, 0, z), new Point(2 * Math.cos(a1), 2 * Math.sin(a1), z),
+                    new Point(2 * Math.cos(a2), 2 * Math.sin(a2), z));
+        }
+        Geometries geometries = new Geometries(triangles);
+        Ray[] rays = {
+                new Ray(new Point(0.5, 0.3, 3), new Vector(0, 0, -1)),      // both layers
+                new Ray(new Point(-0.7, -0.2, -3), new Vector(0.1, 0, 1)),  // both layers from below
+                new Ray(new Point(0.5, 0.3, -0.5), new Vector(0, 0, 1)),    // between the layers
+                new Ray(new Point(3, 3, 3), new Vector(0, 0, -1)),          // outside the fan
+                new Ray(new Point(0, 0, 1), new Vector(0, 0, -1)),          // through the common vertex
+                new Ray(new Point(1, 0, 1), new Vector(0, 0, -1)) };        // through the common edge
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: the closest intersection and all the intersections are the triangles' own
+        for (Ray ray : rays) {
+            List<Intersectable.Intersection> expected = new LinkedList<>();
+            for (Triangle triangle : triangles) {
+                var intersections = triangle.calculateIntersections(ray);
+                if (intersections != null) expected.addAll(intersections);
+            }
+            var result = geometries.calculateIntersections(ray);
+            if (expected.isEmpty()) {
+                assertNull(result, "ERROR: " + ray + " should hit nothing");
+                assertNull(geometries.calculateClosestIntersection(ray), "ERROR: " + ray + " should hit nothing");
+            } else {
+                assertEquals(expected, result, "ERROR: Wrong intersections of " + ray);
+                assertEquals(ray.findClosestIntersection(expected), geometries.calculateClosestIntersection(ray),
+                        "ERROR: Wrong closest intersection of " + ray);
+            }
+        }
+
+        // TC02: geometries which are not all triangles
+        geometries.add(new Sphere(0.5, new Point(0.5, 0.3, 1)));
+        assertEquals(new Point(0.5, 0.3, 1.5), geometries.calculateClosestIntersection(rays[0]).point,
+                "ERROR: Wrong closest intersection with a sphere added");
+        assertEquals(4, geometries.calculateIntersections(rays[0]).size(),
+                "ERROR: Wrong amount of intersections with a sphere added");
+
+        // =============== Boundary Values Tests ==================
+        // TC10: a ray limited before the closest triangle
+        assertNull(new Geometries(triangles).calculateIntersections(rays[0], 2.5),
+                "ERROR: A too short ray should hit nothing");
+    }
+
+    /**
+     * Test method for {@link geometries.Geometries#setFloatStorage(boolean)}.
+     */
+    @Test
+    void testSetFloatStorage() {
+        // a fan of triangles with vertices which are not exact in single precision
+        Triangle[] triangles = new Triangle[8];
+        for (int k = 0; k < triangles.length; ++k) {
+            double a1 = Math.PI * 2 * k / 8, a2 = Math.PI * 2 * (k + 1) / 8;
+            triangles[k] = new Triangle(new Point(0.1, 0.1, 0.3),
+                    new Point(0.1 + 2 * Math.cos(a1), 0.1 + 2 * Math.sin(a1), 0.3),
+                    new Point(0.1 + 2 * Math.cos(a2), 0.1 + 2 * Math.sin(a2), 0.3));
+        }
+        Geometries doubles = new Geometries(triangles);
+        Geometries floats = new Geometries(triangles).setFloatStorage(true);
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: rays through the triangles hit the same triangles at almost the same points
+        for (int k = 0; k < 8; ++k) {
+            double a = Math.PI * 2 * (k + 0.5) / 8;
+            Ray ray = new Ray(new Point(Math.cos(a), Math.sin(a), 5), new Vector(0.01, -0.02, -1));
+            var expected = doubles.calculateClosestIntersection(ray);
+            var result = floats.calculateClosestIntersection(ray);
+            assertSame(expected.geometry, result.geometry, "ERROR: Wrong triangle in float storage");
+            assertEquals(0, expected.point.distance(result.point), 1e-5, "ERROR: Wrong point in float storage");
+        }
+
+        // TC02: a ray beside the bounding box of the triangles
+        assertNull(floats.calculateClosestIntersection(new Ray(new Point(3, 3, 5), new Vector(0, 0, -1))),
+                "ERROR: A ray beside the triangles should hit nothing");
+
+        // =============== Boundary Values Tests ==================
+        // TC10: a ray in the plane of the triangles, at the flat bounding box
+        assertNull(floats.calculateIntersections(new Ray(new Point(-5, 0.5, 0.3), new Vector(1, 0, 0))),
+                "ERROR: A ray in the triangles' plane should hit nothing");
+
+        // TC11: a ray hitting the flat bounding box at its edge
+        Ray edge = new Ray(new Point(2.1 - 1e-3, 0.1 + 1e-4, 5), new Vector(0, 0, -1));
+        assertSame(doubles.calculateClosestIntersection(edge).geometry,
+                floats.calculateClosestIntersection(edge).geometry, "ERROR: Wrong triangle at the bounds' edge");
+    }
+
+    /**
+     * Test method for {@link geometries.Geometries#setOffHeapStorage(boolean)}.
+     */
+    @Test
+    void testSetOffHeapStorage() {
+        Triangle[] triangles = new Triangle[50];
+        for (int k = 0; k < triangles.length; ++k)
+            triangles[k] = new Triangle(new Point(k * 0.3, 0.1, -k), new Point(k * 0.3 + 2, 0.2, -k),
+                    new Point(k * 0.3 + 0.5, 1.7, -k - 0.5));
+        Ray[] rays = {
+                new Ray(new Point(1.1, 0.6, 5), new Vector(0.01, 0.02, -1)),
+                new Ray(new Point(7.3, 0.9, 5), new Vector(0, 0, -1)),
+                new Ray(new Point(-3, 0.5, -10), new Vector(1, 0.01, 0.2)),
+                new Ray(new Point(30, 30, 5), new Vector(0, 0, -1)) };
+
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: the intersections off the heap are the same as on the heap, in double and single precision
+        for (boolean single : new boolean[] { false, true }) {
+            Geometries heap = new Geometries(triangles).setFloatStorage(single);
+            Geometries offHeap = new Geometries(triangles).setFloatStorage(single).setOffHeapStorage(true);
+            for (Ray ray : rays) {
+                assertEquals(heap.calculateIntersections(ray), offHeap.calculateIntersections(ray),
+                        "ERROR: Wrong intersections off the heap of " + ray);
+                assertEquals(heap.calculateClosestIntersection(ray), offHeap.calculateClosestIntersection(ray),
+                        "ERROR: Wrong closest intersection off the heap of " + ray);
+            }
+        }
+    }
+}
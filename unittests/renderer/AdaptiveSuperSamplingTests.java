@@ -0,0 +1,65 @@
+package renderer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.util.Arrays;
+
+import org.junit.jupiter.api.Test;
+
+import geometries.Triangle;
+import primitives.*;
+import scene.Scene;
+
+/**
+ * Testing the adaptive super sampling of the camera
+ * @author Devorah Wajs and Guila Czerniewicz
+ */
+class AdaptiveSuperSamplingTests {
+    /** Default constructor to satisfy JavaDoc generator */
+    AdaptiveSuperSamplingTests() { /* to satisfy JavaDoc generator */ }
+
+    /** Camera builder of the tests - a scene with the background only */
+    private final Camera.Builder camera = Camera.getBuilder()
+            .setLocation(Point.ZERO).setDirection(new Point(0, 0, -1), Vector.AXIS_Y)
+            .setVpDistance(10).setVpSize(4, 4).setResolution(4, 4)
+            .setRayTracer(new Scene("Empty scene").setBackground(new Color(20, 40, 60)), RayTracerType.SIMPLE)
+            .setAovOutput(true);
+
+    /**
+     * Amount of rays traced for rendering the image of a camera
+     * @param  camera the camera
+     * @return        the amount of rays
+     */
+    private static int tracedRays(Camera camera) {
+        GBuffer gBuffer = camera.renderImage().getGBuffer();
+        return Arrays.stream(gBuffer.samples).sum();
+    }
+
+    /**
+     * Test method for {@link Camera#setAdaptiveSuperSampling(int, double)}: the
+     * corners shared by neighbouring pixels are traced once
+     */
+    @Test
+    void testSharedCorners() {
+        // a flat image is not subdivided - every corner of the 4x4 pixels is traced once
+        assertEquals(5 * 5, tracedRays(camera.setAdaptiveSuperSampling(2).build()),
+                "Shared corners are traced more than once");
+    }
+
+    /**
+     * Test method for {@link Camera#setAdaptiveSuperSampling(int, double)}: the
+     * quadrants of a subdivided pixel reuse the corners traced before
+     */
+    @Test
+    void testReusedCorners() {
+        // a bright triangle covers only the top-left corner of a single pixel (of 4x4 units)
+        Scene scene = new Scene("Corner scene");
+        scene.geometries.add(new Triangle(new Point(-5, -1.5, -10), new Point(-0.5, 3, -10), new Point(-5, 3, -10))
+                .setEmission(new Color(255, 255, 255)));
+        Camera pixel = camera.setResolution(1, 1).setRayTracer(scene, RayTracerType.SIMPLE)
+                .setAdaptiveSuperSampling(2).build();
+        // 4 corners of the pixel, 5 new corners of its quadrants and the 4 centers of
+        // the subdivided top-left quadrant
+        assertEquals(4 + 5 + 4, tracedRays(pixel), "Corners of the quadrants are traced more than once");
+    }
+}
@@ -0,0 +1,81 @@
+package renderer;
+
+import static java.awt.Color.BLUE;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTimeoutPreemptively;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import geometries.*;
+import lighting.*;
+import primitives.*;
+import scene.Scene;
+
+/**
+ * Testing frame-parallel animation rendering
+ * @author Devorah Wajs and Guila Czerniewicz
+ */
+class AnimationRendererTests {
+    /** Default constructor to satisfy JavaDoc generator */
+    AnimationRendererTests() { /* to satisfy JavaDoc generator */ }
+
+    /** Scene of the tests */
+    private final Scene          scene  = new Scene("Test scene");
+    /** Camera builder of the tests */
+    private final Camera.Builder camera = Camera.getBuilder()
+            .setVpDistance(1000)
+            .setVpSize(200, 200)
+            .setResolution(100, 100)
+            .setRayTracer(scene, RayTracerType.SIMPLE);
+
+    /**
+     * Render an orbit of a sphere and a triangle concurrently and compare the
+     * frames (and their order) to the frames rendered one after another
+     */
+    @Test
+    void orbitFrames() {
+        scene.geometries.add(new Sphere(60d, new Point(0, 0, -200))
+                        .setEmission(new Color(BLUE))
+                        .setMaterial(new Material().setKD(0.5).setKS(0.5).setShininess(30)),
+                new Triangle(new Point(-70, -40, 0), new Point(-40, -70, 0), new Point(-68, -68, -4))
+                        .setEmission(new Color(BLUE))
+                        .setMaterial(new Material().setKD(0.5).setKS(0.5).setShininess(30)));
+        scene.lights.add(new SpotLight(new Color(400, 240, 0), new Point(-100, -100, 200), new Vector(1, 1, -3))
+                .setKl(1E-5).setKq(1.5E-7));
+
+        final int frames = 8;
+        var path = AnimationRenderer.orbit(camera, new Point(0, 0, 1000), new Point(0, 0, -200),
+                new Point(0, 0, -200), Vector.AXIS_Y, frames);
+        List<int[]> expected = new ArrayList<>();
+        for (int i = 0; i < frames; ++i)
+            expected.add(path.apply(i).renderImage().getImageWriter().readPixels(0, 0, 100, 100));
+
+        List<Integer> order = new ArrayList<>();
+        new AnimationRenderer(frames, path).setParallelism(3, 2).render((frame, i) -> {
+            order.add(i);
+            assertArrayEquals(expected.get(i), frame.getImageWriter().readPixels(0, 0, 100, 100),
+                    "Wrong pixels in frame " + i);
+        });
+        assertEquals(List.of(0, 1, 2, 3, 4, 5, 6, 7), order, "Frames are not passed in order");
+    }
+
+    /**
+     * An error thrown by the output of a frame stops the rendering and is thrown
+     * by it, instead of leaving the frames loop waiting forever
+     */
+    @Test
+    void outputError() {
+        var path = AnimationRenderer.orbit(camera, new Point(0, 0, 1000), new Point(0, 0, -200),
+                new Point(0, 0, -200), Vector.AXIS_Y, 8);
+        AnimationRenderer renderer = new AnimationRenderer(8, path).setParallelism(1, 1);
+        assertTimeoutPreemptively(Duration.ofSeconds(60), () -> assertThrows(AssertionError.class,
+                () -> renderer.render((frame, i) -> { throw new AssertionError("Failing output"); }),
+                "An error in the output must stop the rendering"));
+    }
+}
@@ -0,0 +1,129 @@
+package renderer;
+
+import static java.awt.Color.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+import org.junit.jupiter.api.Test;
+
+import geometries.*;
+import lighting.PointLight;
+import primitives.*;
+import scene.Scene;
+
+/**
+ * Testing the checkpointing of a rendering and resuming it
+ * @author Devorah Wajs and Guila Czerniewicz
+ */
+class CheckpointTests {
+    /** Image resolution of the tests - 3x3 tiles, the last ones are partial */
+    private static final int SIZE   = 80;
+    /** Width of the region of whole tiles rendered before the interruption */
+    private static final int PART_X = 2 * PixelManager.TILE_SIZE;
+    /** Height of the region of whole tiles rendered before the interruption */
+    private static final int PART_Y = PixelManager.TILE_SIZE;
+
+    /**
+     * Creates a scene of the tests
+     * @param  color the sphere's color
+     * @return       the scene
+     */
+    private static Scene scene(java.awt.Color color) {
+        Scene scene = new Scene("Test scene");
+        scene.geometries.add(new Sphere(50d, new Point(0, 0, -150)).setEmission(new Color(color))
+                .setMaterial(new Material().setKD(0.5).setKS(0.5).setShininess(30)),
+                new Plane(new Point(0, -60, 0), Vector.AXIS_Y).setEmission(new Color(30, 30, 30)));
+        scene.lights.add(new PointLight(new Color(500, 500, 500), new Point(100, 200, 200)));
+        return scene;
+    }
+
+    /**
+     * Creates a camera builder of the tests
+     * @param  scene the scene
+     * @return       the camera builder
+     */
+    private static Camera.Builder camera(Scene scene) {
+        return Camera.getBuilder()
+                .setLocation(new Point(0, 0, 1000)).setDirection(Vector.AXIS_Y)
+                .setVpDistance(1000).setVpSize(200, 200).setResolution(SIZE, SIZE)
+                .setRayTracer(scene, RayTracerType.SIMPLE);
+    }
+
+    /**
+     * Reads all the pixels of a camera's image
+     * @param  camera the camera
+     * @return        the packed RGB values
+     */
+    private static int[] pixels(Camera camera) {
+        return camera.getImageWriter().readPixels(0, 0, SIZE, SIZE);
+    }
+
+    /**
+     * Test method for {@link Camera.Builder#setCheckpoint(String, double)} and
+     * {@link Camera#resumeFrom(String)}
+     * @throws IOException if the temporary checkpoint file cannot be created
+     */
+    @Test
+    void testResumeFrom() throws IOException {
+        Scene scene = scene(RED);
+        int[] full = pixels(camera(scene).build().renderImage());
+
+        Path path = Files.createTempFile("checkpoint", ".ckpt");
+        try {
+            // the interrupted rendering - the checkpoint holds the first two tiles
+            camera(scene).setCheckpoint(path.toString(), 1000).build().renderRegion(0, 0, PART_X, PART_Y);
+            Path copy = Files.copy(path, Files.createTempFile("checkpoint", ".ckpt"),
+                    StandardCopyOption.REPLACE_EXISTING);
+            try {
+                // resuming completes the image as the uninterrupted rendering
+                assertArrayEquals(full, pixels(camera(scene).build().resumeFrom(path.toString()).renderImage()),
+                        "Wrong pixels of the resumed rendering");
+
+                // resuming with another scene shows which tiles were not re-rendered
+                Scene other = scene(BLUE);
+                int[] otherFull = pixels(camera(other).build().renderImage());
+                int[] resumed = pixels(camera(other).build().resumeFrom(copy.toString()).renderImage());
+                for (int y = 0; y < SIZE; ++y)
+                    for (int x = 0; x < SIZE; ++x) {
+                        int index = y * SIZE + x;
+                        if (x < PART_X && y < PART_Y)
+                            assertEquals(full[index], resumed[index], "Finished tile re-rendered at " + x + "," + y);
+                        else
+                            assertEquals(otherFull[index], resumed[index], "Wrong resumed pixel at " + x + "," + y);
+                    }
+            } finally {
+                Files.deleteIfExists(copy);
+            }
+        } finally {
+            Files.deleteIfExists(path);
+        }
+
+        assertThrows(IllegalArgumentException.class, () -> camera(scene).setCheckpoint("checkpoint.ckpt", 0),
+                "A non-positive checkpoint interval must fail");
+    }
+
+    /**
+     * Test method for {@link Camera.Builder#setCheckpoint(String, double)} and
+     * {@link Camera#resumeFrom(String)} - the outputs which are not kept by the
+     * checkpoint are rejected
+     */
+    @Test
+    void testCheckpointUnsupported() {
+        Scene scene = scene(BLUE);
+        Camera.Builder checkpointed = camera(scene).setCheckpoint("checkpoint.ckpt", 60);
+        assertThrows(IllegalArgumentException.class, () -> checkpointed.setHdrOutput(true).build(),
+                "High dynamic range output with a checkpoint must fail");
+        assertThrows(IllegalArgumentException.class, () -> checkpointed.setHdrOutput(false).setDenoising(true).build(),
+                "Denoising with a checkpoint must fail");
+        assertThrows(IllegalArgumentException.class, () -> checkpointed.setDenoising(false).setAovOutput(true).build(),
+                "AOV output with a checkpoint must fail");
+
+        Camera hdr = camera(scene).setHdrOutput(true).build();
+        assertThrows(IllegalArgumentException.class, () -> hdr.resumeFrom("checkpoint.ckpt"),
+                "Resuming a high dynamic range output must fail");
+    }
+}
@@ -0,0 +1,97 @@
+package renderer;
+
+import static java.awt.Color.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.Arrays;
+
+import org.junit.jupiter.api.Test;
+
+import geometries.*;
+import primitives.*;
+import scene.Scene;
+
+/**
+ * Testing the combined antialiasing and depth of field sampling of the camera
+ * @author Devorah Wajs and Guila Czerniewicz
+ */
+class CombinedSamplingTests {
+    /** Image resolution of the tests */
+    private static final int SIZE = 40;
+
+    /** Scene of the tests - spheres in and out of focus in front of a wall */
+    private final Scene      scene = new Scene("Test scene");
+
+    /** Constructs the scene of the tests */
+    CombinedSamplingTests() {
+        scene.geometries.add(new Sphere(50d, new Point(0, 0, -150)).setEmission(new Color(RED)),
+                new Sphere(30, new Point(-100, 0, -100)).setEmission(new Color(GREEN)),
+                new Sphere(30, new Point(100, 0, -200)).setEmission(new Color(BLUE)),
+                new Plane(new Point(0, 0, -400), Vector.AXIS_Z).setEmission(new Color(40, 40, 40)));
+    }
+
+    /**
+     * Creates a camera builder of the tests with depth of field
+     * @return the camera builder
+     */
+    private Camera.Builder camera() {
+        return Camera.getBuilder()
+                .setLocation(new Point(0, 0, 1000)).setDirection(Vector.AXIS_Y)
+                .setVpDistance(1000).setVpSize(200, 200).setResolution(SIZE, SIZE)
+                .setRayTracer(scene, RayTracerType.SIMPLE)
+                .setNumOfRaysDOF(9).setApertureWindow(50, 50).setDistanceFocalPlane(1150);
+    }
+
+    /**
+     * Renders an image and returns its color components
+     * @param  builder the camera builder
+     * @return         red, green and blue of every pixel
+     */
+    private static double[] render(Camera.Builder builder) {
+        int[] rgb = builder.build().renderImage().getImageWriter().readPixels(0, 0, SIZE, SIZE);
+        return Arrays.stream(rgb).flatMap(p -> Arrays.stream(new int[] { p >> 16 & 255, p >> 8 & 255, p & 255 }))
+                .asDoubleStream().toArray();
+    }
+
+    /**
+     * Root mean square difference of two images
+     * @param  a the first image's components
+     * @param  b the second image's components
+     * @return   the difference
+     */
+    private static double rmse(double[] a, double[] b) {
+        double sum = 0;
+        for (int k = 0; k < a.length; ++k) sum += (a[k] - b[k]) * (a[k] - b[k]);
+        return Math.sqrt(sum / a.length);
+    }
+
+    /**
+     * Test method for {@link Camera.Builder#setCombinedSampling(int)}: 25 combined
+     * samples of a pixel are at least as close to the converged image as 9
+     * antialiasing rays with 30 depth of field rays each (270 rays)
+     */
+    @Test
+    void testCombinedSampling() {
+        double[] reference = render(camera().setCombinedSampling(576));
+        double nested = rmse(reference, render(camera().setNumOfRaysAA(9).setNumOfRaysDOF(30)
+                .setApertureWindow(50, 50)));
+        double combined = rmse(reference, render(camera().setCombinedSampling(25)));
+        assertTrue(combined < nested, "Combined sampling error " + combined + " exceeds nested error " + nested);
+    }
+
+    /**
+     * Test method for {@link Camera.Builder#build()}: combined sampling cannot be
+     * used with the adaptive samplings
+     */
+    @Test
+    void testExclusiveSampling() {
+        assertThrows(IllegalArgumentException.class, () -> camera().setCombinedSampling(-1),
+                "Negative amount of samples must fail");
+        assertThrows(IllegalArgumentException.class,
+                () -> camera().setCombinedSampling(16).setAdaptiveSuperSampling(2).build(),
+                "Combined sampling with adaptive super sampling must fail");
+        assertThrows(IllegalArgumentException.class,
+                () -> camera().setCombinedSampling(16).setVarianceSampling(0.01, 8, 64).build(),
+                "Combined sampling with variance sampling must fail");
+    }
+}
@@ -0,0 +1,69 @@
+package renderer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import primitives.Double3;
+import primitives.Vector;
+
+/**
+ * Testing the edge-avoiding denoiser
+ * @author Devorah Wajs and Guila Czerniewicz
+ */
+class DenoiserTests {
+    /** Default constructor to satisfy JavaDoc generator */
+    DenoiserTests() { /* to satisfy JavaDoc generator */ }
+
+    /** Image resolution of the tests */
+    private static final int SIZE = 64;
+
+    /**
+     * Test method for
+     * {@link Denoiser#denoise(float[], int, GBuffer, int, int, int, int)}: a noisy
+     * image of two surfaces with different albedo - the noise must be reduced on
+     * both surfaces while the edge between them is kept
+     */
+    @Test
+    void testDenoise() {
+        GBuffer gBuffer = new GBuffer(SIZE, SIZE);
+        float[] clean = new float[3 * SIZE * SIZE];
+        float[] noisy = new float[3 * SIZE * SIZE];
+        Random random = new Random(7);
+        for (int y = 0; y < SIZE; ++y)
+            for (int x = 0; x < SIZE; ++x) {
+                boolean left = x < SIZE / 2;
+                GBuffer.Sample sample = new GBuffer.Sample();
+                sample.hit(left ? 100 : 120, Vector.AXIS_Z,
+                        left ? new Double3(0.8, 0.2, 0.2) : new Double3(0.2, 0.2, 0.8), left ? 0 : 1);
+                gBuffer.write(x, y, sample);
+                int p = 3 * (y * SIZE + x);
+                for (int c = 0; c < 3; ++c) {
+                    clean[p + c] = left ? 0.7f : 0.2f;
+                    noisy[p + c] = clean[p + c] + (float) (random.nextGaussian() * 0.05);
+                }
+            }
+
+        float[] denoised = Denoiser.denoise(noisy, SIZE, gBuffer, 0, 0, SIZE, SIZE);
+        assertTrue(error(denoised, clean) < error(noisy, clean) / 4, "The noise is not reduced enough");
+        // the edge stays sharp
+        for (int y = 0; y < SIZE; ++y) {
+            assertEquals(0.7f, denoised[3 * (y * SIZE + SIZE / 2 - 1)], 0.05f, "The edge is blurred");
+            assertEquals(0.2f, denoised[3 * (y * SIZE + SIZE / 2)], 0.05f, "The edge is blurred");
+        }
+    }
+
+    /**
+     * Mean squared error of colors
+     * @param  colors    the colors
+     * @param  reference the reference colors
+     * @return           the error
+     */
+    private static double error(float[] colors, float[] reference) {
+        double sum = 0;
+        for (int i = 0; i < colors.length; ++i) sum += (colors[i] - reference[i]) * (colors[i] - reference[i]);
+        return sum / colors.length;
+    }
+}
@@ -29,32 +29,18 @@ public class DiamondVideoTest {
 
         cameraBuilder
                 .setVpDistance(300).setVpSize(600, 600)
-                .setResolution(800, 800)
-
-                // Set initial camera position before orbiting
-                .setMultithreading(-2);
-
-        // Generate multiple images with camera orbiting around the scene
-        for (int i = 0; i < totalFrames; i++) {
-
-            // Calculate orbit angle: complete 360° rotation over all frames
-            // This creates smooth circular motion for video
-            double orbitAngle = (360.0 / totalFrames) * i;
-
-            cameraBuilder
-                    // Make camera orbit around scene center at calculated angle
-                    // Using Y-axis for horizontal circular motion
-                    .setLocation(new Point(0, 50, 200))
-                    .setDirection(new Point(0, -100, -350), Vector.AXIS_Y)
-                    .orbitAround(sceneCenter, orbitAngle, Vector.AXIS_Y)
-
-                    // Build camera, render and save image
-                    .build()
-                    .renderImage()
-                    // Use zero-padded numbering for proper video sequence ordering
-                    .writeToImage(String.format("Diamond_Video_Frame_%04d", i));
+                .setResolution(800, 800);
+
+        // Generate video frames with camera orbiting around the scene:
+        // complete 360° rotation over all frames around the Y-axis creates smooth
+        // circular motion for video, several frames are rendered concurrently and
+        // they are encoded into the video in the background
+        try (VideoWriter video = new VideoWriter("Diamond_Video", 30)) {
+            new AnimationRenderer(totalFrames,
+                    AnimationRenderer.orbit(cameraBuilder, new Point(0, 50, 200), new Point(0, -100, -350),
+                            sceneCenter, Vector.AXIS_Y, totalFrames))
+                    .render((camera, i) -> video.writeFrame(camera));
         }
-
     }
 
 
@@ -0,0 +1,128 @@
+package renderer;
+
+import static java.awt.Color.BLUE;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+
+import javax.imageio.ImageIO;
+
+import org.junit.jupiter.api.Test;
+
+import geometries.*;
+import lighting.*;
+import primitives.*;
+import scene.Scene;
+
+/**
+ * Testing distributed rendering by worker processes
+ * @author Devorah Wajs and Guila Czerniewicz
+ */
+class DistributedRenderTests {
+    /** Default constructor to satisfy JavaDoc generator */
+    DistributedRenderTests() { /* to satisfy JavaDoc generator */ }
+
+    /** Scene of the tests */
+    private final Scene          scene  = new Scene("Test scene");
+    /** Camera builder of the tests */
+    private final Camera.Builder camera = Camera.getBuilder()
+            .setLocation(new Point(0, 0, 1000))
+            .setDirection(Point.ZERO, Vector.AXIS_Y)
+            .setVpDistance(1000)
+            .setVpSize(200, 200)
+            .setResolution(300, 250)
+            .setRayTracer(scene, RayTracerType.SIMPLE);
+
+    /**
+     * Reads an image written by a test
+     * @param  name        the image name
+     * @return             the image
+     * @throws IOException if the image cannot be read
+     */
+    private static BufferedImage readImage(String name) throws IOException {
+        return ImageIO.read(new File(System.getProperty("user.dir") + "/images/" + name + ".png"));
+    }
+
+    /**
+     * Produce a picture of a sphere and a triangle by 3 local worker processes and
+     * compare it to the picture rendered in the same process
+     */
+    @Test
+    void distributedSphereTriangle() throws IOException {
+        scene.geometries.add(new Sphere(60d, new Point(0, 0, -200))
+                        .setEmission(new Color(BLUE))
+                        .setMaterial(new Material().setKD(0.5).setKS(0.5).setShininess(30)),
+                new Triangle(new Point(-70, -40, 0), new Point(-40, -70, 0), new Point(-68, -68, -4))
+                        .setEmission(new Color(BLUE))
+                        .setMaterial(new Material().setKD(0.5).setKS(0.5).setShininess(30)));
+        scene.lights.add(new SpotLight(new Color(400, 240, 0), new Point(-100, -100, 200), new Vector(1, 1, -3))
+                .setKl(1E-5).setKq(1.5E-7));
+
+        camera.build().renderImage().writeToImage("distributedLocal");
+        try (DistributedRenderer renderer = new DistributedRenderer(0).spawnLocalWorkers(3, 2)) {
+            renderer.render(camera.build()).writeToImage("distributedWorkers");
+        }
+
+        BufferedImage local = readImage("distributedLocal");
+        BufferedImage distributed = readImage("distributedWorkers");
+        for (int i = 0; i < local.getHeight(); ++i)
+            for (int j = 0; j < local.getWidth(); ++j)
+                assertEquals(local.getRGB(j, i), distributed.getRGB(j, i), "Wrong pixel color at " + j + "," + i);
+    }
+
+    /**
+     * Geometry failing every intersection, for testing a tile failure in the
+     * workers
+     */
+    private static class FailingGeometry extends Geometry {
+        /** Serialization version */
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        public Vector getNormal(Point point) { return Vector.AXIS_Z; }
+
+        @Override
+        protected List<Intersection> calculateIntersectionsHelper(Ray ray, double maxDistance) {
+            throw new IllegalStateException("Failing geometry");
+        }
+    }
+
+    /**
+     * Test method for {@link DistributedRenderer#render(Camera)} - a failure in
+     * a worker fails the rendering at once, instead of waiting for the workers'
+     * timeout
+     */
+    @Test
+    void testRenderFailure() {
+        scene.geometries.add(new FailingGeometry());
+        try (DistributedRenderer renderer = new DistributedRenderer(0).spawnLocalWorkers(2, 2)) {
+            Camera failing = camera.build();
+            IllegalStateException e = assertTimeoutPreemptively(Duration.ofSeconds(60),
+                    () -> assertThrows(IllegalStateException.class, () -> renderer.render(failing),
+                            "A tile failure in a worker must fail the rendering"));
+            assertTrue(e.getMessage().contains("Failing geometry"), "The worker's failure must be reported");
+        }
+    }
+
+    /**
+     * Test method for {@link DistributedRenderer#render(Camera)} - the outputs
+     * which are not sent back by the workers are rejected
+     */
+    @Test
+    void testRenderUnsupported() {
+        try (DistributedRenderer renderer = new DistributedRenderer(0)) {
+            assertThrows(IllegalArgumentException.class, () -> renderer.render(camera.setHdrOutput(true).build()),
+                    "High dynamic range output must be rejected");
+            assertThrows(IllegalArgumentException.class,
+                    () -> renderer.render(camera.setHdrOutput(false).setDenoising(true).build()),
+                    "Denoising must be rejected");
+            assertThrows(IllegalArgumentException.class,
+                    () -> renderer.render(camera.setDenoising(false).setAovOutput(true).build()),
+                    "AOV output must be rejected");
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package renderer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.Test;
+
+import geometries.*;
+import primitives.*;
+import scene.Scene;
+
+/**
+ * Testing the capture and the output of the auxiliary buffers (AOVs)
+ * @author Devorah Wajs and Guila Czerniewicz
+ */
+class GBufferTests {
+    /** Default constructor to satisfy JavaDoc generator */
+    GBufferTests() { /* to satisfy JavaDoc generator */ }
+
+    /** Image resolution of the test */
+    private static final int SIZE     = 5;
+    /** Channels of the AOV file in alphabetical order */
+    private static final int CHANNELS = 9;
+
+    /**
+     * Test method for {@link Camera#writeAovs(String)}: a sphere in front of the
+     * camera (behind a triangle which is not in the view) - the center pixel has
+     * the sphere's depth, normal, albedo and id, and the corner pixel has nothing
+     */
+    @Test
+    void testWriteAovs() throws IOException {
+        Scene scene = new Scene("AOV scene");
+        scene.geometries.add(new Triangle(new Point(100, 100, 0), new Point(110, 100, 0), new Point(100, 110, 0)),
+                new Geometries(new Sphere(50d, new Point(0, 0, -100))
+                        .setMaterial(new Material().setKD(new Double3(0.5, 0.25, 0.75)))));
+        Camera camera = Camera.getBuilder()
+                .setLocation(new Point(0, 0, 100)).setDirection(new Point(0, 0, -100), Vector.AXIS_Y)
+                .setVpDistance(100).setVpSize(100, 100).setResolution(SIZE, SIZE)
+                .setRayTracer(scene, RayTracerType.SIMPLE)
+                .setAovOutput(true)
+                .build();
+        camera.renderImage().writeAovs("aovs");
+
+        ByteBuffer file = ByteBuffer.wrap(Files.readAllBytes(Path.of(ImageWriter.FOLDER_PATH, "aovs.exr")))
+                .order(ByteOrder.LITTLE_ENDIAN);
+        int lineSize = 8 + CHANNELS * SIZE * Float.BYTES;
+        int table = file.limit() - SIZE * lineSize - SIZE * Long.BYTES;
+
+        // N.X, N.Y, N.Z, Z, albedo.B, albedo.G, albedo.R, id, samples
+        float[] center = pixel(file, table, 2, 2);
+        assertArrayEquals(new float[] { 0, 0, 1, 150, 0.75f, 0.25f, 0.5f, 1, 1 }, center, 1e-5f,
+                "Wrong AOVs of the sphere");
+        float[] corner = pixel(file, table, 0, 0);
+        assertEquals(Float.POSITIVE_INFINITY, corner[3], "Wrong depth of the background");
+        assertEquals(-1, corner[7], "Wrong id of the background");
+        assertEquals(1, corner[8], "Wrong amount of rays");
+
+        assertThrows(IllegalStateException.class,
+                () -> Camera.getBuilder().setLocation(Point.ZERO).setDirection(new Point(0, 0, -1), Vector.AXIS_Y)
+                        .setVpDistance(1).setVpSize(1, 1).setResolution(1, 1).build().writeAovs("none"),
+                "AOV output without capture must fail");
+    }
+
+    /**
+     * Reads the channels of a pixel from an uncompressed OpenEXR file
+     * @param  file  the file
+     * @param  table position of the scan lines offsets table
+     * @param  x     X axis index of the pixel
+     * @param  y     Y axis index of the pixel
+     * @return       the pixel's channels
+     */
+    private static float[] pixel(ByteBuffer file, int table, int x, int y) {
+        int line = (int) file.getLong(table + y * Long.BYTES) + 8;
+        float[] channels = new float[CHANNELS];
+        for (int c = 0; c < CHANNELS; ++c)
+            channels[c] = file.getFloat(line + (c * SIZE + x) * Float.BYTES);
+        return channels;
+    }
+}
@@ -3,6 +3,11 @@ package renderer;
 import org.junit.jupiter.api.Test;
 import primitives.Color;
 
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.concurrent.Callable;
 
 import static java.awt.Color.*;
@@ -31,4 +36,70 @@ class ImageWriterTest {
         imageWriter.writeToImage("firstImage");
     }
 
-}
\ No newline at end of file
+    /**
+     * Creates an image writer with high dynamic range colors: a bright pixel at
+     * the top left corner and dark pixels elsewhere
+     * @return the image writer
+     */
+    private static ImageWriter hdrImage() {
+        ImageWriter imageWriter = new ImageWriter(4, 3, true);
+        for (int i = 0; i < imageWriter.nX(); i++)
+            for (int j = 0; j < imageWriter.nY(); j++)
+                imageWriter.writePixel(i, j, new Color(i, j, 1));
+        imageWriter.writePixel(0, 0, new Color(510, 127.5, 1020));
+        return imageWriter;
+    }
+
+    /**
+     * Test method for
+     * {@link renderer.ImageWriter#writeToPfm(String)}
+     */
+    @Test
+    void testWriteToPfm() throws IOException {
+        hdrImage().writeToPfm("hdrImage");
+        byte[] file = Files.readAllBytes(Path.of(ImageWriter.FOLDER_PATH, "hdrImage.pfm"));
+        String header = "PF\n4 3\n-1.0\n";
+        assertEquals(header, new String(file, 0, header.length()), "Wrong PFM header");
+        ByteBuffer data = ByteBuffer.wrap(file, header.length(), file.length - header.length())
+                .slice().order(ByteOrder.LITTLE_ENDIAN);
+        assertEquals(4 * 3 * 3 * Float.BYTES, data.remaining(), "Wrong PFM data size");
+        // the top row is the last one in the file
+        int topLeft = 2 * 4 * 3 * Float.BYTES;
+        assertEquals(2f, data.getFloat(topLeft), 1e-6, "Wrong unclamped red");
+        assertEquals(0.5f, data.getFloat(topLeft + 4), 1e-6, "Wrong green");
+        assertEquals(4f, data.getFloat(topLeft + 8), 1e-6, "Wrong unclamped blue");
+        assertEquals(3 / 255f, data.getFloat(3 * Float.BYTES * 3), 1e-6, "Wrong red at the bottom row");
+
+        assertThrows(IllegalStateException.class, () -> new ImageWriter(4, 3).writeToPfm("noHdr"),
+                "HDR output without HDR buffer must fail");
+    }
+
+    /**
+     * Test method for
+     * {@link renderer.ImageWriter#writeToExr(String)}
+     */
+    @Test
+    void testWriteToExr() throws IOException {
+        hdrImage().writeToExr("hdrImage");
+        ByteBuffer file = ByteBuffer.wrap(Files.readAllBytes(Path.of(ImageWriter.FOLDER_PATH, "hdrImage.exr")))
+                .order(ByteOrder.LITTLE_ENDIAN);
+        assertEquals(20000630, file.getInt(0), "Wrong EXR magic number");
+        assertEquals(2, file.getInt(4), "Wrong EXR version");
+        // the offsets table follows the header, which ends by an empty attribute name
+        int lineSize = 8 + 3 * 4 * Float.BYTES;
+        int table = file.limit() - 3 * lineSize - 3 * Long.BYTES;
+        assertEquals(0, file.get(table - 1), "Wrong EXR header end");
+        for (int y = 0; y < 3; ++y) {
+            int line = (int) file.getLong(table + y * Long.BYTES);
+            assertEquals(table + 3 * Long.BYTES + y * lineSize, line, "Wrong offset of scan line " + y);
+            assertEquals(y, file.getInt(line), "Wrong scan line number");
+            assertEquals(lineSize - 8, file.getInt(line + 4), "Wrong scan line size");
+        }
+        // channels are stored in alphabetical order: blue, green, red
+        int first = (int) file.getLong(table) + 8;
+        assertEquals(4f, file.getFloat(first), 1e-6, "Wrong unclamped blue");
+        assertEquals(0.5f, file.getFloat(first + 4 * Float.BYTES), 1e-6, "Wrong green");
+        assertEquals(2f, file.getFloat(first + 8 * Float.BYTES), 1e-6, "Wrong unclamped red");
+    }
+
+}
@@ -0,0 +1,120 @@
+package renderer;
+
+import static java.awt.Color.BLUE;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import javax.imageio.ImageIO;
+
+import org.junit.jupiter.api.Test;
+
+import geometries.*;
+import lighting.SpotLight;
+import primitives.*;
+import scene.Scene;
+
+/**
+ * Testing the memory mapped tiled frame buffer
+ * @author Devorah Wajs and Guila Czerniewicz
+ */
+class MappedFrameBufferTests {
+    /** Default constructor to satisfy JavaDoc generator */
+    MappedFrameBufferTests() { /* to satisfy JavaDoc generator */ }
+
+    /**
+     * Test method for the blocks access of {@link MappedFrameBuffer}: blocks
+     * crossing tiles and segments
+     */
+    @Test
+    void testBlocks() throws IOException {
+        final int nX = 100, nY = 70;
+        Path path = Files.createTempFile("frameBuffer", ".bin");
+        // segments of 3 tiles
+        MappedFrameBuffer frameBuffer = new MappedFrameBuffer(path, nX, nY, 3L * 32 * 32 * Integer.BYTES);
+        int[] expected = new int[nX * nY];
+        for (int i = 0; i < expected.length; ++i) expected[i] = 0xFF000000 | i * 7919 & 0xFFFFFF;
+
+        // single pixels in the upper half, a block in the lower half
+        for (int y = 0; y < 35; ++y)
+            for (int x = 0; x < nX; ++x) frameBuffer.setRGB(x, y, expected[y * nX + x]);
+        int[] lower = new int[nX * 35];
+        System.arraycopy(expected, 35 * nX, lower, 0, lower.length);
+        frameBuffer.setRGB(0, 35, nX, 35, lower);
+
+        int[] whole = new int[nX * nY];
+        frameBuffer.getRGB(0, 0, nX, nY, whole);
+        assertArrayEquals(expected, whole, "Wrong pixels of the whole image");
+
+        int[] block = new int[45 * 40];
+        frameBuffer.getRGB(20, 25, 45, 40, block);
+        for (int y = 0; y < 40; ++y)
+            for (int x = 0; x < 45; ++x)
+                assertEquals(expected[(25 + y) * nX + 20 + x], block[y * 45 + x], "Wrong pixel in a block");
+        Files.delete(path);
+    }
+
+    /**
+     * Render a picture of a sphere and a triangle into a mapped frame buffer and
+     * compare it to the picture rendered in the heap
+     */
+    @Test
+    void mappedRendering() throws IOException {
+        Scene scene = new Scene("Test scene");
+        scene.geometries.add(new Sphere(60d, new Point(0, 0, -200))
+                        .setEmission(new Color(BLUE))
+                        .setMaterial(new Material().setKD(0.5).setKS(0.5).setShininess(30)),
+                new Triangle(new Point(-70, -40, 0), new Point(-40, -70, 0), new Point(-68, -68, -4))
+                        .setEmission(new Color(BLUE))
+                        .setMaterial(new Material().setKD(0.5).setKS(0.5).setShininess(30)));
+        scene.lights.add(new SpotLight(new Color(400, 240, 0), new Point(-100, -100, 200), new Vector(1, 1, -3))
+                .setKl(1E-5).setKq(1.5E-7));
+        Camera.Builder camera = Camera.getBuilder()
+                .setLocation(new Point(0, 0, 1000))
+                .setDirection(Point.ZERO, Vector.AXIS_Y)
+                .setVpDistance(1000)
+                .setVpSize(200, 200)
+                .setResolution(300, 250)
+                .setRayTracer(scene, RayTracerType.SIMPLE)
+                .setMultithreading(2);
+
+        camera.build().renderImage().writeToImage("frameBufferHeap");
+        Path path = Files.createTempFile("frameBuffer", ".bin");
+        camera.setFrameBufferFile(path.toString()).build().renderImage().writeToImage("frameBufferMapped");
+
+        BufferedImage heap = ImageIO.read(new File(ImageWriter.FOLDER_PATH, "frameBufferHeap.png"));
+        BufferedImage mapped = ImageIO.read(new File(ImageWriter.FOLDER_PATH, "frameBufferMapped.png"));
+        for (int i = 0; i < heap.getHeight(); ++i)
+            for (int j = 0; j < heap.getWidth(); ++j)
+                assertEquals(heap.getRGB(j, i), mapped.getRGB(j, i), "Wrong pixel color at " + j + "," + i);
+        Files.delete(path);
+    }
+
+    /**
+     * Test method for {@link Camera.Builder#setFrameBufferFile(String)} - the
+     * outputs keeping full image buffers in the heap are rejected
+     */
+    @Test
+    void testSetFrameBufferFile() {
+        Camera.Builder camera = Camera.getBuilder()
+                .setLocation(new Point(0, 0, 1000))
+                .setDirection(Point.ZERO, Vector.AXIS_Y)
+                .setVpDistance(1000)
+                .setVpSize(200, 200)
+                .setResolution(300, 250)
+                .setFrameBufferFile("frameBuffer.bin");
+        assertThrows(IllegalArgumentException.class, () -> camera.setHdrOutput(true).build(),
+                "High dynamic range output with a frame buffer file must fail");
+        assertThrows(IllegalArgumentException.class, () -> camera.setHdrOutput(false).setDenoising(true).build(),
+                "Denoising with a frame buffer file must fail");
+        assertThrows(IllegalArgumentException.class, () -> camera.setDenoising(false).setAovOutput(true).build(),
+                "AOV output with a frame buffer file must fail");
+        assertThrows(IllegalArgumentException.class,
+                () -> camera.setAovOutput(false).setVarianceSampling(0.01, 4, 16).build(),
+                "Variance sampling with a frame buffer file must fail");
+    }
+}
@@ -0,0 +1,93 @@
+package renderer;
+
+import static java.awt.Color.*;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+
+import org.junit.jupiter.api.Test;
+
+import geometries.*;
+import lighting.*;
+import primitives.*;
+import scene.Scene;
+
+/**
+ * Testing the tracing of primary rays in ray packets
+ * @author Devorah Wajs and Guila Czerniewicz
+ */
+class PacketTracingTests {
+    /** Image resolution of the tests - not a multiple of the packet width */
+    private static final int SIZE  = 45;
+
+    /** Scene of the tests */
+    private final Scene      scene = new Scene("Test scene");
+
+    /** Constructs the scene of the tests */
+    PacketTracingTests() {
+        Material material = new Material().setKD(0.5).setKS(0.5).setShininess(30).setKr(0.3);
+        scene.geometries.add(new Sphere(50d, new Point(0, 0, -150)).setEmission(new Color(RED)).setMaterial(material),
+                new Triangle(new Point(-100, -60, -100), new Point(100, -60, -100), new Point(0, 80, -300))
+                        .setEmission(new Color(BLUE)).setMaterial(material),
+                new Plane(new Point(0, -60, 0), Vector.AXIS_Y).setEmission(new Color(30, 30, 30)));
+        scene.lights.add(new PointLight(new Color(500, 500, 500), new Point(100, 200, 200)));
+    }
+
+    /**
+     * Renders the image of the tests
+     * @param  packets whether the primary rays are traced in packets
+     * @return         the rendered camera
+     */
+    private Camera render(boolean packets) {
+        return Camera.getBuilder()
+                .setLocation(new Point(0, 0, 1000)).setDirection(Vector.AXIS_Y)
+                .setVpDistance(1000).setVpSize(300, 300).setResolution(SIZE, SIZE)
+                .setRayTracer(scene, RayTracerType.SIMPLE)
+                .setAovOutput(true)
+                .setMultithreading(2)
+                .setPacketTracing(packets)
+                .build().renderImage();
+    }
+
+    /**
+     * Test method for {@link Camera.Builder#setPacketTracing(boolean)}: the
+     * image and the auxiliary buffers are the same as with rays traced one by one
+     */
+    @Test
+    void testPacketTracing() {
+        Camera scalar = render(false);
+        Camera packets = render(true);
+        assertArrayEquals(scalar.getImageWriter().readPixels(0, 0, SIZE, SIZE),
+                packets.getImageWriter().readPixels(0, 0, SIZE, SIZE), "Wrong pixels of packet tracing");
+        assertArrayEquals(scalar.getGBuffer().depth, packets.getGBuffer().depth, "Wrong depths of packet tracing");
+        assertArrayEquals(scalar.getGBuffer().objectId, packets.getGBuffer().objectId, "Wrong ids of packet tracing");
+    }
+
+    /**
+     * Test method for {@link Camera.Builder#setPacketTracing(boolean)}: the
+     * shadow rays of the packets through transparent and opaque geometries, a
+     * mesh of triangles and nested collections toward several lights give the
+     * same image as with rays traced one by one
+     */
+    @Test
+    void testPacketShadows() {
+        Material glass = new Material().setKD(0.3).setKS(0.3).setShininess(20).setKt(0.6);
+        Geometries mesh = new Geometries();
+        for (int k = 0; k < 8; ++k) {
+            double a1 = Math.PI * 2 * k / 8, a2 = Math.PI * 2 * (k + 1) / 8;
+            mesh.add(new Triangle(new Point(60, 40, -80), new Point(60 + 30 * Math.cos(a1), 0, -80 + 30 * Math.sin(a1)),
+                    new Point(60 + 30 * Math.cos(a2), 0, -80 + 30 * Math.sin(a2)))
+                    .setEmission(new Color(GREEN)).setMaterial(k % 2 == 0 ? glass : new Material().setKD(0.6)));
+        }
+        scene.geometries.add(mesh, new Geometries(
+                new Sphere(25d, new Point(-50, 20, -50)).setEmission(new Color(YELLOW)).setMaterial(glass),
+                new Polygon(new Point(-120, -20, -20), new Point(-80, -20, -20), new Point(-80, 20, -60),
+                        new Point(-120, 20, -60)).setEmission(new Color(50, 0, 50)).setMaterial(glass)));
+        scene.lights.add(new DirectionalLight(new Color(150, 120, 90), new Vector(-1, -2, -1)));
+        scene.lights.add(new SpotLight(new Color(600, 400, 400), new Point(-150, 150, 100), new Vector(1, -1, -2))
+                .setKl(1E-5).setKq(1E-6));
+
+        Camera scalar = render(false);
+        Camera packets = render(true);
+        assertArrayEquals(scalar.getImageWriter().readPixels(0, 0, SIZE, SIZE),
+                packets.getImageWriter().readPixels(0, 0, SIZE, SIZE), "Wrong pixels of packet shadows");
+    }
+}
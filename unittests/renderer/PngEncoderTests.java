@@ -0,0 +1,78 @@
+package renderer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.zip.Adler32;
+
+import javax.imageio.ImageIO;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Testing the parallel PNG encoder
+ * @author Devorah Wajs and Guila Czerniewicz
+ */
+class PngEncoderTests {
+    /** Default constructor to satisfy JavaDoc generator */
+    PngEncoderTests() { /* to satisfy JavaDoc generator */ }
+
+    /** Width of the test image */
+    private static final int WIDTH  = 333;
+    /** Height of the test image - several bands */
+    private static final int HEIGHT = 1500;
+
+    /**
+     * Test pixel color: gradients with noise and flat areas
+     * @param  x pixel column
+     * @param  y pixel row
+     * @return   packed RGB value
+     */
+    private static int pixel(int x, int y) {
+        if ((x / 40 + y / 40) % 3 == 0) return 0x1AF1E1;
+        int noise = (x * 7919 + y * 104729) % 17;
+        return (x * 255 / WIDTH) << 16 | (y * 255 / HEIGHT) << 8 | (x + y + noise) & 0xFF;
+    }
+
+    /**
+     * Test method for {@link PngEncoder#write(Path)}: encode an image of several
+     * bands with every compression level and decode it back
+     */
+    @Test
+    void testWrite() throws IOException {
+        for (PngEncoder.Compression compression : PngEncoder.Compression.values()) {
+            Path path = Path.of(ImageWriter.FOLDER_PATH, "pngEncoder" + compression + ".png");
+            new PngEncoder(WIDTH, HEIGHT, (y, rgb) -> {
+                for (int x = 0; x < WIDTH; ++x) rgb[x] = pixel(x, y);
+            }, compression).write(path);
+
+            BufferedImage image = ImageIO.read(path.toFile());
+            assertEquals(WIDTH, image.getWidth(), "Wrong image width");
+            assertEquals(HEIGHT, image.getHeight(), "Wrong image height");
+            for (int y = 0; y < HEIGHT; ++y)
+                for (int x = 0; x < WIDTH; ++x)
+                    assertEquals(pixel(x, y), image.getRGB(x, y) & 0xFFFFFF,
+                            "Wrong pixel " + x + "," + y + " with " + compression + " compression");
+        }
+    }
+
+    /**
+     * Test method for {@link PngEncoder#adler32Combine(long, long, long)}
+     */
+    @Test
+    void testAdler32Combine() {
+        byte[] data = new byte[100_000];
+        for (int i = 0; i < data.length; ++i) data[i] = (byte) (i * 31 + i / 7);
+        Adler32 whole = new Adler32();
+        whole.update(data);
+        Adler32 first = new Adler32();
+        first.update(data, 0, 70_001);
+        Adler32 second = new Adler32();
+        second.update(data, 70_001, data.length - 70_001);
+        assertEquals(whole.getValue(),
+                PngEncoder.adler32Combine(first.getValue(), second.getValue(), data.length - 70_001),
+                "Wrong combined checksum");
+    }
+}
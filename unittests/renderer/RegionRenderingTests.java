@@ -0,0 +1,116 @@
+package renderer;
+
+import static java.awt.Color.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.Arrays;
+
+import org.junit.jupiter.api.Test;
+
+import geometries.*;
+import lighting.PointLight;
+import primitives.*;
+import scene.Scene;
+
+/**
+ * Testing the rendering of image regions and crop windows
+ * @author Devorah Wajs and Guila Czerniewicz
+ */
+class RegionRenderingTests {
+    /** Image resolution of the tests */
+    private static final int SIZE   = 40;
+    /** Color of the pixels which were not rendered */
+    private static final int MARKER = 0x123456;
+
+    /** Scene of the tests */
+    private final Scene      scene  = new Scene("Test scene");
+
+    /** Constructs the scene of the tests */
+    RegionRenderingTests() {
+        scene.geometries.add(new Sphere(50d, new Point(0, 0, -150)).setEmission(new Color(RED))
+                .setMaterial(new Material().setKD(0.5).setKS(0.5).setShininess(30)),
+                new Plane(new Point(0, -60, 0), Vector.AXIS_Y).setEmission(new Color(30, 30, 30)));
+        scene.lights.add(new PointLight(new Color(500, 500, 500), new Point(100, 200, 200)));
+    }
+
+    /**
+     * Creates a camera builder of the tests
+     * @return the camera builder
+     */
+    private Camera.Builder camera() {
+        return Camera.getBuilder()
+                .setLocation(new Point(0, 0, 1000)).setDirection(Vector.AXIS_Y)
+                .setVpDistance(1000).setVpSize(200, 200).setResolution(SIZE, SIZE)
+                .setRayTracer(scene, RayTracerType.SIMPLE);
+    }
+
+    /**
+     * Paints all the pixels of a camera's image with the marker color
+     * @param  camera the camera
+     * @return        the camera
+     */
+    private static Camera mark(Camera camera) {
+        int[] rgb = new int[SIZE * SIZE];
+        Arrays.fill(rgb, MARKER);
+        camera.getImageWriter().writePixels(0, 0, SIZE, SIZE, rgb);
+        return camera;
+    }
+
+    /**
+     * Checks that the pixels inside a region are the full image's pixels and the
+     * pixels outside it are not rendered
+     * @param full   the pixels of the full image
+     * @param camera the camera which rendered the region
+     * @param x0     first pixel column of the region
+     * @param y0     first pixel row of the region
+     * @param x1     last pixel column of the region (excluded)
+     * @param y1     last pixel row of the region (excluded)
+     */
+    private static void assertRegion(int[] full, Camera camera, int x0, int y0, int x1, int y1) {
+        int[] rgb = camera.getImageWriter().readPixels(0, 0, SIZE, SIZE);
+        for (int y = 0; y < SIZE; ++y)
+            for (int x = 0; x < SIZE; ++x) {
+                int index = y * SIZE + x;
+                if (x >= x0 && x < x1 && y >= y0 && y < y1)
+                    assertEquals(full[index], rgb[index], "Wrong pixel inside the region at " + x + "," + y);
+                else
+                    assertEquals(MARKER, rgb[index] & 0xFFFFFF, "Touched pixel outside the region at " + x + "," + y);
+            }
+    }
+
+    /**
+     * Test method for {@link Camera#renderRegion(int, int, int, int)}
+     */
+    @Test
+    void testRenderRegion() {
+        int[] full = camera().build().renderImage().getImageWriter().readPixels(0, 0, SIZE, SIZE);
+        assertRegion(full, mark(camera().build()).renderRegion(5, 10, 27, 33), 5, 10, 27, 33);
+        // a region of a single pixel at the image's corner
+        assertRegion(full, mark(camera().build()).renderRegion(SIZE - 1, SIZE - 1, SIZE, SIZE),
+                SIZE - 1, SIZE - 1, SIZE, SIZE);
+
+        Camera camera = camera().build();
+        assertThrows(IllegalArgumentException.class, () -> camera.renderRegion(0, 0, SIZE + 1, SIZE),
+                "A region exceeding the image must fail");
+        assertThrows(IllegalArgumentException.class, () -> camera.renderRegion(-1, 0, SIZE, SIZE),
+                "A region with negative coordinates must fail");
+        assertThrows(IllegalArgumentException.class, () -> camera.renderRegion(10, 10, 10, 20),
+                "An empty region must fail");
+    }
+
+    /**
+     * Test method for {@link Camera.Builder#setCropWindow(int, int, int, int)}
+     */
+    @Test
+    void testSetCropWindow() {
+        int[] full = camera().build().renderImage().getImageWriter().readPixels(0, 0, SIZE, SIZE);
+        assertRegion(full, mark(camera().setCropWindow(12, 0, 40, 17).build()).renderImage(), 12, 0, 40, 17);
+
+        assertThrows(IllegalArgumentException.class, () -> camera().setCropWindow(0, 0, SIZE + 1, SIZE).build(),
+                "A crop window exceeding the resolution must fail");
+        assertThrows(IllegalArgumentException.class, () -> camera().setCropWindow(-1, 0, 10, 10),
+                "A crop window with negative coordinates must fail");
+        assertThrows(IllegalArgumentException.class, () -> camera().setCropWindow(5, 5, 5, 10),
+                "An empty crop window must fail");
+    }
+}
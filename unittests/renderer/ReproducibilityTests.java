@@ -0,0 +1,107 @@
+package renderer;
+
+import static java.awt.Color.*;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+import java.util.Arrays;
+
+import org.junit.jupiter.api.Test;
+
+import geometries.Sphere;
+import primitives.*;
+import scene.Scene;
+import targetAreas.TargetArea.SamplingPattern;
+
+/**
+ * Testing the reproducibility of renderings with random sampling
+ * @author Devorah Wajs and Guila Czerniewicz
+ */
+class ReproducibilityTests {
+    /** Image resolution of the tests */
+    private static final int    SIZE   = 40;
+
+    /** Scene of the tests */
+    private final Scene          scene  = new Scene("Test scene");
+    /** Camera builder of the tests - antialiasing and depth of field */
+    private final Camera.Builder camera = Camera.getBuilder()
+            .setLocation(new Point(0, 0, 1000))
+            .setDirection(Vector.AXIS_Y)
+            .setVpDistance(1000)
+            .setVpSize(200, 200)
+            .setResolution(SIZE, SIZE)
+            .setRayTracer(scene, RayTracerType.SIMPLE)
+            .setNumOfRaysAA(4)
+            .setSamplingPattern(SamplingPattern.RANDOM)
+            .setNumOfRaysDOF(9)
+            .setApertureWindow(50, 50)
+            .setDistanceFocalPlane(1150);
+
+    /** Constructs the scene of the tests */
+    ReproducibilityTests() {
+        scene.geometries.add(new Sphere(50d, new Point(0, 0, -150)).setEmission(new Color(RED)),
+                new Sphere(30, new Point(-100, 0, -100)).setEmission(new Color(GREEN)),
+                new Sphere(30, new Point(100, 0, -200)).setEmission(new Color(BLUE)));
+    }
+
+    /**
+     * Renders the image of the tests
+     * @param  threads the amount of rendering threads
+     * @return         packed RGB values of the image's pixels
+     */
+    private int[] render(int threads) {
+        return camera.setMultithreading(threads).build().renderImage().getImageWriter()
+                .readPixels(0, 0, SIZE, SIZE);
+    }
+
+    /**
+     * Test method for {@link Camera#renderImage()}: the random samples of every
+     * pixel are drawn from a generator seeded by the pixel, so repeated renderings
+     * give the same image
+     */
+    @Test
+    void testRepeatedRendering() {
+        assertArrayEquals(render(2), render(2), "Repeated renderings differ");
+    }
+
+    /**
+     * Test method for {@link Camera#renderImage()}: the random numbers of every
+     * sample are hashed from the frame, the pixel, the sample and the dimension, so
+     * the image doesn't depend on the threads
+     */
+    @Test
+    void testThreadCounts() {
+        int[] expected = render(0);
+        assertArrayEquals(expected, render(1), "Rendering with 1 thread differs");
+        assertArrayEquals(expected, render(4), "Rendering with 4 threads differs");
+        assertArrayEquals(expected, render(64), "Rendering with 64 threads differs");
+        assertArrayEquals(expected, render(-1), "Stream rendering differs");
+    }
+
+    /**
+     * Test method for {@link Camera.Builder#setFrame(int)}: every frame gets its
+     * own random samples
+     */
+    @Test
+    void testFrames() {
+        camera.setFrame(1);
+        int[] frame1 = render(2);
+        assertArrayEquals(frame1, render(4), "Repeated rendering of a frame differs");
+        camera.setFrame(2);
+        assertFalse(Arrays.equals(frame1, render(2)), "Frames have the same samples");
+    }
+
+    /**
+     * Test method for {@link SampleRandom#sample(int)}: the numbers of a sample
+     * don't depend on the numbers drawn for the other samples
+     */
+    @Test
+    void testSampleIndependence() {
+        SampleRandom random = new SampleRandom(0, 7);
+        random.sample(1).nextDouble();
+        random.nextDouble();
+        assertEquals(new SampleRandom(0, 7).sample(3).nextDouble(), random.sample(3).nextDouble(),
+                "Sample numbers depend on the drawing order");
+    }
+}
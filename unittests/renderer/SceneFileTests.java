@@ -0,0 +1,134 @@
+package renderer;
+
+import static java.awt.Color.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import geometries.*;
+import lighting.*;
+import primitives.*;
+import scene.Scene;
+import scene.SceneFile;
+
+/**
+ * Testing the compiled scene files
+ * @author Devorah Wajs and Guila Czerniewicz
+ */
+class SceneFileTests {
+    /** Image resolution of the tests */
+    private static final int SIZE = 40;
+
+    /**
+     * Creates the scene of the tests - a mesh of triangles with two appearances
+     * in a collection with a sphere and a plane, and several lights
+     * @return the scene
+     */
+    private static Scene scene() {
+        Material shiny = new Material().setKD(0.5).setKS(0.5).setShininess(30).setKr(0.2);
+        Material matte = new Material().setKD(0.8);
+        Geometries mesh = new Geometries();
+        for (int k = 0; k < 12; ++k) {
+            double a1 = Math.PI * 2 * k / 12, a2 = Math.PI * 2 * (k + 1) / 12;
+            mesh.add(new Triangle(new Point(0, 80, -200), new Point(90 * Math.cos(a1), -40, -200 + 90 * Math.sin(a1)),
+                    new Point(90 * Math.cos(a2), -40, -200 + 90 * Math.sin(a2)))
+                    .setEmission(new Color(k % 2 == 0 ? BLUE : GREEN)).setMaterial(k % 2 == 0 ? shiny : matte));
+        }
+        Scene scene = new Scene("Compiled scene").setBackground(new Color(10, 10, 20))
+                .setAmbientLight(new AmbientLight(new Color(30, 30, 30)));
+        scene.geometries.add(mesh, new Sphere(25d, new Point(-60, 0, -60)).setEmission(new Color(RED)).setMaterial(shiny),
+                new Plane(new Point(0, -40, 0), Vector.AXIS_Y).setEmission(new Color(20, 20, 20)).setMaterial(matte));
+        scene.lights.add(new PointLight(new Color(400, 400, 400), new Point(100, 200, 100)));
+        scene.lights.add(new DirectionalLight(new Color(100, 80, 60), new Vector(1, -1, -1)));
+        return scene;
+    }
+
+    /**
+     * Renders an image of a scene
+     * @param  scene the scene
+     * @return       the rendered camera
+     */
+    private static Camera render(Scene scene) {
+        return Camera.getBuilder()
+                .setLocation(new Point(0, 0, 400)).setDirection(Vector.AXIS_Y)
+                .setVpDistance(400).setVpSize(300, 300).setResolution(SIZE, SIZE)
+                .setRayTracer(scene, RayTracerType.SIMPLE)
+                .setAovOutput(true)
+                .build().renderImage();
+    }
+
+    /**
+     * Test method for {@link SceneFile#load(Path)}: the loaded scene renders the
+     * same image and auxiliary buffers as the original scene
+     * @throws IOException in case of I/O error
+     */
+    @Test
+    void testLoad() throws IOException {
+        Path path = Files.createTempFile("scene", ".rtsc");
+        SceneFile.compile(scene(), path);
+        Scene loaded = SceneFile.load(path);
+        assertEquals("Compiled scene", loaded.name, "Wrong name of the loaded scene");
+        assertEquals(2, loaded.lights.size(), "Wrong lights of the loaded scene");
+
+        Camera original = render(scene());
+        Camera compiled = render(loaded);
+        assertArrayEquals(original.getImageWriter().readPixels(0, 0, SIZE, SIZE),
+                compiled.getImageWriter().readPixels(0, 0, SIZE, SIZE), "Wrong pixels of the loaded scene");
+        assertArrayEquals(original.getGBuffer().objectId, compiled.getGBuffer().objectId,
+                "Wrong ids of the loaded scene");
+
+        // the loaded mesh may be changed like any other collection
+        loaded.geometries.add(new Sphere(10d, new Point(60, 0, -60)));
+        assertNotNull(loaded.geometries.calculateClosestIntersection(
+                new Ray(new Point(60, 0, 400), new Vector(0, 0, -1))), "The added sphere should be hit");
+        Files.delete(path);
+    }
+
+    /**
+     * Geometry of a class outside the scene's packages, for testing the classes
+     * allowed in a compiled scene
+     */
+    private static class ForeignGeometry extends Geometry {
+        /** Serialization version */
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        public Vector getNormal(Point point) { return Vector.AXIS_Z; }
+
+        @Override
+        protected List<Intersection> calculateIntersectionsHelper(Ray ray, double maxDistance) { return null; }
+    }
+
+    /**
+     * Test method for {@link SceneFile#load(Path)}: a compiled scene holding a
+     * class outside the scene's packages is not loaded
+     * @throws IOException in case of I/O error
+     */
+    @Test
+    void testLoadForeignClass() throws IOException {
+        Path path = Files.createTempFile("scene", ".rtsc");
+        Scene scene = scene();
+        scene.geometries.add(new ForeignGeometry());
+        SceneFile.compile(scene, path);
+        assertThrows(IllegalArgumentException.class, () -> SceneFile.load(path), "Foreign class must fail");
+        Files.delete(path);
+    }
+
+    /**
+     * Test method for {@link SceneFile#load(Path)}: a file which is not a
+     * compiled scene
+     * @throws IOException in case of I/O error
+     */
+    @Test
+    void testLoadWrongFile() throws IOException {
+        Path path = Files.createTempFile("scene", ".rtsc");
+        Files.write(path, new byte[100]);
+        assertThrows(IllegalArgumentException.class, () -> SceneFile.load(path), "Wrong file must fail");
+        Files.delete(path);
+    }
+}
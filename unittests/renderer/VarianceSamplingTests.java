@@ -0,0 +1,72 @@
+package renderer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+import org.junit.jupiter.api.Test;
+
+import geometries.Sphere;
+import primitives.*;
+import scene.Scene;
+
+/**
+ * Testing the variance-driven adaptive sampling of the camera
+ * @author Devorah Wajs and Guila Czerniewicz
+ */
+class VarianceSamplingTests {
+    /** Default constructor to satisfy JavaDoc generator */
+    VarianceSamplingTests() { /* to satisfy JavaDoc generator */ }
+
+    /** Samples of a batch */
+    private static final int     BATCH       = 8;
+    /** Maximum amount of samples of a pixel */
+    private static final int     MAX_SAMPLES = 64;
+
+    /** Scene of the tests */
+    private final Scene          scene       = new Scene("Test scene").setBackground(new Color(20, 40, 60));
+    /** Camera builder of the tests */
+    private final Camera.Builder camera      = Camera.getBuilder()
+            .setLocation(new Point(0, 0, 100)).setDirection(Point.ZERO, Vector.AXIS_Y)
+            .setVpDistance(100).setVpSize(100, 100).setResolution(20, 20)
+            .setRayTracer(scene, RayTracerType.SIMPLE)
+            .setVarianceSampling(0.01, BATCH, MAX_SAMPLES);
+
+    /**
+     * Test method for
+     * {@link Camera.Builder#setVarianceSampling(double, int, int)}: flat pixels
+     * converge after the first batch, and the pixels on the silhouette of a sphere
+     * get more samples
+     */
+    @Test
+    void testVarianceSampling() throws Exception {
+        scene.geometries.add(new Sphere(30d, Point.ZERO).setEmission(new Color(200, 200, 200)));
+        Camera rendered = camera.build().renderImage();
+        int[] samples = rendered.getGBuffer().samples;
+
+        // the corner shows the background, the center shows the sphere
+        assertEquals(BATCH, samples[0], "Wrong amount of samples of a background pixel");
+        assertEquals(BATCH, samples[10 * 20 + 10], "Wrong amount of samples of a flat pixel");
+        assertTrue(Arrays.stream(samples).max().orElse(0) > BATCH, "The silhouette is not sampled more");
+        assertTrue(Arrays.stream(samples).allMatch(n -> n >= BATCH && n <= MAX_SAMPLES),
+                "Amount of samples out of range");
+
+        rendered.writeSampleHeatmap("varianceHeatmap");
+        assertTrue(Files.size(Path.of(ImageWriter.FOLDER_PATH, "varianceHeatmap.png")) > 0,
+                "The heatmap is not written");
+    }
+
+    /**
+     * Test method for {@link Camera.Builder#build()}: variance-driven sampling
+     * cannot be combined with adaptive super sampling
+     */
+    @Test
+    void testExclusiveSampling() {
+        assertThrows(IllegalArgumentException.class, () -> camera.setAdaptiveSuperSampling(2).build(),
+                "Variance sampling with adaptive super sampling must fail");
+        assertThrows(IllegalArgumentException.class, () -> camera.setVarianceSampling(0.01, 1, MAX_SAMPLES),
+                "A batch of one sample must fail");
+    }
+}
@@ -0,0 +1,86 @@
+package renderer;
+
+import static java.awt.Color.BLUE;
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import javax.imageio.ImageIO;
+
+import org.junit.jupiter.api.Test;
+
+import geometries.Sphere;
+import primitives.*;
+import scene.Scene;
+
+/**
+ * Testing the Motion-JPEG AVI video writer
+ * @author Devorah Wajs and Guila Czerniewicz
+ */
+class VideoWriterTests {
+    /** Default constructor to satisfy JavaDoc generator */
+    VideoWriterTests() { /* to satisfy JavaDoc generator */ }
+
+    /**
+     * Write a short orbit video of a sphere and check the AVI structure and the
+     * frames stored in it
+     */
+    @Test
+    void orbitVideo() throws IOException {
+        Scene scene = new Scene("Test scene");
+        scene.geometries.add(new Sphere(60d, new Point(0, 0, -200)).setEmission(new Color(BLUE)));
+        Camera.Builder camera = Camera.getBuilder()
+                .setVpDistance(1000).setVpSize(200, 200).setResolution(80, 60)
+                .setRayTracer(scene, RayTracerType.SIMPLE);
+
+        final int frames = 6;
+        try (VideoWriter video = new VideoWriter("orbitVideo", 25)) {
+            new AnimationRenderer(frames, AnimationRenderer.orbit(camera, new Point(0, 0, 1000),
+                    new Point(0, 0, -200), new Point(0, 0, -200), Vector.AXIS_Y, frames))
+                    .render((frame, i) -> video.writeFrame(frame));
+        }
+
+        ByteBuffer avi = ByteBuffer.wrap(Files.readAllBytes(Path.of(ImageWriter.FOLDER_PATH, "orbitVideo.avi")))
+                .order(ByteOrder.LITTLE_ENDIAN);
+        assertEquals("RIFF", fourCC(avi, 0), "Wrong file type");
+        assertEquals(avi.limit() - 8, avi.getInt(4), "Wrong RIFF size");
+        assertEquals("AVI ", fourCC(avi, 8), "Wrong RIFF type");
+        assertEquals(frames, avi.getInt(48), "Wrong frames count");
+        assertEquals(80, avi.getInt(64), "Wrong video width");
+        assertEquals(60, avi.getInt(68), "Wrong video height");
+
+        int moviEnd = 220 + avi.getInt(216);
+        assertEquals("idx1", fourCC(avi, moviEnd), "Missing frames index");
+        assertEquals(16 * frames, avi.getInt(moviEnd + 4), "Wrong frames index size");
+        for (int i = 0; i < frames; ++i) {
+            int entry = moviEnd + 8 + 16 * i;
+            int offset = 220 + avi.getInt(entry + 8);
+            int size = avi.getInt(entry + 12);
+            assertEquals("00dc", fourCC(avi, offset), "Wrong chunk of frame " + i);
+            BufferedImage image = ImageIO.read(new ByteArrayInputStream(avi.array(), offset + 8, size));
+            assertNotNull(image, "Frame " + i + " is not a JPEG image");
+            assertEquals(80, image.getWidth(), "Wrong frame width");
+            // the sphere stays in the middle of the orbit
+            assertTrue((image.getRGB(40, 30) & 0xFF) > 200, "Wrong color in the middle of frame " + i);
+        }
+    }
+
+    /**
+     * Reads a four characters code
+     * @param  buffer   the file data
+     * @param  position position of the code
+     * @return          the code
+     */
+    private static String fourCC(ByteBuffer buffer, int position) {
+        byte[] code = new byte[4];
+        buffer.get(position, code);
+        return new String(code, StandardCharsets.US_ASCII);
+    }
+}
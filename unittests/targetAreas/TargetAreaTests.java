@@ -0,0 +1,91 @@
+package targetAreas;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import primitives.Point;
+import primitives.Vector;
+import targetAreas.TargetArea.SamplingPattern;
+
+/**
+ * Testing the sampling of the target areas
+ * @author Devorah Wajs and Guila Czerniewicz
+ */
+class TargetAreaTests {
+    /** Default constructor to satisfy JavaDoc generator */
+    TargetAreaTests() { /* to satisfy JavaDoc generator */ }
+
+    /** Delta value for accuracy when comparing the numbers of type 'double' */
+    private static final double DELTA = 0.000001;
+
+    /**
+     * Test method for the low-discrepancy sequences
+     */
+    @Test
+    void testSequences() {
+        // ============ Equivalence Partitions Tests ==============
+        // TC01: radical inverse in bases 2 and 3
+        assertEquals(0.25, LowDiscrepancySequence.halton(2, 2), DELTA, "Wrong Halton value in base 2");
+        assertEquals(7 / 9d, LowDiscrepancySequence.halton(5, 3), DELTA, "Wrong Halton value in base 3");
+        // TC02: every elementary interval of area 1/16 holds exactly one of the first 16 Sobol points
+        for (int rows = 1; rows <= 16; rows *= 2) {
+            int columns = 16 / rows;
+            boolean[] cells = new boolean[16];
+            for (int i = 0; i < 16; ++i) {
+                int x = (int) (LowDiscrepancySequence.fraction(LowDiscrepancySequence.sobol(i, 0)) * columns);
+                int y = (int) (LowDiscrepancySequence.fraction(LowDiscrepancySequence.sobol(i, 1)) * rows);
+                assertFalse(cells[y * columns + x], "Sobol points share a " + columns + "x" + rows + " cell");
+                cells[y * columns + x] = true;
+            }
+        }
+        // TC03: R2 points are in the unit square
+        for (int i = 0; i < 100; ++i) {
+            assertTrue(LowDiscrepancySequence.r2First(i) >= 0 && LowDiscrepancySequence.r2First(i) < 1,
+                    "R2 value out of range");
+            assertTrue(LowDiscrepancySequence.r2Second(i) >= 0 && LowDiscrepancySequence.r2Second(i) < 1,
+                    "R2 value out of range");
+        }
+    }
+
+    /**
+     * Test method for {@link TargetArea#generatePoints()} with the low-discrepancy
+     * sampling patterns
+     */
+    @Test
+    void testGenerateSequencePoints() {
+        for (SamplingPattern pattern : List.of(SamplingPattern.HALTON, SamplingPattern.SOBOL, SamplingPattern.R2)) {
+            // TC01: the points of a rectangle are inside the rectangle
+            List<Point> rectangle = new QuadrilateralTargetArea(2, 4, Vector.AXIS_X, Vector.AXIS_Z, Point.ZERO, 50,
+                    pattern).generatePoints();
+            assertEquals(50, rectangle.size(), "Wrong amount of points");
+            for (Point p : rectangle)
+                assertTrue(Math.abs(p.getX()) <= 2 && Math.abs(p.getY()) <= 1 && p.getZ() == 0,
+                        "Point out of the rectangle " + pattern);
+            // TC02: the points of a circle are inside the circle
+            List<Point> circle = new CircleTargetArea(3, Vector.AXIS_X, Vector.AXIS_Z, Point.ZERO, 50, pattern)
+                    .generatePoints();
+            assertEquals(50, circle.size(), "Wrong amount of points");
+            for (Point p : circle)
+                assertTrue(p.distance(Point.ZERO) <= 3 + DELTA, "Point out of the circle " + pattern);
+        }
+    }
+
+    /**
+     * Test method for {@link CircleTargetArea#samplePoint(double, double)}: the
+     * concentric mapping keeps the areas - a quarter of the square's middle maps
+     * into the circle's middle
+     */
+    @Test
+    void testConcentricMapping() {
+        CircleTargetArea circle = new CircleTargetArea(1, Vector.AXIS_X, Vector.AXIS_Z, Point.ZERO, 1,
+                SamplingPattern.GRID);
+        assertEquals(Point.ZERO, circle.samplePoint(0.5, 0.5), "Wrong center");
+        assertEquals(1, circle.samplePoint(1, 0.5).distance(Point.ZERO), DELTA, "Square's edge is not on the circle");
+        assertEquals(1, circle.samplePoint(0, 0).distance(Point.ZERO), DELTA, "Square's corner is not on the circle");
+        assertEquals(0.5, circle.samplePoint(0.75, 0.6).distance(Point.ZERO), DELTA,
+                "Half the square is not mapped to half the radius");
+    }
+}